@@ -1,6 +1,7 @@
 
 import java.util.List;
 import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -8,14 +9,18 @@ import java.util.stream.Collectors;
 
 import java.io.IOException;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
-
 
 public class AdjacencyGraph implements DirectedGraph<String> {
 
     private Map<String, List<DirectedEdge<String>>> adjacencyList;
     private int totalNrEdges;
+    private long version;  // counts the changes to the edges
+    private volatile CompactGraph compact;
+    private volatile ContractionHierarchy hierarchy;
+    private Landmarks landmarks;
+    private volatile Map<String, List<DirectedEdge<String>>> reverseList;  // incoming edges, built when first needed
+    private long unitWeightsVersion = -1;  // the version that unitWeights was computed for
+    private boolean unitWeights;
 
 
     public AdjacencyGraph() {
@@ -27,14 +32,29 @@ public class AdjacencyGraph implements DirectedGraph<String> {
     public AdjacencyGraph(String file) throws IOException {
         adjacencyList = new HashMap<>();
         totalNrEdges = 0;
-        Files.lines(Paths.get(file))
-            .filter(line -> !line.startsWith("#"))
-            .map(line -> line.split("\t"))
-            .map(edge -> (edge.length == 2
-                          ? new DirectedEdge<>(edge[0].trim(), edge[1].trim())
-                          : new DirectedEdge<>(edge[0].trim(), edge[1].trim(), Double.valueOf(edge[2].trim()))
-                          ))
-            .forEach(edge -> addEdge(edge));
+        for (DirectedEdge<String> edge : GraphLoader.readEdges(file))
+            addEdge(edge);
+    }
+
+
+    /**
+     * Creates a graph from its compiled form, for example one read from a
+     * {@link GraphSnapshot}. The graph starts out frozen as {@code compact}, so data
+     * saved for the compiled graph (landmarks, hierarchies) stays valid.
+     * @param  compact  the compiled graph
+     */
+    public AdjacencyGraph(CompactGraph compact) {
+        adjacencyList = new HashMap<>(2 * compact.nrNodes());
+        for (int v = 0; v < compact.nrNodes(); v++) {
+            if (compact.edgeStart(v) == compact.edgeEnd(v)) continue;
+            String from = compact.name(v);
+            List<DirectedEdge<String>> outgoing = new ArrayList<>(compact.edgeEnd(v) - compact.edgeStart(v));
+            for (int e = compact.edgeStart(v); e < compact.edgeEnd(v); e++)
+                outgoing.add(new DirectedEdge<>(from, compact.name(compact.target(e)), compact.weight(e)));
+            adjacencyList.put(from, outgoing);
+        }
+        totalNrEdges = compact.nrEdges();
+        this.compact = compact;
     }
 
 
@@ -61,11 +81,158 @@ public class AdjacencyGraph implements DirectedGraph<String> {
     public void addEdge(DirectedEdge<String> e) {
         List<DirectedEdge<String>> outgoing = adjacencyList.get(e.from());
         if (outgoing == null) {
-            outgoing = new LinkedList<>();
+            outgoing = new ArrayList<>();
             adjacencyList.put(e.from(), outgoing);
         }
         outgoing.add(e);
         totalNrEdges++;
+        if (reverseList != null)
+            reverseList.computeIfAbsent(e.to(), k -> new ArrayList<>()).add(e);
+        changed();
+    }
+
+
+    /**
+     * Changes the weight of the edges from {@code v} to {@code w}.
+     * @param  v       the starting node
+     * @param  w       the ending node
+     * @param  weight  the new weight
+     * @return the number of edges that were changed
+     */
+    public int updateWeight(String v, String w, double weight) {
+        DirectedEdge<String> updated = new DirectedEdge<>(v, w, weight);
+        int count = replace(adjacencyList.get(v), w, true, updated);
+        if (count == 0) return 0;
+        if (reverseList != null)
+            replace(reverseList.get(w), v, false, updated);
+        changed();
+        return count;
+    }
+
+
+    /**
+     * Removes the edges from {@code v} to {@code w}.
+     * @param  v  the starting node
+     * @param  w  the ending node
+     * @return the number of edges that were removed
+     */
+    public int removeEdge(String v, String w) {
+        List<DirectedEdge<String>> outgoing = adjacencyList.get(v);
+        int count = replace(outgoing, w, true, null);
+        if (count == 0) return 0;
+        if (outgoing.isEmpty())
+            adjacencyList.remove(v);
+        if (reverseList != null)
+            replace(reverseList.get(w), v, false, null);
+        totalNrEdges -= count;
+        changed();
+        return count;
+    }
+
+
+    /**
+     * Replaces the edges in {@code edges} whose ending node (or starting node, if
+     * {@code byEnd} is false) is {@code node} with {@code edge}, or removes them if
+     * {@code edge} is null.
+     * @return the number of edges replaced or removed
+     */
+    private static int replace(List<DirectedEdge<String>> edges, String node, boolean byEnd, DirectedEdge<String> edge) {
+        if (edges == null) return 0;
+        int count = 0;
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            DirectedEdge<String> e = edges.get(i);
+            if (!(byEnd ? e.to() : e.from()).equals(node)) continue;
+            if (edge == null) edges.remove(i);
+            else edges.set(i, edge);
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Drops everything derived from the edges, after they have changed.
+     */
+    private void changed() {
+        version++;
+        compact = null;
+        hierarchy = null;
+        landmarks = null;
+    }
+
+
+    /**
+     * @return the number of changes to the edges ({@code addEdge}, {@code updateWeight}
+     *         and {@code removeEdge}) so far
+     */
+    public long version() {
+        return version;
+    }
+
+
+    /**
+     * @return true if every edge has weight 1; the answer is kept until the edges change
+     */
+    public synchronized boolean hasUnitWeights() {
+        if (unitWeightsVersion != version) {
+            unitWeights = true;
+            for (List<DirectedEdge<String>> edges : adjacencyList.values())
+                for (DirectedEdge<String> edge : edges)
+                    if (edge.weight() != 1.0) unitWeights = false;
+            unitWeightsVersion = version;
+        }
+        return unitWeights;
+    }
+
+
+    /**
+     * Compiles the adjacency lists into a {@link CompactGraph}, which {@link PathFinder}
+     * searches with primitive arrays instead of the lists. The compiled form is kept
+     * until the edges change.
+     * @return the compiled graph
+     */
+    public synchronized CompactGraph freeze() {
+        if (compact == null)
+            compact = new CompactGraph(adjacencyList);
+        return compact;
+    }
+
+
+    /**
+     * @return the compiled graph, or null if the graph is not frozen
+     */
+    public CompactGraph compiled() {
+        return compact;
+    }
+
+
+    /**
+     * Builds the {@link ContractionHierarchy} of the frozen graph, unless it is already
+     * built. Like the compiled form, it is kept until the edges change.
+     * @return the contraction hierarchy
+     */
+    public ContractionHierarchy contract() {
+        ContractionHierarchy built = hierarchy;
+        if (built != null)
+            return built;
+        synchronized (this) {
+            if (hierarchy == null)
+                hierarchy = ContractionHierarchy.build(freeze());
+            return hierarchy;
+        }
+    }
+
+
+    /**
+     * Like {@link #contract()}, but loads the hierarchy from {@code file} if it has been
+     * saved there for this graph, and otherwise saves it there after building it.
+     * @param  file  the hierarchy file
+     * @return the contraction hierarchy
+     */
+    public synchronized ContractionHierarchy contract(String file) throws IOException {
+        if (hierarchy == null)
+            hierarchy = ContractionHierarchy.loadOrBuild(freeze(), file);
+        return hierarchy;
     }
 
 
@@ -81,6 +248,72 @@ public class AdjacencyGraph implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Calls {@code action} for every edge incident on node {@code v}, without creating a list.
+     * @param  v       the node
+     * @param  action  the consumer of the edges
+     */
+    public void forEachOutgoing(String v, EdgeConsumer<String> action) {
+        List<DirectedEdge<String>> outgoing = adjacencyList.get(v);
+        if (outgoing == null) return;
+        for (int i = 0; i < outgoing.size(); i++) {
+            DirectedEdge<String> e = outgoing.get(i);
+            action.accept(e.to(), e.weight());
+        }
+    }
+
+
+    /**
+     * @param  v  the node
+     * @return the edges ending in node {@code v} as a List
+     */
+    public List<DirectedEdge<String>> incomingEdges(String v) {
+        List<DirectedEdge<String>> incoming = reverseAdjacencyList().get(v);
+        if (incoming == null)
+            incoming = new LinkedList<>();
+        return incoming;
+    }
+
+
+    /**
+     * Calls {@code action} for every edge ending in node {@code v}, giving its starting node.
+     * @param  v       the node
+     * @param  action  the consumer of the edges
+     */
+    public void forEachIncoming(String v, EdgeConsumer<String> action) {
+        List<DirectedEdge<String>> incoming = reverseAdjacencyList().get(v);
+        if (incoming == null) return;
+        for (int i = 0; i < incoming.size(); i++) {
+            DirectedEdge<String> e = incoming.get(i);
+            action.accept(e.from(), e.weight());
+        }
+    }
+
+
+    /**
+     * The incoming edges of every node. They are collected from the adjacency lists the
+     * first time they are needed, and after that kept up to date by {@code addEdge},
+     * {@code updateWeight} and {@code removeEdge}.
+     * Once they are built, reading them takes no lock, so concurrent searches do not
+     * contend on them.
+     */
+    private Map<String, List<DirectedEdge<String>>> reverseAdjacencyList() {
+        Map<String, List<DirectedEdge<String>>> built = reverseList;
+        if (built != null)
+            return built;
+        synchronized (this) {
+            if (reverseList == null) {
+                Map<String, List<DirectedEdge<String>>> reverse = new HashMap<>();
+                for (List<DirectedEdge<String>> edges : adjacencyList.values())
+                    for (DirectedEdge<String> e : edges)
+                        reverse.computeIfAbsent(e.to(), k -> new ArrayList<>()).add(e);
+                reverseList = reverse;
+            }
+            return reverseList;
+        }
+    }
+
+
     /**
      * @param  v  the node
      * @return the degree of node {@code v}               
@@ -90,8 +323,38 @@ public class AdjacencyGraph implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Without landmarks there is nothing to base an estimate on, since the nodes have
+     * no coordinates, so the estimate is 0.
+     * @param  v  one node
+     * @param  w  another node
+     * @return the ALT lower bound on the cost from {@code v} to {@code w}, if landmarks are set
+     */
     public double guessCost(String v, String w) {
-        return 0;
+        Landmarks landmarks = this.landmarks;
+        if (landmarks == null)
+            return 0;
+        return landmarks.lowerBound(v, w);
+    }
+
+
+    /**
+     * Makes {@code guessCost} use the given landmarks. They are dropped when the
+     * edges change, since a new or cheaper edge can make the estimate too high.
+     * @param  landmarks  landmarks chosen for the frozen graph, or null to estimate 0 again
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        if (landmarks != null && landmarks.graph() != compact)
+            throw new IllegalArgumentException("The landmarks are for another graph");
+        this.landmarks = landmarks;
+    }
+
+
+    /**
+     * @return the landmarks used by {@code guessCost}, or null
+     */
+    public Landmarks landmarks() {
+        return landmarks;
     }
 
 
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ * A monotone priority queue of integer ids with small non-negative integer priorities,
+ * as in Dial's algorithm: there is one bucket (a stack of ids) per priority, and the
+ * smallest priority is found by moving a cursor up over the empty buckets. Inserting
+ * and removing take constant time, plus the cursor moves, which add up to at most the
+ * largest priority over a whole search.
+ *
+ * Dial's algorithm keeps {@code C+1} buckets in a circle, where {@code C} is the largest
+ * edge weight. Here the weights are not known in advance, so the buckets are indexed
+ * by the priority itself and added on demand; the memory grows with the largest
+ * priority, not with the number of ids.
+ *
+ * Like the lazy-deletion {@link LazyMinPQ} in {@link PathFinder}, an id can be in
+ * the queue several times with different priorities; the caller skips the outdated
+ * copies when they are removed. An id inserted below the cursor moves it back, which
+ * only happens with an inconsistent A* estimate.
+ */
+public class BucketQueue {
+
+    private int[][] buckets = new int[64][];
+    private int[] sizes = new int[64];
+    private int min;          // every bucket below min is empty
+    private int n;            // number of ids in the buckets
+    private long operations;  // number of insert and delMin calls
+
+
+    /**
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+
+    /**
+     * @return the number of ids in the queue, counting every copy
+     */
+    public int size() {
+        return n;
+    }
+
+
+    /**
+     * @return the number of insert and delMin operations since creation (or the last clear)
+     */
+    public long operations() {
+        return operations;
+    }
+
+
+    /**
+     * Inserts the id {@code i} with priority {@code key}.
+     * @param  i    the id
+     * @param  key  the priority
+     * @throws IllegalArgumentException if {@code key} is negative
+     */
+    public void insert(int i, int key) {
+        if (key < 0)
+            throw new IllegalArgumentException("negative priority " + key);
+        if (key >= buckets.length) {
+            int newLength = Math.max(key + 1, 2 * buckets.length);
+            buckets = Arrays.copyOf(buckets, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+        }
+        int[] bucket = buckets[key];
+        if (bucket == null)
+            bucket = buckets[key] = new int[16];
+        else if (sizes[key] == bucket.length)
+            bucket = buckets[key] = Arrays.copyOf(bucket, 2 * bucket.length);
+        bucket[sizes[key]++] = i;
+        if (key < min) min = key;
+        n++;
+        operations++;
+    }
+
+
+    /**
+     * @return the smallest priority in the queue
+     */
+    public int minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        while (sizes[min] == 0) min++;
+        return min;
+    }
+
+
+    /**
+     * Removes an id with the smallest priority and returns it.
+     * @return the removed id
+     */
+    public int delMin() {
+        int key = minKey();
+        operations++;
+        n--;
+        return buckets[key][--sizes[key]];
+    }
+
+
+    /**
+     * Removes all ids, keeping the allocated buckets so that the queue can be reused.
+     */
+    public void clear() {
+        Arrays.fill(sizes, 0);
+        min = 0;
+        n = 0;
+        operations = 0;
+    }
+
+}
@@ -0,0 +1,107 @@
+import java.util.Random;
+
+
+/**
+ * Compares the bucket-queue searches {@code dial} and {@code dialastar} with Dijkstra's
+ * algorithm and A* on graphs with integer weights: the 3x3 NPuzzle and the word ladders
+ * (unit weights, so {@code dial} is a breadth-first search) and a city graph (integer
+ * kilometres). Every query is answered with {@code searchDijkstra}/{@code searchAstar}
+ * (a binary heap with lazy deletion, {@link LazyMinPQ}), with the default
+ * {@code search}, which has faster versions for some graphs, and with the bucket
+ * queue. It checks that the three Dijkstra searches give the same cost, and that the
+ * A* searches do too when the estimate of the graph is admissible, and reports the
+ * settled nodes, the allocated bytes and the average wall time of each.
+ *
+ * NPuzzle's estimate is not admissible, so there A* and {@code dialastar} can return
+ * longer paths than Dijkstra's algorithm, and not always the same ones. On random 3x3
+ * puzzles, the benchmark checks that {@code dial} costs the same as Dijkstra's algorithm
+ * and counts the queries where {@code dialastar} differs from A*, and where either is
+ * longer than the shortest path.
+ */
+public class BucketQueueBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+    private static final int RANDOM = 50;  // random queries on the 3x3 puzzle
+
+
+    private interface Search<V> {
+        PathFinder<V>.Result<V> search(PathFinder<V> finder, V start, V goal);
+    }
+
+
+    private static <V> double run(String name, DirectedGraph<V> graph, String label, Search<V> search, V start, V goal) {
+        PathFinder<V> finder = new PathFinder<>(graph);
+        Measurement<PathFinder<V>.Result<V>> measurement = Measurement.of(WARMUP, ROUNDS, () -> search.search(finder, start, goal));
+        PathFinder<V>.Result<V> result = measurement.result;
+
+        System.out.println(String.format("%-18s %-16s %-14s cost %7.1f  settled %7d  bytes %10d  %9.3f ms",
+                                         name, start, label, result.cost, result.visitedNodes,
+                                         measurement.bytesPerOperation(), measurement.nanosPerOperation() / 1e6));
+        return result.cost;
+    }
+
+
+    private static <V> void compare(String name, DirectedGraph<V> graph, boolean admissible, V start, V goal) {
+        double[] costs = {
+            run(name, graph, "searchDijkstra", (f, s, g) -> f.searchDijkstra(s, g), start, goal),
+            run(name, graph, "dijkstra", (f, s, g) -> f.search("dijkstra", s, g), start, goal),
+            run(name, graph, "dial", (f, s, g) -> f.search("dial", s, g), start, goal),
+            run(name, graph, "searchAstar", (f, s, g) -> f.searchAstar(s, g), start, goal),
+            run(name, graph, "astar", (f, s, g) -> f.search("astar", s, g), start, goal),
+            run(name, graph, "dialastar", (f, s, g) -> f.search("dialastar", s, g), start, goal),
+        };
+        for (int i = 0; i < (admissible ? costs.length : 3); i++)
+            if (costs[i] != costs[0])
+                throw new AssertionError(name + " " + start + " -> " + goal + ": costs differ");
+        System.out.println();
+    }
+
+
+    private static void compareRandom(NPuzzle puzzle, String goal) {
+        PathFinder<String> finder = new PathFinder<>(puzzle);
+        Random random = new Random(1);
+        int differ = 0, astarLonger = 0, dialastarLonger = 0;
+        for (int i = 0; i < RANDOM; i++) {
+            String start = puzzle.randomState(goal, 1000, random);
+            double dijkstra = finder.search("dijkstra", start, goal).cost;
+            if (finder.search("dial", start, goal).cost != dijkstra)
+                throw new AssertionError("NPuzzle 3 " + start + " -> " + goal + ": dial and dijkstra costs differ");
+            double astar = finder.search("astar", start, goal).cost;
+            double dialastar = finder.search("dialastar", start, goal).cost;
+            if (astar != dialastar) differ++;
+            if (astar > dijkstra) astarLonger++;
+            if (dialastar > dijkstra) dialastarLonger++;
+        }
+        System.out.println(String.format("NPuzzle 3, %d random queries: dial costs the same as dijkstra in all; "
+                                         + "dialastar differs from astar in %d; longer than the shortest path: astar %d, dialastar %d",
+                                         RANDOM, differ, astarLonger, dialastarLonger));
+        System.out.println();
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs";
+            NPuzzle puzzle = new NPuzzle(3);
+            compare("NPuzzle 3", puzzle, false, "/_AB/CDE/FGH/", "/ABC/DEF/GH_/");
+            compare("NPuzzle 3", puzzle, false, "/CBA/DEF/_HG/", "/ABC/DEF/GH_/");
+            compare("NPuzzle 3", puzzle, false, "/HFG/BED/C_A/", "/ABC/DEF/GH_/");
+            compareRandom(puzzle, "/ABC/DEF/GH_/");
+
+            WordLadder words = new WordLadder(dir + "/WordLadder/words-romaner.txt");
+            compare("words-romaner", words, true, "katter", "hundar");
+            compare("words-romaner", words, true, "mamma", "pappa");
+            compare("words-romaner", words, true, "örter", "öring");
+
+            AdjacencyGraph sweden = new AdjacencyGraph(dir + "/AdjacencyGraph/citygraph-SE.txt");
+            compare("citygraph-SE", sweden, true, "Lund", "Kiruna");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java BucketQueueBenchmark [graph-directory]");
+            System.exit(1);
+        }
+    }
+
+}
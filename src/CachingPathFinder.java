@@ -0,0 +1,293 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * A cache in front of {@link PathFinder#search} for workloads that repeat queries.
+ *
+ * The results of the deterministic algorithms are kept in a least-recently-used cache
+ * keyed by {@code (algorithm, start, goal)}. Results of the random search are never
+ * cached.
+ *
+ * The algorithms that find a shortest path on every graph ({@code dijkstra},
+ * {@code dial}, {@code bidijkstra}, {@code ch} and {@code delta}) share more: the
+ * second time a start node misses the cache with a new goal for one of them, the whole
+ * {@link ShortestPathTree} of the start is computed and cached as well, and from then
+ * on every query from that start with any of them is answered from the tree. The others
+ * are never answered from a tree, since their answers can differ from the shortest path:
+ * A* and IDA* with an estimate that is not admissible, like {@link NPuzzle}'s, can
+ * return longer paths. A result from a tree has no visited nodes, since nothing was
+ * searched, while a cached result keeps the visited nodes of the search that found it.
+ *
+ * The cache is bounded by a total size rather than a number of entries: a result
+ * counts as the number of nodes on its path plus one, and a tree as the number of
+ * nodes it reaches. When the total goes over the limit, the least recently used
+ * entries are evicted. All entries are dropped when the {@link DirectedGraph#version}
+ * of the graph changes, for example after {@code AdjacencyGraph.addEdge}.
+ *
+ * Like {@code PathFinder}, an instance is not thread-safe.
+ */
+public class CachingPathFinder<V> {
+
+    private static final Set<String> DETERMINISTIC = Set.of("dijkstra", "astar", "dial", "dialastar", "idastar", "bidijkstra", "biastar", "ch", "jps", "delta", "external");
+    private static final Set<String> SHORTEST = Set.of("dijkstra", "dial", "bidijkstra", "ch", "delta");
+    private static final int RECENT_STARTS = 1024;
+
+    private final DirectedGraph<V> graph;
+    private final PathFinder<V> finder;
+    private final long maxSize;
+    private long size;
+    private long version;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // the starts of recent misses, to notice a start that is searched again
+    private final LinkedHashMap<V, Boolean> recentStarts = new LinkedHashMap<V, Boolean>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<V, Boolean> eldest) {
+            return size() > RECENT_STARTS;
+        }
+    };
+
+    private long hits, treeHits, misses, evictions, invalidations;
+
+
+    /**
+     * @param  graph    the graph to search
+     * @param  maxSize  the largest total size of the cached results and trees
+     */
+    public CachingPathFinder(DirectedGraph<V> graph, long maxSize) {
+        this.graph = graph;
+        this.finder = new PathFinder<>(graph);
+        this.maxSize = maxSize;
+        this.version = graph.version();
+    }
+
+
+    /**
+     * A cache key: a query, or the shortest-path tree of a start if the algorithm is null.
+     */
+    private static class Key {
+        final String algorithm;
+        final Object start, goal;
+
+        Key(String algorithm, Object start, Object goal) {
+            this.algorithm = algorithm;
+            this.start = start;
+            this.goal = goal;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Objects.equals(algorithm, other.algorithm) && start.equals(other.start) && Objects.equals(goal, other.goal);
+        }
+
+        public int hashCode() {
+            return Objects.hash(algorithm, start, goal);
+        }
+    }
+
+
+    private class Entry {
+        final PathFinder<V>.Result<V> result;
+        final ShortestPathTree<V> tree;
+        final long size;
+
+        Entry(PathFinder<V>.Result<V> result, ShortestPathTree<V> tree, long size) {
+            this.result = result;
+            this.tree = tree;
+            this.size = size;
+        }
+    }
+
+
+    /**
+     * Answers a query from the cache if possible, and otherwise with {@code PathFinder.search}.
+     * @param  algorithm  the search algorithm, as in {@code PathFinder.search}
+     * @param  start      the start node
+     * @param  goal       the goal node
+     * @return the result
+     */
+    public PathFinder<V>.Result<V> search(String algorithm, V start, V goal) {
+        if (graph.version() != version) {
+            clear();
+            invalidations++;
+            version = graph.version();
+        }
+        if (!DETERMINISTIC.contains(algorithm))
+            return finder.search(algorithm, start, goal);
+        boolean shortest = SHORTEST.contains(algorithm);
+
+        Key key = new Key(algorithm, start, goal);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.result;
+        }
+        Entry treeEntry = shortest ? entries.get(new Key(null, start, null)) : null;
+        if (treeEntry != null) {
+            treeHits++;
+            return finder.search(treeEntry.tree, goal);
+        }
+
+        misses++;
+        PathFinder<V>.Result<V> result = finder.search(algorithm, start, goal);
+        put(key, new Entry(result, null, 1 + (result.path == null ? 0 : result.path.size())));
+        if (shortest && recentStarts.put(start, true) != null) {
+            ShortestPathTree<V> tree = finder.shortestPathTree(start, (int) Math.min(maxSize, Integer.MAX_VALUE));
+            if (tree != null)
+                put(new Key(null, start, null), new Entry(null, tree, tree.size()));
+        }
+        return result;
+    }
+
+
+    private void put(Key key, Entry entry) {
+        if (entry.size > maxSize) return;
+        Entry old = entries.put(key, entry);
+        if (old != null) size -= old.size;
+        size += entry.size;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > maxSize) {
+            size -= eldest.next().size;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+
+    /**
+     * Drops all cached results and trees.
+     */
+    public void clear() {
+        entries.clear();
+        recentStarts.clear();
+        size = 0;
+    }
+
+
+    /**
+     * @return the path finder that answers the queries that miss the cache
+     */
+    public PathFinder<V> finder() {
+        return finder;
+    }
+
+
+    /**
+     * @return the number of queries answered with a cached result
+     */
+    public long hits() {
+        return hits;
+    }
+
+
+    /**
+     * @return the number of queries answered from a cached shortest-path tree
+     */
+    public long treeHits() {
+        return treeHits;
+    }
+
+
+    /**
+     * @return the number of queries that were searched
+     */
+    public long misses() {
+        return misses;
+    }
+
+
+    /**
+     * @return the number of entries evicted to stay within the size limit
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+
+    /**
+     * @return the number of times the cache was cleared because the graph changed
+     */
+    public long invalidations() {
+        return invalidations;
+    }
+
+
+    /**
+     * @return the total size of the cached results and trees
+     */
+    public long size() {
+        return size;
+    }
+
+
+    /**
+     * @return a string representation of the cache metrics
+     */
+    public String toString() {
+        long queries = hits + treeHits + misses;
+        return String.format("%d cached queries: %d hits, %d tree hits, %d misses (hit rate %.1f%%), %d evictions, %d invalidations, size %d of %d",
+                             queries, hits, treeHits, misses, queries == 0 ? 0.0 : 100.0 * (hits + treeHits) / queries,
+                             evictions, invalidations, size, maxSize);
+    }
+
+
+    /**
+     * Replays a skewed random workload on a graph with and without the cache, checks
+     * that the costs agree, and prints the times and the cache metrics
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            String file = args.length > 0 ? args[0] : "src/graphs/AdjacencyGraph/citygraph-SE.txt";
+            int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+            long maxSize = args.length > 2 ? Long.parseLong(args[2]) : 1000000;
+            AdjacencyGraph graph = new AdjacencyGraph(file);
+            CompactGraph compact = graph.freeze();
+
+            // Distinct queries from a few hundred starts, asked with Zipf-like frequencies:
+            // the k-th most popular query about 1/k as often as the most popular one
+            java.util.Random random = new java.util.Random(1);
+            String[][] distinct = new String[queries / 4][];
+            for (int i = 0; i < distinct.length; i++)
+                distinct[i] = new String[] {random.nextBoolean() ? "dijkstra" : "bidijkstra",
+                                            compact.name(random.nextInt(Math.min(300, compact.nrNodes()))),
+                                            compact.name(random.nextInt(compact.nrNodes()))};
+            String[][] workload = new String[queries][];
+            for (int i = 0; i < queries; i++)
+                workload[i] = distinct[(int) Math.pow(distinct.length + 1, random.nextDouble()) - 1];
+
+            PathFinder<String> finder = new PathFinder<>(graph);
+            double[] costs = new double[queries];
+            long time = System.nanoTime();
+            for (int i = 0; i < queries; i++)
+                costs[i] = finder.search(workload[i][0], workload[i][1], workload[i][2]).cost;
+            System.out.println(String.format("Without cache: %.1f ms", (System.nanoTime() - time) / 1e6));
+
+            CachingPathFinder<String> cache = new CachingPathFinder<>(graph, maxSize);
+            time = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                double cost = cache.search(workload[i][0], workload[i][1], workload[i][2]).cost;
+                if (Math.abs(cost - costs[i]) > 1e-6)
+                    throw new AssertionError(String.join(" ", workload[i]) + ": cost " + cost + ", expected " + costs[i]);
+            }
+            System.out.println(String.format("With cache:    %.1f ms", (System.nanoTime() - time) / 1e6));
+            System.out.println(cache);
+
+            graph.addEdge(new DirectedEdge<>(workload[0][1], workload[0][2], 0.5));
+            PathFinder<String>.Result<String> result = cache.search(workload[0][0], workload[0][1], workload[0][2]);
+            System.out.println("After adding the edge " + workload[0][1] + " -> " + workload[0][2] + ": cost " + result.cost);
+            System.out.println(cache);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java CachingPathFinder [graph-file] [queries] [max-size]");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,227 @@
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * A compiled, read-only version of an edge-weighted directed graph with string nodes.
+ * Nodes are numbered {@code 0..nrNodes()-1}, and the edges are stored in
+ * compressed sparse row (CSR) layout: the outgoing edges of node {@code v} are
+ * the edge indices {@code offsets[v] <= e < offsets[v+1]}, and edge {@code e}
+ * goes to node {@code targets[e]} with weight {@code weights[e]}.
+ *
+ * Searching this form only touches primitive arrays; the node names are only
+ * needed when translating a query to ids and a found path back to strings.
+ */
+public class CompactGraph {
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+
+    /**
+     * Compiles a graph from its adjacency lists.
+     * @param  adjacencyList  the outgoing edges of each node
+     */
+    public CompactGraph(Map<String, List<DirectedEdge<String>>> adjacencyList) {
+        ids = new HashMap<>();
+        List<String> nameList = new ArrayList<>();
+        int nrEdges = 0;
+        for (String v : adjacencyList.keySet())
+            intern(v, nameList);
+        for (List<DirectedEdge<String>> edges : adjacencyList.values())
+            for (DirectedEdge<String> e : edges) {
+                intern(e.to(), nameList);
+                nrEdges++;
+            }
+        names = nameList.toArray(new String[0]);
+
+        offsets = new int[names.length + 1];
+        targets = new int[nrEdges];
+        weights = new double[nrEdges];
+        int e = 0;
+        for (int v = 0; v < names.length; v++) {
+            offsets[v] = e;
+            List<DirectedEdge<String>> edges = adjacencyList.get(names[v]);
+            if (edges == null) continue;
+            for (DirectedEdge<String> edge : edges) {
+                targets[e] = ids.get(edge.to());
+                weights[e] = edge.weight();
+                e++;
+            }
+        }
+        offsets[names.length] = e;
+    }
+
+
+    private CompactGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets, double[] weights) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+
+    /**
+     * Writes the node names and the edge arrays, for a {@link GraphSnapshot}.
+     * @param  out  the output
+     */
+    void write(DataOutputStream out) throws IOException {
+        GraphSnapshot.writeStrings(out, names);
+        GraphSnapshot.writeInts(out, offsets);
+        GraphSnapshot.writeInts(out, targets);
+        GraphSnapshot.writeDoubles(out, weights);
+    }
+
+
+    /**
+     * Reads a graph written by {@link #write}, keeping its node ids.
+     * @param  in  the input, positioned at the graph
+     * @return the graph
+     */
+    static CompactGraph read(ByteBuffer in) {
+        String[] names = GraphSnapshot.readStrings(in);
+        Map<String, Integer> ids = new HashMap<>(2 * names.length);
+        for (int v = 0; v < names.length; v++)
+            ids.put(names[v], v);
+        return new CompactGraph(names, ids, GraphSnapshot.readInts(in), GraphSnapshot.readInts(in), GraphSnapshot.readDoubles(in));
+    }
+
+
+    /**
+     * Builds the reverse graph, with the same node ids and every edge turned around,
+     * so the outgoing edges of a node in the reverse graph are its incoming edges here.
+     * @return the reverse graph
+     */
+    public CompactGraph reverse() {
+        int n = names.length;
+        int[] reverseOffsets = new int[n + 1];
+        for (int e = 0; e < targets.length; e++)
+            reverseOffsets[targets[e] + 1]++;
+        for (int v = 0; v < n; v++)
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        int[] next = Arrays.copyOf(reverseOffsets, n);
+        int[] reverseTargets = new int[targets.length];
+        double[] reverseWeights = new double[targets.length];
+        for (int v = 0; v < n; v++)
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int i = next[targets[e]]++;
+                reverseTargets[i] = v;
+                reverseWeights[i] = weights[e];
+            }
+        return new CompactGraph(names, ids, reverseOffsets, reverseTargets, reverseWeights);
+    }
+
+
+    /**
+     * @return a hash of the node names in id order and of all edges with their weights,
+     *         so that data saved for this graph (a contraction hierarchy or landmark
+     *         distances) is not used with a graph whose nodes are numbered differently
+     *         or whose edges or weights have changed
+     */
+    public int fingerprint() {
+        int hash = Arrays.hashCode(names);
+        hash = 31 * hash + Arrays.hashCode(offsets);
+        hash = 31 * hash + Arrays.hashCode(targets);
+        return 31 * hash + Arrays.hashCode(weights);
+    }
+
+
+    private void intern(String v, List<String> nameList) {
+        if (!ids.containsKey(v)) {
+            ids.put(v, nameList.size());
+            nameList.add(v);
+        }
+    }
+
+
+    /**
+     * @return the number of nodes in this graph (including nodes without outgoing edges)
+     */
+    public int nrNodes() {
+        return names.length;
+    }
+
+
+    /**
+     * @return the number of edges in this graph
+     */
+    public int nrEdges() {
+        return targets.length;
+    }
+
+
+    /**
+     * @param  v  a node name
+     * @return the id of node {@code v}, or -1 if it is not in the graph
+     */
+    public int id(String v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the name of node {@code v}
+     */
+    public String name(int v) {
+        return names[v];
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the index of the first outgoing edge of node {@code v}
+     */
+    public int edgeStart(int v) {
+        return offsets[v];
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return one past the index of the last outgoing edge of node {@code v}
+     */
+    public int edgeEnd(int v) {
+        return offsets[v + 1];
+    }
+
+
+    /**
+     * @param  e  an edge index
+     * @return the id of the ending node of edge {@code e}
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+
+    /**
+     * @param  e  an edge index
+     * @return the weight of edge {@code e}
+     */
+    public double weight(int e) {
+        return weights[e];
+    }
+
+
+    /**
+     * @return a string representation of the graph
+     */
+    public String toString() {
+        return "Compact graph with " + nrNodes() + " nodes, " + nrEdges() + " edges";
+    }
+
+}
@@ -0,0 +1,238 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Dijkstra's algorithm and A* with a {@link Landmarks} estimate over a {@link CompactGraph}.
+ *
+ * Like {@link GridSearch}, the distances, parents and states of the nodes are kept in
+ * arrays that are allocated once and reused by every query, with a generation number
+ * per query instead of clearing them. Only the nodes on the returned path are turned
+ * back into names. {@link #settle} computes the distances from one source to many
+ * targets with a single search.
+ *
+ * An instance is not thread-safe; use one per thread.
+ */
+public class CompactSearch {
+
+    private final CompactGraph graph;
+    private final double[] distTo;
+    private final int[] parent;
+    private final int[] mark;        // generation when the node was reached, plus 1 once it is settled
+    private int generation = 0;     // always even
+    private int[] targetMark;        // generation when the node was made a target of settle
+    private final IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+    private long queueOperations;
+    private long pathStartNanos;  // System.nanoTime() when the last path was started
+    private SearchListener listener;
+
+
+    /**
+     * @param  graph  the graph to search
+     */
+    public CompactSearch(CompactGraph graph) {
+        this.graph = graph;
+        distTo = new double[graph.nrNodes()];
+        parent = new int[graph.nrNodes()];
+        mark = new int[graph.nrNodes()];
+    }
+
+
+    /**
+     * @return the graph this search is for
+     */
+    public CompactGraph graph() {
+        return graph;
+    }
+
+
+    /**
+     * @return the number of queue operations of the last search
+     */
+    public long queueOperations() {
+        return queueOperations;
+    }
+
+
+    /**
+     * @return the {@code System.nanoTime} when the last successful search reached its
+     *         goal and started to build the path
+     */
+    public long pathStartNanos() {
+        return pathStartNanos;
+    }
+
+
+    /**
+     * Sets the listener that receives the events of {@link #search}.
+     * @param listener  the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+
+    /**
+     * The outcome of a search: the path is listed from the goal back to the start,
+     * excluding the start, like in {@link PathFinder.Result}.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final double cost;
+        public final List<String> path;
+        public final int visitedNodes;
+
+        Solution(boolean success, double cost, List<String> path, int visitedNodes) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+        }
+    }
+
+
+    /**
+     * Finds a shortest path with Dijkstra's algorithm, or with A* if landmarks are given.
+     * @param  s          the id of the start node
+     * @param  t          the id of the goal node, or -1 if the goal is not in the graph
+     * @param  landmarks  landmarks for {@code graph} to estimate the remaining cost with, or null
+     * @return the solution
+     */
+    public Solution search(int s, int t, Landmarks landmarks) {
+        nextGeneration();
+        toBeVisited.clear();
+        if (t < 0) landmarks = null;
+        int visitedNodes = 0;
+
+        distTo[s] = 0.0;
+        parent[s] = -1;
+        mark[s] = generation;
+        toBeVisited.insert(s, landmarks != null ? landmarks.lowerBound(s, t) : 0.0);
+        SearchListener listener = this.listener;
+        if (listener != null) {
+            listener.pushed(1);
+            if (landmarks != null) listener.heuristicCalled();
+        }
+
+        while (!toBeVisited.isEmpty()) {
+            int v = toBeVisited.delMin();
+            mark[v] = generation + 1;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            if (v == t) {
+                pathStartNanos = System.nanoTime();
+                if (listener != null) listener.pathStarted();
+                List<String> path = new ArrayList<>();
+                for (int node = v; node != s; node = parent[node])
+                    path.add(graph.name(node));
+                queueOperations = toBeVisited.operations();
+                return new Solution(true, distTo[v], path, visitedNodes);
+            }
+
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {  /* RELAX */
+                int w = graph.target(e);
+                double newDist = distTo[v] + graph.weight(e);
+                if (mark[w] == generation + 1 || mark[w] == generation && distTo[w] <= newDist) {
+                    if (listener != null) listener.relaxed(false);
+                    continue;
+                }
+                mark[w] = generation;
+                distTo[w] = newDist;
+                parent[w] = v;
+                toBeVisited.insertOrDecrease(w, landmarks != null ? newDist + landmarks.lowerBound(w, t) : newDist);
+                if (listener != null) {
+                    listener.relaxed(true);
+                    listener.pushed(toBeVisited.size());
+                    if (landmarks != null) listener.heuristicCalled();
+                }
+            }
+        }
+        queueOperations = toBeVisited.operations();
+        return new Solution(false, -1, null, visitedNodes);
+    }
+
+
+    /**
+     * Runs Dijkstra's algorithm from {@code s} until every node in {@code targets} is
+     * settled, or until every reachable node is settled if {@code targets} is null.
+     * The distances and the shortest-path tree can then be read with {@link #distance}
+     * and {@link #parent}, until the next search.
+     * @param  s        the id of the source node
+     * @param  targets  the ids of the target nodes (ids below 0 are ignored), or null
+     * @return the number of settled nodes
+     */
+    public int settle(int s, int[] targets) {
+        nextGeneration();
+        toBeVisited.clear();
+        int remaining = Integer.MAX_VALUE;
+        if (targets != null) {
+            if (targetMark == null)
+                targetMark = new int[graph.nrNodes()];
+            remaining = 0;
+            for (int t : targets)
+                if (t >= 0 && targetMark[t] != generation) {
+                    targetMark[t] = generation;
+                    remaining++;
+                }
+        }
+        int visitedNodes = 0;
+
+        distTo[s] = 0.0;
+        parent[s] = -1;
+        mark[s] = generation;
+        toBeVisited.insert(s, 0.0);
+
+        while (!toBeVisited.isEmpty() && remaining > 0) {
+            int v = toBeVisited.delMin();
+            mark[v] = generation + 1;
+            visitedNodes++;
+            if (targets != null && targetMark[v] == generation)
+                remaining--;
+
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {  /* RELAX */
+                int w = graph.target(e);
+                double newDist = distTo[v] + graph.weight(e);
+                if (mark[w] == generation + 1) continue;
+                if (mark[w] == generation && distTo[w] <= newDist) continue;
+                mark[w] = generation;
+                distTo[w] = newDist;
+                parent[w] = v;
+                toBeVisited.insertOrDecrease(w, newDist);
+            }
+        }
+        queueOperations = toBeVisited.operations();
+        return visitedNodes;
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the distance to node {@code v} found by the last {@link #settle}, or
+     *         infinity if it was not settled
+     */
+    public double distance(int v) {
+        return v >= 0 && mark[v] == generation + 1 ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the node before {@code v} on the shortest path found by the last
+     *         {@link #settle}, or -1 for the source; only valid if {@code v} was settled
+     */
+    public int parent(int v) {
+        return parent[v];
+    }
+
+
+    private void nextGeneration() {
+        generation += 2;
+        if (generation < 0) {  // wrapped around after about a billion queries
+            Arrays.fill(mark, 0);
+            if (targetMark != null) Arrays.fill(targetMark, 0);
+            generation = 2;
+        }
+    }
+
+}
@@ -0,0 +1,608 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A contraction hierarchy over a {@link CompactGraph}, for answering many
+ * shortest-path queries on a road network that does not change.
+ *
+ * The preprocessing contracts the nodes one at a time, least important first.
+ * Contracting node {@code v} removes it from the remaining graph, and for every
+ * pair of remaining neighbours {@code u -> v -> x} adds a shortcut {@code u -> x}
+ * unless a local Dijkstra search (the witness search) finds a path from {@code u}
+ * to {@code x} avoiding {@code v} that is at most as long. The importance of a node
+ * is its edge difference (the shortcuts it would add minus the edges it would
+ * remove) plus the number of its neighbours already contracted; it is recomputed
+ * when the node comes first in the queue, and the node is put back if it is no
+ * longer the least important.
+ *
+ * A query is a bidirectional Dijkstra search that only goes upwards in the order:
+ * the forward search from the start over edges to more important nodes, and the
+ * backward search from the goal over edges from more important nodes. Both searches
+ * settle very few nodes, and nodes that can be reached more cheaply from a more
+ * important node are not expanded (stall-on-demand). Every shortcut remembers the
+ * node it bypasses, so the path is unpacked into the original edges.
+ *
+ * The hierarchy can be saved to a file and loaded again for the same graph.
+ */
+public class ContractionHierarchy {
+
+    private static final int MAGIC = 0x43484832;  // "CHH2": the fingerprint covers the edges and weights
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CompactGraph graph;
+    private final int[] rank;         // the contraction order of each node
+    private final int nrShortcuts;
+
+    // The edges going up from each node, in CSR layout as in CompactGraph.
+    // The middle of an edge is the node a shortcut bypasses, or -1 for an original edge.
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upWeights;
+    private final int[] upMiddles;
+
+    // The edges coming down to each node, from more important nodes, stored at the lower node.
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final double[] downWeights;
+    private final int[] downMiddles;
+
+
+    private ContractionHierarchy(CompactGraph graph, int[] rank, int nrShortcuts,
+                                 int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMiddles,
+                                 int[] downOffsets, int[] downSources, double[] downWeights, int[] downMiddles) {
+        this.graph = graph;
+        this.rank = rank;
+        this.nrShortcuts = nrShortcuts;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+    }
+
+
+    /**
+     * Contracts all nodes of the graph.
+     * @param  graph  the graph
+     * @return the contraction hierarchy
+     */
+    public static ContractionHierarchy build(CompactGraph graph) {
+        Contractor contractor = new Contractor(graph);
+        contractor.run();
+
+        int n = graph.nrNodes();
+        int[] upOffsets = new int[n + 1], downOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            EdgeList out = contractor.out[v], in = contractor.in[v];
+            upOffsets[v + 1] = upOffsets[v];
+            for (int i = 0; i < out.size; i++)
+                if (contractor.rank[out.nodes[i]] > contractor.rank[v]) upOffsets[v + 1]++;
+            downOffsets[v + 1] = downOffsets[v];
+            for (int i = 0; i < in.size; i++)
+                if (contractor.rank[in.nodes[i]] > contractor.rank[v]) downOffsets[v + 1]++;
+        }
+        int[] upTargets = new int[upOffsets[n]], upMiddles = new int[upOffsets[n]];
+        double[] upWeights = new double[upOffsets[n]];
+        int[] downSources = new int[downOffsets[n]], downMiddles = new int[downOffsets[n]];
+        double[] downWeights = new double[downOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            EdgeList out = contractor.out[v], in = contractor.in[v];
+            int e = upOffsets[v];
+            for (int i = 0; i < out.size; i++)
+                if (contractor.rank[out.nodes[i]] > contractor.rank[v]) {
+                    upTargets[e] = out.nodes[i];
+                    upWeights[e] = out.weights[i];
+                    upMiddles[e] = out.middles[i];
+                    e++;
+                }
+            e = downOffsets[v];
+            for (int i = 0; i < in.size; i++)
+                if (contractor.rank[in.nodes[i]] > contractor.rank[v]) {
+                    downSources[e] = in.nodes[i];
+                    downWeights[e] = in.weights[i];
+                    downMiddles[e] = in.middles[i];
+                    e++;
+                }
+        }
+        return new ContractionHierarchy(graph, contractor.rank, contractor.shortcuts,
+                                        upOffsets, upTargets, upWeights, upMiddles,
+                                        downOffsets, downSources, downWeights, downMiddles);
+    }
+
+
+    /**
+     * Writes the hierarchy to a file.
+     * @param  file  the file name
+     */
+    public void save(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(graph.nrNodes());
+            out.writeInt(graph.nrEdges());
+            out.writeInt(graph.fingerprint());
+            out.writeInt(nrShortcuts);
+            for (int[] array : new int[][] {rank, upOffsets, upTargets, upMiddles, downOffsets, downSources, downMiddles}) {
+                out.writeInt(array.length);
+                for (int x : array) out.writeInt(x);
+            }
+            for (double[] array : new double[][] {upWeights, downWeights}) {
+                out.writeInt(array.length);
+                for (double x : array) out.writeDouble(x);
+            }
+        }
+    }
+
+
+    /**
+     * Reads a hierarchy file written by {@link #save}.
+     * @param  graph  the graph the hierarchy was built for
+     * @param  file   the file name
+     * @return the contraction hierarchy
+     * @throws IOException if the file cannot be read or was built for another graph
+     */
+    public static ContractionHierarchy load(CompactGraph graph, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            if (buffer.getInt() != graph.nrNodes() || buffer.getInt() != graph.nrEdges() || buffer.getInt() != graph.fingerprint())
+                throw new IOException("Contraction hierarchy " + file + " is for another graph");
+            int nrShortcuts = buffer.getInt();
+            int[][] ints = new int[7][];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = new int[buffer.getInt()];
+                buffer.asIntBuffer().get(ints[i]);
+                buffer.position(buffer.position() + 4 * ints[i].length);
+            }
+            double[][] doubles = new double[2][];
+            for (int i = 0; i < doubles.length; i++) {
+                doubles[i] = new double[buffer.getInt()];
+                buffer.asDoubleBuffer().get(doubles[i]);
+                buffer.position(buffer.position() + 8 * doubles[i].length);
+            }
+            return new ContractionHierarchy(graph, ints[0], nrShortcuts,
+                                            ints[1], ints[2], doubles[0], ints[3],
+                                            ints[4], ints[5], doubles[1], ints[6]);
+        }
+    }
+
+
+    /**
+     * Loads the hierarchy from {@code file} if it exists and belongs to the graph,
+     * and otherwise builds it and saves it there.
+     * @param  graph  the graph
+     * @param  file   the file name
+     * @return the contraction hierarchy
+     */
+    public static ContractionHierarchy loadOrBuild(CompactGraph graph, String file) throws IOException {
+        if (Files.exists(Paths.get(file))) {
+            try {
+                return load(graph, file);
+            } catch (IOException | BufferUnderflowException e) {
+                // stale or broken file: build it again
+            }
+        }
+        ContractionHierarchy hierarchy = build(graph);
+        hierarchy.save(file);
+        return hierarchy;
+    }
+
+
+    /**
+     * @return the graph this hierarchy was built for
+     */
+    public CompactGraph graph() {
+        return graph;
+    }
+
+
+    /**
+     * @return the number of shortcut edges added by the contraction
+     */
+    public int nrShortcuts() {
+        return nrShortcuts;
+    }
+
+
+    /**
+     * The outcome of a query: the path is listed from the goal back to the start,
+     * excluding the start, like in {@link PathFinder.Result}.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final double cost;
+        public final List<String> path;
+        public final int visitedNodes;
+
+        Solution(boolean success, double cost, List<String> path, int visitedNodes) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+        }
+    }
+
+
+    /**
+     * Finds a shortest path with an upward bidirectional search.
+     * @param  start  the name of the start node
+     * @param  goal   the name of the goal node
+     * @return the solution
+     */
+    public Solution search(String start, String goal) {
+        int s = graph.id(start), t = graph.id(goal);
+        if (s < 0 || t < 0)
+            return new Solution(false, -1, null, 0);
+
+        int n = graph.nrNodes();
+        double[][] distTo = new double[2][n];
+        int[][] parent = new int[2][n];       // the previous node on the way from the start (or to the goal)
+        int[][] parentEdge = new int[2][n];   // the edge from (or to) the parent
+        Arrays.fill(distTo[0], Double.POSITIVE_INFINITY);
+        Arrays.fill(distTo[1], Double.POSITIVE_INFINITY);
+        IndexedMinPQ[] toBeVisited = {new IndexedMinPQ(64), new IndexedMinPQ(64)};
+        distTo[0][s] = 0.0;
+        distTo[1][t] = 0.0;
+        parent[0][s] = parent[1][t] = -1;
+        toBeVisited[0].insert(s, 0.0);
+        toBeVisited[1].insert(t, 0.0);
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        int visitedNodes = 0;
+
+        while (!toBeVisited[0].isEmpty() || !toBeVisited[1].isEmpty()) {
+            int side = toBeVisited[1].isEmpty()
+                || (!toBeVisited[0].isEmpty() && toBeVisited[0].minKey() <= toBeVisited[1].minKey()) ? 0 : 1;
+            if (toBeVisited[side].minKey() >= best) {
+                toBeVisited[side].clear();
+                continue;
+            }
+            int v = toBeVisited[side].delMin();
+            visitedNodes++;
+            double dist = distTo[side][v];
+            if (dist + distTo[1 - side][v] < best) {
+                best = dist + distTo[1 - side][v];
+                meet = v;
+            }
+
+            if (side == 0) {
+                if (stalled(v, dist, distTo[0], downOffsets, downSources, downWeights)) continue;
+                for (int e = upOffsets[v]; e < upOffsets[v + 1]; e++)  /* RELAX */
+                    relax(v, e, upTargets[e], dist + upWeights[e], distTo[0], parent[0], parentEdge[0], toBeVisited[0]);
+            } else {
+                if (stalled(v, dist, distTo[1], upOffsets, upTargets, upWeights)) continue;
+                for (int e = downOffsets[v]; e < downOffsets[v + 1]; e++)  /* RELAX */
+                    relax(v, e, downSources[e], dist + downWeights[e], distTo[1], parent[1], parentEdge[1], toBeVisited[1]);
+            }
+        }
+        if (meet < 0)
+            return new Solution(false, -1, null, visitedNodes);
+
+        // The nodes from the start to the goal, with every shortcut unpacked
+        List<Integer> route = new ArrayList<>();
+        List<Integer> edges = new ArrayList<>();
+        for (int v = meet; parent[0][v] != -1; v = parent[0][v])
+            edges.add(parentEdge[0][v]);
+        route.add(s);
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            int e = edges.get(i);
+            unpack(route.get(route.size() - 1), upTargets[e], upMiddles[e], route);
+        }
+        for (int v = meet; parent[1][v] != -1; v = parent[1][v]) {
+            int e = parentEdge[1][v];
+            unpack(v, parent[1][v], downMiddles[e], route);
+        }
+
+        List<String> path = new ArrayList<>();
+        for (int i = route.size() - 1; i > 0; i--)
+            path.add(graph.name(route.get(i)));
+        return new Solution(true, best, path, visitedNodes);
+    }
+
+
+    private static void relax(int v, int e, int w, double newDist, double[] distTo, int[] parent, int[] parentEdge, IndexedMinPQ toBeVisited) {
+        if (distTo[w] <= newDist) return;
+        distTo[w] = newDist;
+        parent[w] = v;
+        parentEdge[w] = e;
+        toBeVisited.insertOrDecrease(w, newDist);
+    }
+
+
+    /**
+     * @return true if node {@code v} can be reached more cheaply through a more important
+     *         node, in which case it is not on a shortest path and need not be expanded
+     */
+    private static boolean stalled(int v, double dist, double[] distTo, int[] offsets, int[] nodes, double[] weights) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++)
+            if (distTo[nodes[e]] + weights[e] < dist) return true;
+        return false;
+    }
+
+
+    /**
+     * Appends the nodes of the edge {@code u -> x} to {@code route}, excluding {@code u},
+     * replacing a shortcut by the two edges it consists of.
+     */
+    private void unpack(int u, int x, int middle, List<Integer> route) {
+        if (middle < 0) {
+            route.add(x);
+            return;
+        }
+        unpack(u, middle, middle(u, middle), route);
+        unpack(middle, x, middle(middle, x), route);
+    }
+
+
+    /**
+     * @return the middle node of the edge {@code u -> x} in the hierarchy
+     */
+    private int middle(int u, int x) {
+        if (rank[u] < rank[x]) {
+            for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++)
+                if (upTargets[e] == x) return upMiddles[e];
+        } else {
+            for (int e = downOffsets[x]; e < downOffsets[x + 1]; e++)
+                if (downSources[e] == u) return downMiddles[e];
+        }
+        throw new IllegalStateException("Missing edge " + graph.name(u) + " -> " + graph.name(x));
+    }
+
+
+    /**
+     * @return a string representation of the hierarchy
+     */
+    public String toString() {
+        return "Contraction hierarchy with " + graph.nrNodes() + " nodes, " + graph.nrEdges()
+            + " edges, " + nrShortcuts + " shortcuts";
+    }
+
+
+    /**
+     * Growable parallel arrays with the edges of one node during the contraction.
+     */
+    private static class EdgeList {
+        int[] nodes = new int[4];
+        double[] weights = new double[4];
+        int[] middles = new int[4];
+        int size;
+
+        void add(int node, double weight, int middle) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+                middles = Arrays.copyOf(middles, 2 * size);
+            }
+            nodes[size] = node;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        int indexOf(int node) {
+            for (int i = 0; i < size; i++)
+                if (nodes[i] == node) return i;
+            return -1;
+        }
+    }
+
+
+    /**
+     * The state of the preprocessing: the outgoing and incoming edges of every node,
+     * including the shortcuts added so far, and the workspace of the witness search.
+     */
+    private static class Contractor {
+        final int n;
+        final EdgeList[] out, in;
+        final boolean[] contracted;
+        final int[] contractedNeighbours;
+        final int[] rank;
+        int shortcuts;
+
+        final double[] witnessDist;
+        final boolean[] isTarget;
+        final int[] touched;
+        int nrTouched;
+        final IndexedMinPQ witnessQueue;
+
+        Contractor(CompactGraph graph) {
+            n = graph.nrNodes();
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            for (int v = 0; v < n; v++)
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++)
+                    if (graph.target(e) != v)
+                        addOrImprove(v, graph.target(e), graph.weight(e), -1);
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            rank = new int[n];
+            witnessDist = new double[n];
+            isTarget = new boolean[n];
+            Arrays.fill(witnessDist, Double.POSITIVE_INFINITY);
+            touched = new int[n];
+            witnessQueue = new IndexedMinPQ(n);
+        }
+
+        /**
+         * Adds the edge {@code u -> x}, or lowers the weight of an existing one.
+         */
+        void addOrImprove(int u, int x, double weight, int middle) {
+            int i = out[u].indexOf(x);
+            if (i < 0) {
+                out[u].add(x, weight, middle);
+                in[x].add(u, weight, middle);
+            } else if (weight < out[u].weights[i]) {
+                int j = in[x].indexOf(u);
+                out[u].weights[i] = in[x].weights[j] = weight;
+                out[u].middles[i] = in[x].middles[j] = middle;
+            }
+        }
+
+        void run() {
+            IndexedMinPQ queue = new IndexedMinPQ(n);
+            for (int v = 0; v < n; v++)
+                queue.insert(v, priority(v));
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.delMin();
+                double priority = priority(v);
+                if (!queue.isEmpty() && priority > queue.minKey()) {  /* lazy update */
+                    queue.insert(v, priority);
+                    continue;
+                }
+                shortcuts += contract(v, false);
+                contracted[v] = true;
+                rank[v] = order++;
+                for (int i = 0; i < out[v].size; i++) contractedNeighbours[out[v].nodes[i]]++;
+                for (int i = 0; i < in[v].size; i++) contractedNeighbours[in[v].nodes[i]]++;
+            }
+        }
+
+        double priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < out[v].size; i++) if (!contracted[out[v].nodes[i]]) removed++;
+            for (int i = 0; i < in[v].size; i++) if (!contracted[in[v].nodes[i]]) removed++;
+            return contract(v, true) - removed + contractedNeighbours[v];
+        }
+
+        /**
+         * Finds the shortcuts needed when contracting {@code v}, and adds them unless
+         * {@code simulate} is set.
+         * @return the number of shortcuts
+         */
+        int contract(int v, boolean simulate) {
+            int count = 0;
+            EdgeList into = in[v], from = out[v];
+            for (int i = 0; i < into.size; i++) {
+                int u = into.nodes[i];
+                if (contracted[u]) continue;
+                double maxOut = -1;
+                int targets = 0;
+                for (int j = 0; j < from.size; j++)
+                    if (!contracted[from.nodes[j]] && from.nodes[j] != u) {
+                        maxOut = Math.max(maxOut, from.weights[j]);
+                        isTarget[from.nodes[j]] = true;
+                        targets++;
+                    }
+                if (maxOut < 0) continue;
+
+                witnessSearch(u, v, into.weights[i] + maxOut, targets);
+                for (int j = 0; j < from.size; j++)
+                    isTarget[from.nodes[j]] = false;
+                for (int j = 0; j < from.size; j++) {
+                    int x = from.nodes[j];
+                    if (contracted[x] || x == u) continue;
+                    double through = into.weights[i] + from.weights[j];
+                    if (witnessDist[x] <= through) continue;
+                    count++;
+                    if (!simulate) addOrImprove(u, x, through, v);
+                }
+                for (int k = 0; k < nrTouched; k++)
+                    witnessDist[touched[k]] = Double.POSITIVE_INFINITY;
+                nrTouched = 0;
+            }
+            return count;
+        }
+
+        /**
+         * Dijkstra's algorithm from {@code source} in the remaining graph without {@code avoid},
+         * stopping at distance {@code limit}, when all {@code targets} marked in {@code isTarget}
+         * are settled, or after a fixed number of settled nodes. The distances found are left
+         * in {@code witnessDist}, which is an upper bound elsewhere.
+         */
+        void witnessSearch(int source, int avoid, double limit, int targets) {
+            witnessQueue.clear();
+            witnessDist[source] = 0.0;
+            touched[nrTouched++] = source;
+            witnessQueue.insert(source, 0.0);
+            int settled = 0;
+            while (!witnessQueue.isEmpty() && witnessQueue.minKey() <= limit && settled < WITNESS_SETTLE_LIMIT) {
+                int v = witnessQueue.delMin();
+                settled++;
+                if (isTarget[v] && --targets == 0) break;
+                EdgeList edges = out[v];
+                for (int i = 0; i < edges.size; i++) {
+                    int w = edges.nodes[i];
+                    if (contracted[w] || w == avoid) continue;
+                    double newDist = witnessDist[v] + edges.weights[i];
+                    if (newDist >= witnessDist[w]) continue;
+                    if (witnessDist[w] == Double.POSITIVE_INFINITY)
+                        touched[nrTouched++] = w;
+                    witnessDist[w] = newDist;
+                    witnessQueue.insertOrDecrease(w, newDist);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Builds (or loads) the hierarchy of a graph, and compares random queries with Dijkstra's algorithm
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            AdjacencyGraph graph = new AdjacencyGraph(args[0]);
+            CompactGraph compact = graph.freeze();
+            long time = System.nanoTime();
+            ContractionHierarchy hierarchy = args.length > 1 ? loadOrBuild(compact, args[1]) : build(compact);
+            System.out.println(hierarchy);
+            System.out.println(String.format("Ready in %.2f seconds", (System.nanoTime() - time) / 1e9));
+
+            int queries = args.length > 2 ? Integer.valueOf(args[2]) : 1000;
+            PathFinder<String> finder = new PathFinder<>(graph);
+            Random random = new Random(42);
+            long dijkstraTime = 0, hierarchyTime = 0, dijkstraVisited = 0, hierarchyVisited = 0;
+            int errors = 0;
+            for (int i = 0; i < queries; i++) {
+                String start = compact.name(random.nextInt(compact.nrNodes()));
+                String goal = compact.name(random.nextInt(compact.nrNodes()));
+                time = System.nanoTime();
+                PathFinder<String>.Result<String> expected = finder.search("dijkstra", start, goal);
+                dijkstraTime += System.nanoTime() - time;
+                time = System.nanoTime();
+                Solution solution = hierarchy.search(start, goal);
+                hierarchyTime += System.nanoTime() - time;
+                dijkstraVisited += expected.visitedNodes;
+                hierarchyVisited += solution.visitedNodes;
+                if (expected.success != solution.success || (solution.success && Math.abs(expected.cost - solution.cost) > 1e-9)) {
+                    errors++;
+                    System.out.println("Different result for " + start + " -> " + goal + ": "
+                                       + expected.cost + " and " + solution.cost);
+                }
+            }
+            System.out.println(String.format("%d queries, %d different results", queries, errors));
+            System.out.println(String.format("  dijkstra:  %8.1f settled  %8.3f ms/query", (double) dijkstraVisited / queries, dijkstraTime / 1e6 / queries));
+            System.out.println(String.format("  hierarchy: %8.1f settled  %8.3f ms/query", (double) hierarchyVisited / queries, hierarchyTime / 1e6 / queries));
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java ContractionHierarchy graph-file [hierarchy-file] [nr-queries]");
+            System.exit(1);
+        }
+    }
+
+}
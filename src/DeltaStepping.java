@@ -0,0 +1,269 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Single-source shortest paths over a {@link CompactGraph} with the delta-stepping
+ * algorithm of Meyer and Sanders, relaxing edges in parallel on a {@link ForkJoinPool}.
+ *
+ * The nodes are kept in buckets of width {@code delta} by their tentative distance,
+ * in a {@link BucketQueue}. The lowest non-empty bucket is emptied in phases: all its
+ * nodes relax their light edges (weight at most delta) in parallel, which can put nodes
+ * back into the same bucket for the next phase. When the bucket stays empty its nodes
+ * are settled, and they relax their heavy edges in parallel, which can only reach later
+ * buckets. A tiny delta gives Dijkstra's algorithm and an infinite one Bellman-Ford;
+ * the default is the average edge weight.
+ *
+ * The threads meet in the distance array, which holds the bits of the distances
+ * ({@code Double.doubleToLongBits} keeps the order of non-negative doubles) and is
+ * lowered with compare-and-set. The improved nodes are appended to a shared array and
+ * put into their buckets between the phases by the calling thread. Once all distances
+ * are final, the parent of every node is found from an edge whose weight is exactly
+ * the difference of the distances (so edges of weight 0 could make the parents go in a
+ * circle). Phases with few nodes are run on the calling thread.
+ *
+ * An instance keeps its arrays for the next source, and must only be used by one
+ * thread at a time (which then uses the pool).
+ */
+public class DeltaStepping {
+
+    private static final int CHUNK = 256;  // the most nodes for one task; smaller phases are not forked
+    private static final int LIGHT = 0, HEAVY = 1, PARENTS = 2;  // the kinds of relaxation
+
+    private final CompactGraph graph;
+    private final ForkJoinPool pool;
+    private final double delta;
+    private final AtomicLongArray distTo;
+    private final int[] parent;
+    private final int[] mark;       // the phase in which a node was last put in the frontier
+    private final int[] settled;    // the settled nodes in the order of their buckets
+    private final boolean[] isSettled;
+    private final int[] frontier;
+    private final int[] changed;    // the nodes improved in the current phase, with duplicates
+    private final AtomicInteger nrChanged = new AtomicInteger();
+    private final BucketQueue buckets = new BucketQueue();
+    private int phase;
+    private int nrSettled;
+    private int source = -1;
+
+
+    /**
+     * @param  graph  the graph to search
+     * @param  pool   the pool that relaxes the edges
+     */
+    public DeltaStepping(CompactGraph graph, ForkJoinPool pool) {
+        this(graph, pool, averageWeight(graph));
+    }
+
+
+    /**
+     * @param  graph  the graph to search
+     * @param  pool   the pool that relaxes the edges
+     * @param  delta  the width of the buckets, larger than 0
+     */
+    public DeltaStepping(CompactGraph graph, ForkJoinPool pool, double delta) {
+        if (!(delta > 0))
+            throw new IllegalArgumentException("delta must be larger than 0, not " + delta);
+        this.graph = graph;
+        this.pool = pool;
+        this.delta = delta;
+        int n = graph.nrNodes();
+        distTo = new AtomicLongArray(n);
+        parent = new int[n];
+        mark = new int[n];
+        settled = new int[n];
+        isSettled = new boolean[n];
+        frontier = new int[n];
+        changed = new int[Math.max(1, graph.nrEdges())];
+    }
+
+
+    private static double averageWeight(CompactGraph graph) {
+        double total = 0;
+        for (int e = 0; e < graph.nrEdges(); e++)
+            total += graph.weight(e);
+        return graph.nrEdges() == 0 || total == 0 ? 1.0 : total / graph.nrEdges();
+    }
+
+
+    /**
+     * @return the graph this search is for
+     */
+    public CompactGraph graph() {
+        return graph;
+    }
+
+
+    /**
+     * @return the pool that relaxes the edges
+     */
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+
+    /**
+     * @return the width of the buckets
+     */
+    public double delta() {
+        return delta;
+    }
+
+
+    /**
+     * Computes the distances from {@code s} to every node, and a shortest-path tree.
+     * They can then be read with {@link #distance} and {@link #parent}, until the next run.
+     * @param  s  the id of the source node
+     * @return the number of nodes reached from {@code s}, including itself
+     */
+    public int run(int s) {
+        long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int v = 0; v < graph.nrNodes(); v++)
+            distTo.set(v, infinity);
+        Arrays.fill(parent, -1);
+        Arrays.fill(isSettled, false);
+        buckets.clear();
+        nrSettled = 0;
+        source = s;
+
+        distTo.set(s, Double.doubleToLongBits(0.0));
+        buckets.insert(s, 0);
+        while (!buckets.isEmpty()) {
+            int bucket = buckets.minKey();
+            int first = nrSettled;
+            while (!buckets.isEmpty() && buckets.minKey() == bucket) {
+                if (++phase == 0) {  // wrapped around
+                    Arrays.fill(mark, 0);
+                    phase = 1;
+                }
+                int size = 0;
+                while (!buckets.isEmpty() && buckets.minKey() == bucket) {
+                    int v = buckets.delMin();
+                    if (mark[v] == phase || bucket(distance(v)) != bucket) continue;  // a duplicate or outdated
+                    mark[v] = phase;
+                    frontier[size++] = v;
+                    if (!isSettled[v]) {
+                        isSettled[v] = true;
+                        settled[nrSettled++] = v;
+                    }
+                }
+                relax(new Relax(frontier, 0, size, LIGHT));
+            }
+            relax(new Relax(settled, first, nrSettled, HEAVY));
+        }
+        relax(new Relax(settled, 0, nrSettled, PARENTS));
+        return nrSettled;
+    }
+
+
+    /**
+     * Relaxes edges of a range of nodes: the light or heavy edges, or in the end the
+     * tight edges, which set the parents.
+     */
+    private class Relax extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int[] nodes;
+        final int from, to, kind;
+
+        Relax(int[] nodes, int from, int to, int kind) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.kind = kind;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Relax(nodes, from, mid, kind), new Relax(nodes, mid, to, kind));
+                return;
+            }
+            for (int k = from; k < to; k++) {
+                int v = nodes[k];
+                double dist = distance(v);
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    int w = graph.target(e);
+                    double weight = graph.weight(e);
+                    if (kind == PARENTS) {
+                        if (w != source && dist + weight == distance(w)) parent[w] = v;
+                    } else if ((weight <= delta) == (kind == LIGHT)) {
+                        lower(w, dist + weight);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /** Runs a relaxation task, on the pool unless it is small, and then buckets the improved nodes. */
+    private void relax(Relax task) {
+        if (task.to - task.from > CHUNK)
+            pool.invoke(task);
+        else
+            task.compute();
+        int count = nrChanged.getAndSet(0);
+        for (int k = 0; k < count; k++)
+            buckets.insert(changed[k], bucket(distance(changed[k])));
+    }
+
+
+    /** Lowers the distance of {@code w} to {@code dist}, if that is shorter, and records the change. */
+    private void lower(int w, double dist) {
+        long bits = Double.doubleToLongBits(dist);
+        long old;
+        do {
+            old = distTo.get(w);
+            if (old <= bits) return;
+        } while (!distTo.compareAndSet(w, old, bits));
+        changed[nrChanged.getAndIncrement()] = w;
+    }
+
+
+    private int bucket(double dist) {
+        return (int) (dist / delta);
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the distance to node {@code v} found by the last run, or infinity if it was not reached
+     */
+    public double distance(int v) {
+        return Double.longBitsToDouble(distTo.get(v));
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @return the node before {@code v} on a shortest path found by the last run, or -1
+     *         for the source and the nodes that were not reached
+     */
+    public int parent(int v) {
+        return parent[v];
+    }
+
+
+    /**
+     * @return a copy of the distances of the last run, infinity for the nodes not reached
+     */
+    public double[] distances() {
+        double[] distances = new double[graph.nrNodes()];
+        for (int v = 0; v < distances.length; v++)
+            distances[v] = distance(v);
+        return distances;
+    }
+
+
+    /**
+     * @return a copy of the parents of the last run, -1 for the source and the nodes not reached
+     */
+    public int[] parents() {
+        return parent.clone();
+    }
+
+}
@@ -0,0 +1,99 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Measures how {@link DeltaStepping} scales with the number of threads: for a few
+ * random sources of a graph it computes all distances with sequential Dijkstra
+ * ({@link CompactSearch#settle}) and with delta-stepping on pools of 1, 2, 4, ... up
+ * to the given number of threads. It checks that the distances agree and that every
+ * parent is on a shortest path, and reports the average time per source and the
+ * speedup over one thread.
+ */
+public class DeltaSteppingBenchmark {
+
+    private static final int WARMUP = 20;
+
+
+    private static void check(CompactGraph graph, CompactSearch expected, DeltaStepping actual, int s, int threads) {
+        for (int v = 0; v < graph.nrNodes(); v++) {
+            double dist = actual.distance(v);
+            if (Math.abs(dist - expected.distance(v)) > 1e-9 * Math.max(1, dist))
+                throw new AssertionError(threads + " threads, source " + graph.name(s) + ": distance to " + graph.name(v)
+                                         + " is " + dist + ", expected " + expected.distance(v));
+            int p = actual.parent(v);
+            if (v == s || dist == Double.POSITIVE_INFINITY) continue;
+            boolean tight = false;
+            for (int e = p < 0 ? 0 : graph.edgeStart(p); p >= 0 && e < graph.edgeEnd(p); e++)
+                if (graph.target(e) == v && actual.distance(p) + graph.weight(e) == dist) tight = true;
+            if (!tight)
+                throw new AssertionError(threads + " threads: the parent of " + graph.name(v) + " is not on a shortest path");
+        }
+    }
+
+
+    private static void benchmark(String file, int sources, int maxThreads) throws Exception {
+        CompactGraph graph = GraphSnapshot.adjacencyGraph(file, file + ".snap").freeze();
+        Random random = new Random(1);
+        int[] source = new int[sources];
+        for (int i = 0; i < sources; i++)
+            source[i] = random.nextInt(graph.nrNodes());
+
+        CompactSearch dijkstra = new CompactSearch(graph);
+        for (int i = 0; i < WARMUP; i++)
+            dijkstra.settle(source[i % sources], null);
+        long time = System.nanoTime();
+        for (int s : source)
+            dijkstra.settle(s, null);
+        double sequential = (System.nanoTime() - time) / 1e6 / sources;
+        System.out.println(String.format("%s: %d nodes, %d edges, %d sources", file, graph.nrNodes(), graph.nrEdges(), sources));
+        System.out.println(String.format("  %-22s %9.2f ms/source", "sequential Dijkstra", sequential));
+
+        ForkJoinPool warmup = new ForkJoinPool(maxThreads);  // so that the first pool is not timed before the JIT is done
+        DeltaStepping warm = new DeltaStepping(graph, warmup);
+        for (int i = 0; i < 5 * WARMUP; i++)
+            warm.run(source[i % sources]);
+        warmup.shutdown();
+
+        double single = 0;
+        for (int threads = 1; ; threads = Math.min(2 * threads, maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            DeltaStepping delta = new DeltaStepping(graph, pool);
+            for (int i = 0; i < WARMUP; i++)
+                delta.run(source[i % sources]);
+            long total = 0;
+            for (int s : source) {
+                time = System.nanoTime();
+                delta.run(s);
+                total += System.nanoTime() - time;
+                dijkstra.settle(s, null);
+                check(graph, dijkstra, delta, s, threads);
+            }
+            pool.shutdown();
+            double average = total / 1e6 / sources;
+            if (threads == 1) single = average;
+            System.out.println(String.format("  delta-stepping %2d thr. %9.2f ms/source  speedup %5.2f  (delta %.1f)",
+                                             threads, average, single / average, delta.delta()));
+            if (threads == maxThreads) break;
+        }
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String[] files = args.length > 0 ? args[0].split(",")
+                : new String[] {"src/graphs/AdjacencyGraph/citygraph-EU.txt", "src/graphs/AdjacencyGraph/wikipedia-graph.txt"};
+            int sources = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+            int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+            for (String file : files)
+                benchmark(file, sources, maxThreads);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java DeltaSteppingBenchmark [graph-files] [sources] [max-threads]");
+            System.exit(1);
+        }
+    }
+
+}
@@ -1,5 +1,5 @@
-
 import java.util.List;
+import java.util.ArrayList;
 
 
 public interface DirectedGraph<V> {
@@ -8,4 +8,67 @@ public interface DirectedGraph<V> {
 
     public double guessCost(V v, V w);
 
+    /**
+     * Calls {@code action} once for every outgoing edge of {@code v}, in the same order
+     * as {@code outgoingEdges}. The default implementation goes through
+     * {@code outgoingEdges}; graphs override it to avoid building the list and edges.
+     * @param  v       the node
+     * @param  action  the consumer of the edges
+     */
+    public default void forEachOutgoing(V v, EdgeConsumer<V> action) {
+        for (DirectedEdge<V> edge : outgoingEdges(v))
+            action.accept(edge.to(), edge.weight());
+    }
+
+    /**
+     * @return a number that changes whenever nodes or edges are added to the graph, so
+     *         that results computed for the graph can be recognised as outdated; the
+     *         default is for graphs that never change
+     */
+    public default long version() {
+        return 0;
+    }
+
+    /**
+     * @return true if every edge has weight 1, so that a breadth-first search finds the
+     *         shortest paths; the default is false, which promises nothing
+     */
+    public default boolean hasUnitWeights() {
+        return false;
+    }
+
+    /**
+     * @return true if for every edge {@code v -> w} there is an edge {@code w -> v}
+     *         with the same weight, so that the incoming edges of a node are the
+     *         reverses of its outgoing edges
+     */
+    public default boolean isSymmetric() {
+        return false;
+    }
+
+    /**
+     * Calls {@code action} once for every incoming edge of {@code v}, giving the
+     * starting node of the edge and its weight. The default implementation works
+     * for symmetric graphs only; other graphs have to override it.
+     * @param  v       the node
+     * @param  action  the consumer of the edges
+     * @throws UnsupportedOperationException if the graph cannot list incoming edges
+     */
+    public default void forEachIncoming(V v, EdgeConsumer<V> action) {
+        if (!isSymmetric())
+            throw new UnsupportedOperationException(getClass().getName() + " does not support incoming edges");
+        forEachOutgoing(v, action);
+    }
+
+    /**
+     * @param  v  the node
+     * @return the edges ending in node {@code v} as a List
+     * @throws UnsupportedOperationException if the graph cannot list incoming edges
+     */
+    public default List<DirectedEdge<V>> incomingEdges(V v) {
+        List<DirectedEdge<V>> incoming = new ArrayList<>();
+        forEachIncoming(v, (u, weight) -> incoming.add(new DirectedEdge<>(u, v, weight)));
+        return incoming;
+    }
+
 }
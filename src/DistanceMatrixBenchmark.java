@@ -0,0 +1,72 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Computes the distance table between random nodes of a graph in three ways: one
+ * {@code PathFinder.search} per pair on the frozen graph, {@code distanceMatrix} on
+ * the graph before it is frozen (hash maps, one search per source), and
+ * {@code distanceMatrix} on the frozen graph (node ids, one search per source).
+ * It checks that the tables agree and reports the times.
+ */
+public class DistanceMatrixBenchmark {
+
+    private static void check(double[][] expected, double[][] actual, String name) {
+        for (int i = 0; i < expected.length; i++)
+            for (int j = 0; j < expected[i].length; j++)
+                if (Math.abs(expected[i][j] - actual[i][j]) > 1e-6)
+                    throw new AssertionError(name + " [" + i + "][" + j + "]: " + actual[i][j] + ", expected " + expected[i][j]);
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String file = args.length > 0 ? args[0] : "src/graphs/AdjacencyGraph/citygraph-SE.txt";
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+            AdjacencyGraph graph = new AdjacencyGraph(file);
+            Set<String> names = new TreeSet<>();
+            for (DirectedEdge<String> edge : GraphLoader.readEdges(file))
+                names.add(edge.from());
+            List<String> all = new ArrayList<>(names), nodes = new ArrayList<>();
+            Random random = new Random(1);
+            for (int i = 0; i < count; i++)
+                nodes.add(all.get(random.nextInt(all.size())));
+
+            PathFinder<String> finder = new PathFinder<>(graph);
+            long time = System.nanoTime();
+            double[][] hashed = finder.distanceMatrix(nodes, nodes);
+            double hashedTime = (System.nanoTime() - time) / 1e6;
+
+            graph.freeze();
+            double[][] pairwise = new double[count][count];
+            time = System.nanoTime();
+            for (int i = 0; i < count; i++)
+                for (int j = 0; j < count; j++) {
+                    PathFinder<String>.Result<String> result = finder.search("dijkstra", nodes.get(i), nodes.get(j));
+                    pairwise[i][j] = result.success ? result.cost : Double.POSITIVE_INFINITY;
+                }
+            double pairwiseTime = (System.nanoTime() - time) / 1e6;
+
+            finder.distanceMatrix(nodes, nodes);  // warm-up
+            time = System.nanoTime();
+            double[][] compact = finder.distanceMatrix(nodes, nodes);
+            double compactTime = (System.nanoTime() - time) / 1e6;
+
+            check(pairwise, hashed, "distanceMatrix (hash maps)");
+            check(pairwise, compact, "distanceMatrix (node ids)");
+            System.out.println(String.format("%d x %d distance table of %s", count, count, file));
+            System.out.println(String.format("  %-30s %10.1f ms", "search per pair", pairwiseTime));
+            System.out.println(String.format("  %-30s %10.1f ms", "distanceMatrix (hash maps)", hashedTime));
+            System.out.println(String.format("  %-30s %10.1f ms", "distanceMatrix (node ids)", compactTime));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java DistanceMatrixBenchmark [graph-file] [nodes]");
+            System.exit(1);
+        }
+    }
+
+}
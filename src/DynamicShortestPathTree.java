@@ -0,0 +1,214 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.AbstractMap;
+
+
+/**
+ * A shortest-path tree from one source that is repaired after each edge change instead of
+ * being computed again, in the spirit of the dynamic single-source shortest path algorithm
+ * of Ramalingam and Reps.
+ *
+ * After the weight of the edges {@code v -> w} changes (see {@code AdjacencyGraph.updateWeight},
+ * {@code removeEdge} and {@code addEdge}), {@link #edgeChanged} looks at the new cost of
+ * reaching {@code w} through {@code v}:
+ * <ul>
+ * <li>If it is cheaper than the current distance of {@code w}, the improvement is spread
+ *     with Dijkstra's algorithm from {@code w}, which only visits nodes that get closer.</li>
+ * <li>If it is more expensive and {@code v -> w} is a tree edge, the nodes below {@code w}
+ *     in the tree lose their distances. Each of them starts from its best incoming edge from
+ *     a node outside that subtree, and Dijkstra's algorithm within the subtree settles them
+ *     again; the nodes it does not reach can no longer be reached.</li>
+ * <li>Otherwise nothing changes.</li>
+ * </ul>
+ * Either way the work is proportional to the affected nodes and their edges, not to the
+ * graph. The graph must support incoming edges, see {@link DirectedGraph#forEachIncoming}.
+ */
+public class DynamicShortestPathTree<V> {
+
+    private final DirectedGraph<V> graph;
+    private final V source;
+    private final Map<V, Double> distTo = new HashMap<>();
+    private final Map<V, V> parent = new HashMap<>();  // the source has no parent
+    private int affectedNodes;
+
+
+    /**
+     * Computes the shortest-path tree from {@code source} with Dijkstra's algorithm.
+     * @param  graph   the graph
+     * @param  source  the source node
+     */
+    public DynamicShortestPathTree(DirectedGraph<V> graph, V source) {
+        this.graph = graph;
+        this.source = source;
+        distTo.put(source, 0.0);
+        PriorityQueue<Map.Entry<V, Double>> toBeVisited = new PriorityQueue<>(Map.Entry.comparingByValue());
+        toBeVisited.add(new AbstractMap.SimpleEntry<>(source, 0.0));
+        affectedNodes = propagate(toBeVisited, null);
+    }
+
+
+    /**
+     * Repairs the tree after the edges from {@code v} to {@code w} were added, removed or
+     * changed weight. The graph must already have the change.
+     * @param  v  the starting node of the edges
+     * @param  w  the ending node of the edges
+     */
+    public void edgeChanged(V v, V w) {
+        affectedNodes = 0;
+        Double from = distTo.get(v);
+        if (from == null || w.equals(source)) return;  // the change cannot matter
+        double[] weight = {Double.POSITIVE_INFINITY};
+        graph.forEachOutgoing(v, (to, cost) -> {
+            if (to.equals(w)) weight[0] = Math.min(weight[0], cost);
+        });
+        double newDist = from + weight[0];
+        double oldDist = distTo.getOrDefault(w, Double.POSITIVE_INFINITY);
+
+        if (newDist < oldDist) {
+            distTo.put(w, newDist);
+            parent.put(w, v);
+            PriorityQueue<Map.Entry<V, Double>> toBeVisited = new PriorityQueue<>(Map.Entry.comparingByValue());
+            toBeVisited.add(new AbstractMap.SimpleEntry<>(w, newDist));
+            affectedNodes = propagate(toBeVisited, null);
+        } else if (newDist > oldDist && v.equals(parent.get(w))) {
+            repairSubtree(w);
+        }
+    }
+
+
+    /**
+     * Dijkstra's algorithm from the nodes in the queue, which have their distances in
+     * {@code distTo}: only edges that improve a distance are followed, and only into
+     * {@code region} if it is not null.
+     * @return the number of settled nodes
+     */
+    private int propagate(PriorityQueue<Map.Entry<V, Double>> toBeVisited, Set<V> region) {
+        Set<V> settled = new HashSet<>();
+        while (!toBeVisited.isEmpty()) {
+            Map.Entry<V, Double> entry = toBeVisited.remove();
+            V v = entry.getKey();
+            double dist = entry.getValue();
+            if (dist > distTo.get(v) || !settled.add(v)) continue;  // an outdated entry
+            graph.forEachOutgoing(v, (w, weight) -> {  /* RELAX */
+                if (region != null && !region.contains(w)) return;
+                double newDist = dist + weight;
+                if (newDist >= distTo.getOrDefault(w, Double.POSITIVE_INFINITY)) return;
+                distTo.put(w, newDist);
+                parent.put(w, v);
+                toBeVisited.add(new AbstractMap.SimpleEntry<>(w, newDist));
+            });
+        }
+        return settled.size();
+    }
+
+
+    /**
+     * Settles the subtree below {@code root} again, after the edge from its parent got
+     * more expensive or was removed.
+     */
+    private void repairSubtree(V root) {
+        // The subtree: the nodes whose path in the tree goes through the root
+        List<V> subtree = new ArrayList<>();
+        Set<V> region = new HashSet<>();
+        subtree.add(root);
+        region.add(root);
+        for (int i = 0; i < subtree.size(); i++) {
+            V v = subtree.get(i);
+            graph.forEachOutgoing(v, (w, weight) -> {
+                if (v.equals(parent.get(w)) && region.add(w))
+                    subtree.add(w);
+            });
+        }
+        for (V v : subtree) {
+            distTo.remove(v);
+            parent.remove(v);
+        }
+
+        // Every node of the subtree starts from its best edge from outside the subtree
+        PriorityQueue<Map.Entry<V, Double>> toBeVisited = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (V w : subtree) {
+            graph.forEachIncoming(w, (v, weight) -> {
+                Double dist = distTo.get(v);
+                if (dist == null || region.contains(v)) return;
+                if (dist + weight < distTo.getOrDefault(w, Double.POSITIVE_INFINITY)) {
+                    distTo.put(w, dist + weight);
+                    parent.put(w, v);
+                }
+            });
+            Double dist = distTo.get(w);
+            if (dist != null)
+                toBeVisited.add(new AbstractMap.SimpleEntry<>(w, dist));
+        }
+        propagate(toBeVisited, region);
+        affectedNodes = subtree.size();
+    }
+
+
+    /**
+     * @return the source node
+     */
+    public V source() {
+        return source;
+    }
+
+
+    /**
+     * @return the number of nodes reached from the source, including the source
+     */
+    public int size() {
+        return distTo.size();
+    }
+
+
+    /**
+     * @return the number of nodes whose distance was settled again by the last change
+     *         (or by the first computation)
+     */
+    public int affectedNodes() {
+        return affectedNodes;
+    }
+
+
+    /**
+     * @param  v  a node
+     * @return the cost of the shortest path from the source to {@code v}, or infinity if there is none
+     */
+    public double distanceTo(V v) {
+        return distTo.getOrDefault(v, Double.POSITIVE_INFINITY);
+    }
+
+
+    /**
+     * @param  v  a node reached from the source
+     * @return the shortest path from the goal {@code v} back to the source, excluding the
+     *         source, like in {@link PathFinder.Result}
+     */
+    public List<V> pathTo(V v) {
+        List<V> path = new ArrayList<>();
+        for (V node = v; !node.equals(source); node = parent.get(node))
+            path.add(node);
+        return path;
+    }
+
+
+    /**
+     * @return a copy of the current tree
+     */
+    public ShortestPathTree<V> toTree() {
+        return new ShortestPathTree<>(source, new HashMap<>(distTo), new HashMap<>(parent));
+    }
+
+
+    /**
+     * @return a string representation of the tree
+     */
+    public String toString() {
+        return "Dynamic shortest-path tree from " + source + " reaching " + size() + " nodes";
+    }
+
+}
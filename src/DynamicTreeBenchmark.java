@@ -0,0 +1,84 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Random;
+
+
+/**
+ * Applies random edge weight changes (and a few removals) to a graph, and after each
+ * one compares repairing a {@link DynamicShortestPathTree} with computing the
+ * shortest-path tree again from scratch. It checks that both give the same distance
+ * to every node and reports the average times and affected nodes.
+ */
+public class DynamicTreeBenchmark {
+
+    public static void main(String[] args) {
+        try {
+            String file = args.length > 0 ? args[0] : "src/graphs/AdjacencyGraph/citygraph-DE.txt";
+            int changes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+            List<DirectedEdge<String>> edges = GraphLoader.readEdges(file);
+            Set<String> names = new TreeSet<>();
+            for (DirectedEdge<String> edge : edges) {
+                names.add(edge.from());
+                names.add(edge.to());
+            }
+            AdjacencyGraph graph = new AdjacencyGraph(file);
+            PathFinder<String> finder = new PathFinder<>(graph);
+            Random random = new Random(1);
+            String source = new ArrayList<>(names).get(random.nextInt(names.size()));
+            DynamicShortestPathTree<String> tree = new DynamicShortestPathTree<>(graph, source);
+
+            // warm-up
+            for (int i = 0; i < 20; i++)
+                finder.shortestPathTree(source, Integer.MAX_VALUE);
+
+            long repairTime = 0, recomputeTime = 0, affected = 0;
+            int removed = 0, untouched = 0;
+            for (int i = 0; i < changes; i++) {
+                DirectedEdge<String> edge = edges.get(random.nextInt(edges.size()));
+                double weight = -1;
+                for (DirectedEdge<String> e : graph.outgoingEdges(edge.from()))
+                    if (e.to().equals(edge.to())) weight = e.weight();
+                if (weight < 0) {  // removed before
+                    i--;
+                    continue;
+                }
+                if (random.nextInt(20) == 0) {
+                    graph.removeEdge(edge.from(), edge.to());
+                    removed++;
+                } else {
+                    graph.updateWeight(edge.from(), edge.to(), weight * (0.5 + 1.5 * random.nextDouble()));
+                }
+
+                long time = System.nanoTime();
+                tree.edgeChanged(edge.from(), edge.to());
+                repairTime += System.nanoTime() - time;
+                affected += tree.affectedNodes();
+                if (tree.affectedNodes() == 0) untouched++;
+
+                time = System.nanoTime();
+                ShortestPathTree<String> expected = finder.shortestPathTree(source, Integer.MAX_VALUE);
+                recomputeTime += System.nanoTime() - time;
+
+                if (expected.size() != tree.size())
+                    throw new AssertionError("change " + i + ": " + tree.size() + " nodes reached, expected " + expected.size());
+                for (String v : names)
+                    if (Math.abs(expected.distanceTo(v) - tree.distanceTo(v)) > 1e-6)
+                        throw new AssertionError("change " + i + ": distance to " + v + " is " + tree.distanceTo(v)
+                                                 + ", expected " + expected.distanceTo(v));
+            }
+            System.out.println(String.format("%s, source %s: %d changes (%d removals), %d did not affect the tree",
+                                             file, source, changes, removed, untouched));
+            System.out.println(String.format("  repair     %8.1f us/change, %.1f affected nodes on average",
+                                             repairTime / 1e3 / changes, (double) affected / changes));
+            System.out.println(String.format("  recompute  %8.1f us/change, %d nodes", recomputeTime / 1e3 / changes, tree.size()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java DynamicTreeBenchmark [graph-file] [changes]");
+            System.exit(1);
+        }
+    }
+
+}
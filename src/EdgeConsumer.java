@@ -0,0 +1,12 @@
+
+/**
+ * Receives the outgoing edges of a node one at a time, see
+ * {@link DirectedGraph#forEachOutgoing}. The edge is given as its ending node
+ * and a primitive weight, so no {@code DirectedEdge} has to be created.
+ */
+@FunctionalInterface
+public interface EdgeConsumer<V> {
+
+    public void accept(V to, double weight);
+
+}
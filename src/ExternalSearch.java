@@ -0,0 +1,408 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/**
+ * Breadth-first search with the layers on disk, for state spaces that are too large for
+ * the maps or arrays of an in-memory search, such as all 9!/2 reachable states of the
+ * 3x3 {@link NPuzzle} or large parts of the 4x4. The nodes are written as records of a
+ * {@link StateCodec}, and the graph must have unit weights.
+ *
+ * Every layer (the nodes at one distance from the start) is a file of records in
+ * increasing order, each stored as the variable-length difference to the one before
+ * (7 bits per byte), which for the NPuzzle takes a few bytes per state. To expand a
+ * layer, its file is read one record at a time and the successors are collected in a
+ * batch; a full batch is sorted and written as a run in the same format. Duplicates are
+ * removed later, when the runs are merged into the next layer: a record is dropped if
+ * it was already written, or if it is in one of the earlier layers, whose files are
+ * merged in as well. For a {@link DirectedGraph#isSymmetric symmetric} graph the
+ * successors of a layer can only be in the layer before, the layer itself or the next,
+ * so only those two are merged in; other graphs need all earlier layers.
+ *
+ * So the memory holds one batch and a buffer per open file, whatever the size of the
+ * layers. The path to the goal is found afterwards by going back through the layers: a
+ * node before the current one on a shortest path is an incoming neighbour of it that is
+ * in the previous layer file (see {@link DirectedGraph#forEachIncoming}).
+ */
+public class ExternalSearch<V> {
+
+    private static final int MAX_FAN_IN = 64;   // the most runs merged at once
+    private static final int BUFFER = 1 << 16;  // the bytes of a file buffer
+
+    private final DirectedGraph<V> graph;
+    private final StateCodec<V> codec;
+    private final Path directory;
+    private final long[] batch;
+    private int batchSize;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();  // every file written, to be deleted
+    private long bytesWritten;
+    private boolean mergedGoal;
+    private int maxDepth = Integer.MAX_VALUE;
+
+
+    /**
+     * @param  graph      the graph, with unit weights
+     * @param  codec      the records of the nodes
+     * @param  directory  where the layer files are written; it is created if needed
+     * @param  batch      the number of records sorted in memory before they are written as a run
+     * @throws IllegalArgumentException if the graph does not have unit weights
+     */
+    public ExternalSearch(DirectedGraph<V> graph, StateCodec<V> codec, Path directory, int batch) {
+        if (!graph.hasUnitWeights())
+            throw new IllegalArgumentException("Breadth-first search needs unit edge weights");
+        this.graph = graph;
+        this.codec = codec;
+        this.directory = directory;
+        this.batch = new long[Math.max(batch, 16)];
+    }
+
+
+    /**
+     * Limits the search to the nodes at most {@code maxDepth} steps from the start, so
+     * that a part of a state space that is too large to explore can be explored.
+     * @param  maxDepth  the largest distance of a layer
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+
+    /**
+     * The outcome of {@link #search}.
+     */
+    public static class Solution<V> {
+        public final boolean success;
+        public final int cost;
+        public final List<V> path;         // from the goal back to (but not including) the start
+        public final long visitedNodes;    // the nodes in all layers that were written
+        public final long[] layerSizes;    // the number of nodes at every distance
+        public final long bytesWritten;    // the size of all layer and run files
+
+        Solution(boolean success, int cost, List<V> path, long[] layerSizes, long bytesWritten) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.layerSizes = layerSizes;
+            this.visitedNodes = Arrays.stream(layerSizes).sum();
+            this.bytesWritten = bytesWritten;
+        }
+    }
+
+
+    /**
+     * Searches breadth-first from {@code start} until the layer with {@code goal} is
+     * complete, or until no new nodes are found or the {@link #setMaxDepth maximum depth}
+     * is reached. The files are deleted afterwards.
+     * @param  start  the start node
+     * @param  goal   the goal node, or null to explore everything reachable from the start
+     * @return the solution; without a goal it is unsuccessful, with the sizes of all layers
+     * @throws IOException if a file cannot be written or read
+     */
+    public Solution<V> search(V start, V goal) throws IOException {
+        Files.createDirectories(directory);
+        runs.clear();
+        files.clear();
+        bytesWritten = 0;
+        long s = codec.encode(start);
+        long t = goal != null ? codec.encode(goal) : 0;
+        List<Path> layers = new ArrayList<>();
+        long[] sizes = new long[16];
+        try {
+            try (RecordWriter layer = new RecordWriter(newFile("layer-0"))) {
+                layer.write(s);
+                layers.add(layer.file);
+            }
+            sizes[0] = 1;
+            int found = goal != null && s == t ? 0 : -1;
+            int d = 0;
+            for (; found < 0 && sizes[d] > 0 && d < maxDepth; d++) {
+                expand(layers.get(d));
+                List<Path> seen = graph.isSymmetric() ? layers.subList(Math.max(0, d - 1), d + 1) : layers;
+                Path next = newFile("layer-" + (d + 1));
+                long size = merge(runs, seen, next, goal != null, t);
+                deleteRuns();
+                layers.add(next);
+                if (d + 1 == sizes.length)
+                    sizes = Arrays.copyOf(sizes, 2 * sizes.length);
+                sizes[d + 1] = size;
+                if (mergedGoal) found = d + 1;
+            }
+            if (found < 0)
+                return new Solution<>(false, -1, null, Arrays.copyOf(sizes, sizes[d] > 0 ? d + 1 : d), bytesWritten);
+
+            List<V> path = new ArrayList<>();
+            long current = t;
+            if (found > 0) path.add(goal);
+            for (int k = found - 1; k > 0; k--) {
+                current = previous(current, layers.get(k));
+                path.add(codec.decode(current));
+            }
+            return new Solution<>(true, found, path, Arrays.copyOf(sizes, found + 1), bytesWritten);
+        } finally {
+            for (Path file : files)
+                Files.deleteIfExists(file);
+        }
+    }
+
+
+    private Path newFile(String name) {
+        Path file = directory.resolve(name + "-" + files.size() + ".bin");
+        files.add(file);
+        return file;
+    }
+
+
+    /** Writes the successors of every node in the layer file as sorted runs. */
+    private void expand(Path layer) throws IOException {
+        EdgeConsumer<V> collect = (w, weight) -> {
+            batch[batchSize++] = codec.encode(w);
+            if (batchSize == batch.length) {
+                try {
+                    writeRun();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try (RecordReader frontier = new RecordReader(layer)) {
+            while (frontier.hasNext) {
+                graph.forEachOutgoing(codec.decode(frontier.head), collect);
+                frontier.next();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeRun();
+    }
+
+
+    private void writeRun() throws IOException {
+        if (batchSize == 0) return;
+        Arrays.sort(batch, 0, batchSize);
+        try (RecordWriter run = new RecordWriter(newFile("run"))) {
+            for (int i = 0; i < batchSize; i++)
+                run.write(batch[i]);
+            runs.add(run.file);
+        }
+        batchSize = 0;
+    }
+
+
+    private void deleteRuns() throws IOException {
+        for (Path run : runs)
+            Files.deleteIfExists(run);
+        runs.clear();
+    }
+
+
+    /**
+     * Merges the sorted {@code inputs} into {@code output}, without duplicates and without
+     * the records in the {@code seen} files. Too many inputs are first merged in groups.
+     * Sets {@code mergedGoal} if {@code goal} was written.
+     * @return the number of records written
+     */
+    private long merge(List<Path> inputs, List<Path> seen, Path output, boolean hasGoal, long goal) throws IOException {
+        List<Path> pending = new ArrayList<>(inputs);
+        while (pending.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += MAX_FAN_IN) {
+                Path run = newFile("run");
+                mergeOnce(pending.subList(i, Math.min(i + MAX_FAN_IN, pending.size())), List.of(), run, hasGoal, goal);
+                merged.add(run);
+            }
+            for (Path run : pending)
+                Files.deleteIfExists(run);
+            pending = merged;
+            runs.clear();
+            runs.addAll(merged);
+        }
+        return mergeOnce(pending, seen, output, hasGoal, goal);
+    }
+
+
+    private long mergeOnce(List<Path> inputs, List<Path> seen, Path output, boolean hasGoal, long goal) throws IOException {
+        PriorityQueue<RecordReader> heads = new PriorityQueue<>((a, b) -> Long.compare(a.head, b.head));
+        List<RecordReader> old = new ArrayList<>();
+        mergedGoal = false;
+        try (RecordWriter out = new RecordWriter(output)) {
+            try {
+                for (Path input : inputs) {
+                    RecordReader reader = new RecordReader(input);
+                    if (reader.hasNext) heads.add(reader);
+                    else reader.close();
+                }
+                for (Path file : seen)
+                    old.add(new RecordReader(file));
+
+                while (!heads.isEmpty()) {
+                    RecordReader reader = heads.poll();
+                    long record = reader.head;
+                    if (reader.next()) heads.add(reader);
+                    else reader.close();
+                    if (out.count > 0 && out.previous == record) continue;
+                    boolean isOld = false;
+                    for (RecordReader layer : old) {
+                        while (layer.hasNext && layer.head < record) layer.next();
+                        if (layer.hasNext && layer.head == record) isOld = true;
+                    }
+                    if (isOld) continue;
+                    out.write(record);
+                    if (hasGoal && record == goal) mergedGoal = true;
+                }
+                return out.count;
+            } finally {
+                for (RecordReader reader : heads) reader.close();
+                for (RecordReader reader : old) reader.close();
+            }
+        }
+    }
+
+
+    /** Returns an incoming neighbour of {@code node} that is in the layer file. */
+    private long previous(long node, Path layer) throws IOException {
+        List<V> nodes = new ArrayList<>();
+        graph.forEachIncoming(codec.decode(node), (u, weight) -> nodes.add(u));
+        long[] candidates = new long[nodes.size()];
+        for (int i = 0; i < candidates.length; i++)
+            candidates[i] = codec.encode(nodes.get(i));
+        Arrays.sort(candidates);
+        try (RecordReader reader = new RecordReader(layer)) {
+            int i = 0;
+            while (reader.hasNext && i < candidates.length) {
+                if (reader.head < candidates[i]) reader.next();
+                else if (reader.head > candidates[i]) i++;
+                else return reader.head;
+            }
+        }
+        throw new IllegalStateException("No node before " + codec.decode(node) + " in " + layer);
+    }
+
+
+    /**
+     * Writes increasing records as differences, skipping a record equal to the one before.
+     */
+    private class RecordWriter implements Closeable {
+        final Path file;
+        final OutputStream out;
+        long previous = Long.MIN_VALUE;
+        long count;
+        long bytes;
+
+        RecordWriter(Path file) throws IOException {
+            this.file = file;
+            out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER);
+        }
+
+        void write(long record) throws IOException {
+            if (count > 0 && record == previous) return;
+            long delta = record - previous;  // unsigned, since the records are increasing
+            while ((delta & ~0x7FL) != 0) {
+                out.write((int) (delta & 0x7F) | 0x80);
+                delta >>>= 7;
+                bytes++;
+            }
+            out.write((int) delta);
+            bytes++;
+            previous = record;
+            count++;
+        }
+
+        public void close() throws IOException {
+            out.close();
+            bytesWritten += bytes;
+        }
+    }
+
+
+    /**
+     * Reads the records of a file one at a time; {@code head} is the current record.
+     */
+    private static class RecordReader implements Closeable {
+        final InputStream in;
+        long head = Long.MIN_VALUE;
+        boolean hasNext = true;
+
+        RecordReader(Path file) throws IOException {
+            in = new BufferedInputStream(Files.newInputStream(file), BUFFER);
+            next();
+        }
+
+        /** Moves to the next record, and returns false (closing the file) if there is none. */
+        boolean next() throws IOException {
+            long delta = 0;
+            int b;
+            int shift = 0;
+            do {
+                b = in.read();
+                if (b < 0) {
+                    if (shift > 0) throw new EOFException("Truncated record file");
+                    hasNext = false;
+                    in.close();
+                    return false;
+                }
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            head += delta;
+            return true;
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Explores the states of an NPuzzle breadth-first on disk, up to the goal or the
+     * maximum depth if given, and prints the layer sizes.
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            NPuzzle puzzle = new NPuzzle(Integer.valueOf(args[0]));
+            String start = args[1];
+            String goal = args.length > 2 && !args[2].equals("-") ? args[2] : null;
+            int maxDepth = args.length > 3 ? Integer.valueOf(args[3]) : Integer.MAX_VALUE;
+            Path directory = args.length > 4 ? Paths.get(args[4]) : Files.createTempDirectory("layers");
+            int batch = args.length > 5 ? Integer.valueOf(args[5]) : 1 << 20;
+
+            long time = System.nanoTime();
+            ExternalSearch<String> search = new ExternalSearch<>(puzzle, puzzle, directory, batch);
+            search.setMaxDepth(maxDepth);
+            Solution<String> solution = search.search(start, goal);
+            time = System.nanoTime() - time;
+            for (int d = 0; d < solution.layerSizes.length; d++)
+                System.out.println(String.format("%3d %12d", d, solution.layerSizes[d]));
+            System.out.println(String.format("%d states, %d bytes written (%.2f bytes/state), %.2f s",
+                                             solution.visitedNodes, solution.bytesWritten,
+                                             (double) solution.bytesWritten / solution.visitedNodes, time / 1e9));
+            if (goal != null)
+                System.out.println(solution.success ? "Cost " + solution.cost + ": " + solution.path : "No path to " + goal);
+            if (args.length <= 4)
+                Files.delete(directory);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java ExternalSearch N start-state [goal-state|-] [max-depth] [directory] [batch-size]");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+import java.util.List;
+import java.util.ArrayList;
+
+import java.util.stream.IntStream;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Parallel reading of the graph files.
+ *
+ * The file is split into chunks of about {@code CHUNK_SIZE} bytes that end at line
+ * breaks. Every chunk is mapped into memory, decoded as UTF-8 and scanned for line
+ * breaks and tabs by hand, in parallel; the results of the chunks are then put
+ * together in file order, so the graphs are built in the same order as when the
+ * file is read line by line.
+ */
+public class GraphLoader {
+
+    private static final int CHUNK_SIZE = 1 << 18;
+
+
+    /**
+     * Turns one line of a file into a result, or null to skip the line.
+     */
+    @FunctionalInterface
+    public interface LineParser<T> {
+        T parse(String line);
+    }
+
+
+    /**
+     * Parses every line of a file, in parallel chunks.
+     * @param  file    the file name
+     * @param  parser  the parser of the lines; it must not depend on the order of the calls
+     * @return the non-null results, in the order of the lines
+     */
+    public static <T> List<T> parse(String file, LineParser<T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<List<T>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++)
+                chunks.add(null);
+            IOException[] failure = new IOException[1];
+            IntStream.range(0, chunks.size()).parallel().forEach(i -> {
+                try {
+                    chunks.set(i, parseChunk(channel, bounds[i], bounds[i + 1], parser));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null)
+                throw failure[0];
+
+            int size = 0;
+            for (List<T> chunk : chunks) size += chunk.size();
+            List<T> results = new ArrayList<>(size);
+            for (List<T> chunk : chunks) results.addAll(chunk);
+            return results;
+        }
+    }
+
+
+    /**
+     * @return the positions where the chunks start, followed by the file size; every
+     *         chunk except the first starts right after a line break
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = CHUNK_SIZE;
+        while (position < size) {
+            // move forward to just after the next line break
+            long next = -1;
+            while (next < 0 && position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++)
+                    if (buffer.get(i) == '\n') {
+                        next = position + i + 1;
+                        break;
+                    }
+                if (next < 0) position += read;
+            }
+            if (next < 0 || next >= size) break;
+            bounds.add(next);
+            position = next + CHUNK_SIZE;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bounds.get(i);
+        return result;
+    }
+
+
+    private static <T> List<T> parseChunk(FileChannel channel, long start, long end, LineParser<T> parser) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        String text = StandardCharsets.UTF_8.decode(buffer).toString();
+        List<T> results = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = text.length();
+            int contentEnd = lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            T result = parser.parse(text.substring(lineStart, contentEnd));
+            if (result != null)
+                results.add(result);
+            lineStart = lineEnd + 1;
+        }
+        return results;
+    }
+
+
+    /**
+     * Reads the edges of an {@link AdjacencyGraph} file: lines with a start node, an end
+     * node and optionally a weight, separated by tabs. Lines starting with # and empty
+     * lines are skipped.
+     * @param  file  the file name
+     * @return the edges, in file order
+     */
+    public static List<DirectedEdge<String>> readEdges(String file) throws IOException {
+        return parse(file, line -> {
+            if (line.isEmpty() || line.startsWith("#")) return null;
+            int tab1 = line.indexOf('\t');
+            if (tab1 < 0)
+                throw new IllegalArgumentException("Malformatted edge: " + line);
+            int tab2 = line.indexOf('\t', tab1 + 1);
+            if (tab2 < 0)
+                return new DirectedEdge<>(line.substring(0, tab1).trim(), line.substring(tab1 + 1).trim());
+            int tab3 = line.indexOf('\t', tab2 + 1);
+            String weight = line.substring(tab2 + 1, tab3 < 0 ? line.length() : tab3).trim();
+            return new DirectedEdge<>(line.substring(0, tab1).trim(), line.substring(tab1 + 1, tab2).trim(),
+                                      Double.parseDouble(weight));
+        });
+    }
+
+
+    /**
+     * Reads the words of a {@link WordLadder} file: every line that is not a comment and
+     * only consists of letters (after trimming) gives a word, in lowercase.
+     * @param  file  the file name
+     * @return the words, in file order
+     */
+    public static List<String> readWords(String file) throws IOException {
+        return parse(file, line -> {
+            if (line.startsWith("#")) return null;
+            String word = line.trim();
+            if (word.isEmpty()) return null;
+            for (int i = 0; i < word.length(); i++)
+                if (!Character.isLetter(word.charAt(i))) return null;
+            return word.toLowerCase();
+        });
+    }
+
+
+    /**
+     * Reads the rows of a {@link GridGraph} file: the non-empty lines that only consist
+     * of the given characters (other lines, such as headers, are skipped).
+     * @param  file          the file name
+     * @param  allowedChars  the characters of the map
+     * @return the rows, in file order
+     */
+    public static List<String> readRows(String file, String allowedChars) throws IOException {
+        return parse(file, line -> {
+            if (line.isEmpty()) return null;
+            for (int i = 0; i < line.length(); i++)
+                if (allowedChars.indexOf(line.charAt(i)) < 0) return null;
+            return line;
+        });
+    }
+
+}
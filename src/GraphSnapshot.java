@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.zip.CRC32;
+
+
+/**
+ * Binary snapshots of loaded graphs, so that a graph file does not have to be parsed
+ * again on every run.
+ *
+ * A snapshot starts with a header: a magic number, the format version, the kind of
+ * graph, and the size and CRC32 checksum of the text file it was made from. The rest
+ * is the graph in its array form: for an {@link AdjacencyGraph} the node names and the
+ * CSR edge arrays of its {@link CompactGraph}, for a {@link WordLadder} its
+ * {@link WordIndex}, and for a {@link GridGraph} its dimensions and passability bitset.
+ * Strings are stored as one UTF-8 block with an array of end offsets. Everything is
+ * big-endian, as written by {@code DataOutputStream}.
+ *
+ * A snapshot is opened with {@code FileChannel.map}, and the arrays are copied out of
+ * the mapped file in bulk. It is only used if the text file still has the same size and
+ * checksum, and its body can be read; otherwise the text file is parsed again and the
+ * snapshot rewritten. Snapshots are written to a temporary file and moved into place.
+ */
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x47534e50;  // "GSNP"
+    private static final int VERSION = 1;
+
+    private static final int ADJACENCY_GRAPH = 1;
+    private static final int WORD_LADDER = 2;
+    private static final int GRID_GRAPH = 3;
+
+
+    /**
+     * Loads an {@link AdjacencyGraph} from {@code snapshotFile} if it was made from the
+     * current contents of {@code file}, and otherwise reads {@code file} and writes the
+     * snapshot. The graph is returned frozen, with the node ids of the snapshot.
+     * @param  file          the graph file
+     * @param  snapshotFile  the snapshot file
+     * @return the graph
+     */
+    public static AdjacencyGraph adjacencyGraph(String file, String snapshotFile) throws IOException {
+        AdjacencyGraph snapshot = read(open(file, snapshotFile, ADJACENCY_GRAPH), in -> new AdjacencyGraph(CompactGraph.read(in)));
+        if (snapshot != null)
+            return snapshot;
+        AdjacencyGraph graph = new AdjacencyGraph(file);
+        write(file, snapshotFile, ADJACENCY_GRAPH, out -> graph.freeze().write(out));
+        return graph;
+    }
+
+
+    /**
+     * Like {@link #adjacencyGraph}, for a {@link WordLadder}.
+     * @param  file          the dictionary file
+     * @param  snapshotFile  the snapshot file
+     * @return the word ladder, with its index
+     */
+    public static WordLadder wordLadder(String file, String snapshotFile) throws IOException {
+        WordLadder snapshot = read(open(file, snapshotFile, WORD_LADDER), in -> new WordLadder(WordIndex.read(in)));
+        if (snapshot != null)
+            return snapshot;
+        WordLadder ladder = new WordLadder(file);
+        write(file, snapshotFile, WORD_LADDER, out -> ladder.index().write(out));
+        return ladder;
+    }
+
+
+    /**
+     * Like {@link #adjacencyGraph}, for a {@link GridGraph}.
+     * @param  file          the map file
+     * @param  snapshotFile  the snapshot file
+     * @return the grid
+     */
+    public static GridGraph gridGraph(String file, String snapshotFile) throws IOException {
+        GridGraph snapshot = read(open(file, snapshotFile, GRID_GRAPH), GridGraph::read);
+        if (snapshot != null)
+            return snapshot;
+        GridGraph grid = new GridGraph(file);
+        write(file, snapshotFile, GRID_GRAPH, out -> grid.write(out));
+        return grid;
+    }
+
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+
+    private interface Reader<G> {
+        G read(ByteBuffer in);
+    }
+
+
+    /**
+     * Reads the body of a snapshot.
+     * @return the graph, or null if there is no snapshot or its body is broken (such as
+     *         a file that was cut short by an older version writing it in place)
+     */
+    private static <G> G read(ByteBuffer in, Reader<G> reader) {
+        if (in == null)
+            return null;
+        try {
+            return reader.read(in);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            return null;  // broken: parse the graph file again
+        }
+    }
+
+
+    /**
+     * Writes a snapshot to a temporary file next to it, which is then moved over the old
+     * snapshot, so that an interrupted write never leaves a snapshot with a valid header
+     * and a truncated body.
+     */
+    private static void write(String file, String snapshotFile, int kind, Writer body) throws IOException {
+        Path target = Paths.get(snapshotFile);
+        Path temporary = Paths.get(snapshotFile + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(kind);
+                out.writeLong(Files.size(Paths.get(file)));
+                out.writeLong(checksum(file));
+                body.write(out);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+
+    /**
+     * Maps a snapshot and checks its header.
+     * @return the mapped snapshot, positioned after the header, or null if there is no
+     *         snapshot of the right kind and version for the current contents of {@code file}
+     */
+    private static ByteBuffer open(String file, String snapshotFile, int kind) throws IOException {
+        if (!Files.exists(Paths.get(snapshotFile)))
+            return null;
+        try (FileChannel channel = FileChannel.open(Paths.get(snapshotFile), StandardOpenOption.READ)) {
+            if (channel.size() < 28)
+                return null;
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != kind)
+                return null;
+            if (in.getLong() != Files.size(Paths.get(file)) || in.getLong() != checksum(file))
+                return null;  // stale: the graph file has changed since
+            return in;
+        }
+    }
+
+
+    /**
+     * @return the CRC32 checksum of the contents of {@code file}
+     */
+    public static long checksum(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            CRC32 crc = new CRC32();
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return crc.getValue();
+        }
+    }
+
+
+    // Array encoding shared by the classes that write themselves into a snapshot:
+    // every array is its length followed by its elements.
+
+    static void writeInts(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int x : array) out.writeInt(x);
+    }
+
+
+    static void writeDoubles(DataOutputStream out, double[] array) throws IOException {
+        out.writeInt(array.length);
+        for (double x : array) out.writeDouble(x);
+    }
+
+
+    static void writeLongs(DataOutputStream out, long[] array) throws IOException {
+        out.writeInt(array.length);
+        for (long x : array) out.writeLong(x);
+    }
+
+
+    static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        int[] ends = new int[strings.length];
+        byte[][] bytes = new byte[strings.length][];
+        int end = 0;
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            end += bytes[i].length;
+            ends[i] = end;
+        }
+        writeInts(out, ends);
+        out.writeInt(end);
+        for (byte[] b : bytes) out.write(b);
+    }
+
+
+    static int[] readInts(ByteBuffer in) {
+        int[] array = new int[in.getInt()];
+        in.asIntBuffer().get(array);
+        in.position(in.position() + 4 * array.length);
+        return array;
+    }
+
+
+    static double[] readDoubles(ByteBuffer in) {
+        double[] array = new double[in.getInt()];
+        in.asDoubleBuffer().get(array);
+        in.position(in.position() + 8 * array.length);
+        return array;
+    }
+
+
+    static long[] readLongs(ByteBuffer in) {
+        long[] array = new long[in.getInt()];
+        in.asLongBuffer().get(array);
+        in.position(in.position() + 8 * array.length);
+        return array;
+    }
+
+
+    static String[] readStrings(ByteBuffer in) {
+        int[] ends = readInts(in);
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        String[] strings = new String[ends.length];
+        for (int i = 0, start = 0; i < ends.length; start = ends[i++])
+            strings[i] = new String(bytes, start, ends[i] - start, StandardCharsets.UTF_8);
+        return strings;
+    }
+
+
+    /**
+     * Writes the snapshot of a graph file, and compares loading the graph from the
+     * text file with loading it from the snapshot.
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            String graphType = args[0], file = args[1];
+            String snapshotFile = args.length > 2 ? args[2] : file + ".snap";
+            Files.deleteIfExists(Paths.get(snapshotFile));
+            for (String from : new String[] {"text file", "snapshot"}) {
+                long time = System.nanoTime();
+                Object graph;
+                switch (graphType) {
+                case "AdjacencyGraph": graph = adjacencyGraph(file, snapshotFile).freeze(); break;
+                case "WordLadder":     graph = wordLadder(file, snapshotFile).index(); break;
+                case "GridGraph": {
+                    GridGraph grid = gridGraph(file, snapshotFile);
+                    graph = "Grid graph " + grid.width() + " x " + grid.height();
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown graph type: " + graphType);
+                }
+                System.out.println(String.format("%s from %s in %.1f ms", graph, from, (System.nanoTime() - time) / 1e6));
+            }
+            System.out.println("Wrote " + snapshotFile + " (" + Files.size(Paths.get(snapshotFile)) + " bytes)");
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java GraphSnapshot graphtype graph-file [snapshot-file]");
+            System.err.println("  where graphtype = AdjacencyGraph | WordLadder | GridGraph");
+            System.exit(1);
+        }
+    }
+
+}
@@ -4,21 +4,35 @@ import java.lang.Math;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.Collection;
+import java.util.Set;
+import java.util.HashSet;
 import java.util.Random;
 
 import java.util.stream.Collectors;
 
 import java.io.IOException;
+import java.io.DataOutputStream;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
 
 
 public class GridGraph implements DirectedGraph<GridGraph.Coord> {
 
-    private char[][] grid;
+    // Passability, one bit per cell in row-major order, with a blocked border of one
+    // cell on every side so that the neighbours of a cell can be read without bounds
+    // checks: cell (x,y) is bit (y+1)*stride + (x+1).
+    private long[] open;
+    private int stride;
     private int width;
     private int height;
+    private char passableGlyph, blockedGlyph;  // the most common characters, used by showGrid
+    private volatile Coord[] coords;  // one shared Coord per cell, created when the cell is first reached
+
+    // The eight moves, in the order of outgoingEdges; bit k of a neighbour mask is move k
+    private static final int[] MOVE_DX = {-1, -1, -1,  0,  0, +1, +1, +1};
+    private static final int[] MOVE_DY = {-1,  0, +1, -1, +1, -1,  0, +1};
+
+    private static final double SQRT2 = Math.sqrt(2);
 
     // Characters from Moving AI Lab:
     //   . - passable terrain
@@ -33,7 +47,7 @@ public class GridGraph implements DirectedGraph<GridGraph.Coord> {
     //   space  passable
     // Note: "-" must come last in allowedChars, because it's a regular expression
 
-    private static String allowedChars = ".G@OTSW +|-"; 
+    static String allowedChars = ".G@OTSW +|-"; 
     private static String passableChars = ".G ";
 
 
@@ -50,7 +64,7 @@ public class GridGraph implements DirectedGraph<GridGraph.Coord> {
             return this.x == other.x && this.y == other.y;
         }
         public int hashCode() {
-            return (this.x << 8) ^ this.y;
+            return (this.x << 16) ^ this.y;
         }
         public String toString() {
             return x + ":" + y;
@@ -59,15 +73,68 @@ public class GridGraph implements DirectedGraph<GridGraph.Coord> {
 
 
     public GridGraph(String file) throws IOException {
-        grid = Files.lines(Paths.get(file))
-            .filter(line -> line.matches("^[" + allowedChars + "]+$"))
-            .map(line -> line.toCharArray())
-            .toArray(char[][]::new);
-        height = grid.length;
-        width = grid[0].length;
-        for (char[] row : grid)
-            if (row.length != width)
+        List<String> rows = GraphLoader.readRows(file, allowedChars);
+        height = rows.size();
+        width = rows.get(0).length();
+        stride = width + 2;
+        open = new long[(stride * (height + 2) + 63) / 64 + 1];
+        int[] counts = new int[128];
+        for (int y = 0; y < height; y++) {
+            String row = rows.get(y);
+            if (row.length() != width)
                 throw new IllegalArgumentException("Malformatted grid, row widths don't match.");
+            for (int x = 0; x < width; x++) {
+                char c = row.charAt(x);
+                counts[c]++;
+                // the last column and row are never passable
+                if (x < width-1 && y < height-1 && passableChars.indexOf(c) >= 0) {
+                    int i = (y+1) * stride + x+1;
+                    open[i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        for (char c : allowedChars.toCharArray()) {
+            boolean passable = passableChars.indexOf(c) >= 0;
+            if (passable && counts[c] > counts[passableGlyph]) passableGlyph = c;
+            if (!passable && counts[c] > counts[blockedGlyph]) blockedGlyph = c;
+        }
+        if (passableGlyph == 0) passableGlyph = passableChars.charAt(0);
+        if (blockedGlyph == 0) blockedGlyph = allowedChars.charAt(2);
+    }
+
+
+    private GridGraph(int width, int height, long[] open, char passableGlyph, char blockedGlyph) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 2;
+        this.open = open;
+        this.passableGlyph = passableGlyph;
+        this.blockedGlyph = blockedGlyph;
+    }
+
+
+    /**
+     * Writes the dimensions, the glyphs and the passability bitset, for a {@link GraphSnapshot}.
+     * @param  out  the output
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeChar(passableGlyph);
+        out.writeChar(blockedGlyph);
+        GraphSnapshot.writeLongs(out, open);
+    }
+
+
+    /**
+     * Reads a grid written by {@link #write}.
+     * @param  in  the input, positioned at the grid
+     * @return the grid
+     */
+    static GridGraph read(ByteBuffer in) {
+        int width = in.getInt(), height = in.getInt();
+        char passableGlyph = in.getChar(), blockedGlyph = in.getChar();
+        return new GridGraph(width, height, GraphSnapshot.readLongs(in), passableGlyph, blockedGlyph);
     }
 
 
@@ -83,20 +150,136 @@ public class GridGraph implements DirectedGraph<GridGraph.Coord> {
 
     public List<DirectedEdge<Coord>> outgoingEdges(Coord p) {
         List<DirectedEdge<Coord>> outgoing = new LinkedList<>();
-        for (int dx = -1; dx <= +1; dx++) 
-            for (int dy = -1; dy <= +1; dy++) 
-                if (!(dx == 0 && dy == 0)) 
-                    if (passable(p.x+dx, p.y+dy)) {
-                        Coord q = new Coord(p.x+dx, p.y+dy);
-                        double w = Math.sqrt(dx*dx + dy*dy);
-                        outgoing.add(new DirectedEdge<>(p, q, w));
-                    }
+        int moves = inside(p.x, p.y) ? neighbours(p.x, p.y) : 0;
+        for (int k = 0; k < 8; k++)
+            if ((moves & (1 << k)) != 0) {
+                Coord q = new Coord(p.x + MOVE_DX[k], p.y + MOVE_DY[k]);
+                double w = Math.sqrt(MOVE_DX[k]*MOVE_DX[k] + MOVE_DY[k]*MOVE_DY[k]);
+                outgoing.add(new DirectedEdge<>(p, q, w));
+            }
         return outgoing;
     }
 
 
+    /**
+     * Calls {@code action} for every passable neighbour of {@code p}, in the same order as
+     * {@code outgoingEdges}. The neighbour coordinates are shared instances, so this
+     * only allocates the first time a cell is reached.
+     * @param  p       the cell
+     * @param  action  the consumer of the edges
+     */
+    public void forEachOutgoing(Coord p, EdgeConsumer<Coord> action) {
+        if (!inside(p.x, p.y)) return;
+        int moves = neighbours(p.x, p.y);
+        for (int k = 0; k < 8; k++)
+            if ((moves & (1 << k)) != 0)
+                action.accept(coord(p.x + MOVE_DX[k], p.y + MOVE_DY[k]), MOVE_DX[k] == 0 || MOVE_DY[k] == 0 ? 1.0 : SQRT2);
+    }
+
+
+    /**
+     * The moves from cell {@code (x,y)} to passable neighbours, as a bitmask: bit {@code k}
+     * is set if the cell {@code (x + moveX(k), y + moveY(k))} is passable. The mask is read
+     * from the three rows of the bitset around the cell.
+     * @param  x  the column, {@code 0 <= x < width}
+     * @param  y  the row, {@code 0 <= y < height}
+     * @return the neighbour mask
+     */
+    public int neighbours(int x, int y) {
+        int i = y * stride + x;  // the bit of (x-1, y-1)
+        int above = bits3(i), here = bits3(i + stride), below = bits3(i + 2 * stride);
+        return (above & 1) | (here & 1) << 1 | (below & 1) << 2
+            | (above & 2) << 2 | (below & 2) << 3
+            | (above & 4) << 3 | (here & 4) << 4 | (below & 4) << 5;
+    }
+
+
+    /**
+     * @param  k  a move, {@code 0 <= k < 8}
+     * @return the change in x of move {@code k} in a neighbour mask
+     */
+    public static int moveX(int k) {
+        return MOVE_DX[k];
+    }
+
+
+    /**
+     * @param  k  a move, {@code 0 <= k < 8}
+     * @return the change in y of move {@code k} in a neighbour mask
+     */
+    public static int moveY(int k) {
+        return MOVE_DY[k];
+    }
+
+
+    /** The three bits starting at bit {@code i}, as the lowest bits of an int. */
+    private int bits3(int i) {
+        int offset = i & 63;
+        long word = open[i >>> 6] >>> offset;
+        if (offset > 61)
+            word |= open[(i >>> 6) + 1] << (64 - offset);
+        return (int) word & 7;
+    }
+
+
+    private boolean inside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+
+    private Coord coord(int x, int y) {
+        Coord[] coords = this.coords;
+        if (coords == null)
+            coords = coordCache();
+        int i = y * width + x;
+        Coord c = coords[i];
+        if (c == null) {
+            // two threads may both create the Coord of a cell, which is harmless
+            c = new Coord(x, y);
+            coords[i] = c;
+        }
+        return c;
+    }
+
+
+    private synchronized Coord[] coordCache() {
+        if (coords == null)
+            coords = new Coord[width * height];
+        return coords;
+    }
+
+
+    /**
+     * @return true, since moving between two passable cells costs the same in both directions
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
+
     public boolean passable(int x, int y) {
-        return x >= 0 && y >= 0 && x < width-1 && y < height-1 && passableChars.indexOf(grid[y][x]) >= 0;
+        return x >= -1 && y >= -1 && x <= width && y <= height && isOpen(x, y);
+    }
+
+
+    /**
+     * Like {@code passable}, but without checking the coordinates, which is safe for
+     * every cell of the grid and the border around it.
+     * @param  x  the column, {@code -1 <= x <= width}
+     * @param  y  the row, {@code -1 <= y <= height}
+     * @return true if the cell is passable
+     */
+    boolean isOpen(int x, int y) {
+        int i = (y+1) * stride + x+1;
+        return (open[i >>> 6] & (1L << i)) != 0;
+    }
+
+
+    /**
+     * @return the number of bytes used for the passability bitset
+     */
+    public long gridBytes() {
+        return 8L * open.length;
     }
 
     /**
@@ -125,9 +308,10 @@ public class GridGraph implements DirectedGraph<GridGraph.Coord> {
         StringBuilder s = new StringBuilder();
         s.append("Bitmap graph of dimesions " + width + " x " + height + " pixels\n");
         int ctr = 0;
+        Set<Coord> onPath = new HashSet<>(path);
         for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) 
-                s.append(path.contains(new Coord(x, y)) ? "*" : grid[y][x]);
+            for (int x = 0; x < width; x++)
+                s.append(onPath.contains(new Coord(x, y)) ? '*' : isOpen(x, y) ? passableGlyph : blockedGlyph);
             s.append("\n");
         }
         return s.toString();
@@ -0,0 +1,196 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Dijkstra's algorithm and A* over a {@link GridGraph}, on cell indices
+ * {@code y*width + x} instead of {@link GridGraph.Coord} objects.
+ *
+ * The distances, parents and states of the cells are kept in flat arrays with one
+ * entry per cell. The arrays are allocated once and reused by every query: instead
+ * of clearing them, each query takes a new generation number, and a cell whose mark
+ * is from an older generation counts as not yet reached. Only the cells on the
+ * returned path are turned into {@code Coord} objects.
+ *
+ * An instance is not thread-safe; use one per thread.
+ */
+public class GridSearch {
+
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private final GridGraph grid;
+    private final int width, height;
+    private final double[] distTo;
+    private final int[] parent;
+    private final int[] mark;        // generation when the cell was reached, plus 1 once it is settled
+    private int generation = 0;     // always even
+    private final IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+    private final int[] moveOffset = new int[8];
+    private long queueOperations;
+    private long pathStartNanos;  // System.nanoTime() when the last path was started
+    private SearchListener listener;
+
+
+    /**
+     * @param  grid  the grid to search
+     */
+    public GridSearch(GridGraph grid) {
+        this.grid = grid;
+        this.width = grid.width();
+        this.height = grid.height();
+        distTo = new double[width * height];
+        parent = new int[width * height];
+        mark = new int[width * height];
+        for (int k = 0; k < 8; k++)
+            moveOffset[k] = GridGraph.moveY(k) * width + GridGraph.moveX(k);
+    }
+
+
+    /**
+     * @return the grid this search is for
+     */
+    public GridGraph grid() {
+        return grid;
+    }
+
+
+    /**
+     * @return the number of queue operations of the last search
+     */
+    public long queueOperations() {
+        return queueOperations;
+    }
+
+
+    /**
+     * @return the {@code System.nanoTime} when the last successful search reached its
+     *         goal and started to build the path
+     */
+    public long pathStartNanos() {
+        return pathStartNanos;
+    }
+
+
+    /**
+     * Sets the listener that receives the events of {@link #search}.
+     * @param listener  the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+
+    /**
+     * The outcome of a search: the path is listed from the goal back to the start,
+     * excluding the start, like in {@link PathFinder.Result}.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final double cost;
+        public final List<GridGraph.Coord> path;
+        public final int visitedNodes;
+
+        Solution(boolean success, double cost, List<GridGraph.Coord> path, int visitedNodes) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+        }
+    }
+
+
+    /**
+     * Finds a shortest path with Dijkstra's algorithm, or with A* and the same
+     * straight-line estimate as {@link GridGraph#guessCost} if {@code useHeuristic} is set.
+     * @param  start         the start cell
+     * @param  goal          the goal cell
+     * @param  useHeuristic  whether to use A*
+     * @return the solution
+     */
+    public Solution search(GridGraph.Coord start, GridGraph.Coord goal, boolean useHeuristic) {
+        if (!inside(start.x, start.y))
+            return new Solution(false, -1, null, 0);
+        nextGeneration();
+        toBeVisited.clear();
+        int s = start.y * width + start.x;
+        int t = inside(goal.x, goal.y) ? goal.y * width + goal.x : -1;
+        int visitedNodes = 0;
+
+        distTo[s] = 0.0;
+        parent[s] = -1;
+        mark[s] = generation;
+        toBeVisited.insert(s, useHeuristic ? estimate(start.x, start.y, goal) : 0.0);
+        SearchListener listener = this.listener;
+        if (listener != null) {
+            listener.pushed(1);
+            if (useHeuristic) listener.heuristicCalled();
+        }
+
+        while (!toBeVisited.isEmpty()) {
+            int v = toBeVisited.delMin();
+            mark[v] = generation + 1;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            if (v == t) {
+                pathStartNanos = System.nanoTime();
+                if (listener != null) listener.pathStarted();
+                queueOperations = toBeVisited.operations();
+                return new Solution(true, distTo[v], path(s, t), visitedNodes);
+            }
+
+            int x = v % width, y = v / width;
+            int moves = grid.neighbours(x, y);
+            for (int k = 0; k < 8; k++) {  /* RELAX */
+                if ((moves & (1 << k)) == 0) continue;
+                int w = v + moveOffset[k];
+                double newDist = distTo[v] + (GridGraph.moveX(k) == 0 || GridGraph.moveY(k) == 0 ? 1.0 : SQRT2);
+                if (mark[w] == generation + 1 || mark[w] == generation && distTo[w] <= newDist) {
+                    if (listener != null) listener.relaxed(false);
+                    continue;
+                }
+                mark[w] = generation;
+                distTo[w] = newDist;
+                parent[w] = v;
+                double priority = useHeuristic ? newDist + estimate(x + GridGraph.moveX(k), y + GridGraph.moveY(k), goal) : newDist;
+                toBeVisited.insertOrDecrease(w, priority);
+                if (listener != null) {
+                    listener.relaxed(true);
+                    listener.pushed(toBeVisited.size());
+                    if (useHeuristic) listener.heuristicCalled();
+                }
+            }
+        }
+        queueOperations = toBeVisited.operations();
+        return new Solution(false, -1, null, visitedNodes);
+    }
+
+
+    private void nextGeneration() {
+        generation += 2;
+        if (generation < 0) {  // wrapped around after about a billion queries
+            Arrays.fill(mark, 0);
+            generation = 2;
+        }
+    }
+
+
+    private boolean inside(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+
+    private static double estimate(int x, int y, GridGraph.Coord goal) {
+        double dx = goal.x - x, dy = goal.y - y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+
+    private List<GridGraph.Coord> path(int s, int t) {
+        List<GridGraph.Coord> path = new ArrayList<>();
+        for (int v = t; v != s; v = parent[v])
+            path.add(new GridGraph.Coord(v % width, v / width));
+        return path;
+    }
+
+}
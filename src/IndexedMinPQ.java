@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ * An indexed priority queue of integer ids with {@code double} priorities.
+ * It is implemented as a binary heap together with an inverse position
+ * array, so that {@code decreaseKey} can find an id in the heap in constant
+ * time. In contrast to the lazy-deletion approach (pushing a new copy every
+ * time a priority improves), every id is in the queue at most once.
+ *
+ * The id range grows on demand, so the queue can be used for graphs where
+ * the nodes are discovered during the search.
+ */
+public class IndexedMinPQ {
+
+    private int n;            // number of elements in the heap
+    private int[] pq;         // heap position -> id
+    private int[] qp;         // id -> heap position, or -1 if not in the heap
+    private double[] keys;    // id -> priority
+    private long operations;  // number of insert, decreaseKey and delMin calls
+
+
+    /**
+     * Initializes an empty indexed priority queue for ids {@code 0..capacity-1}.
+     * @param capacity  the initial id range (it grows automatically)
+     */
+    public IndexedMinPQ(int capacity) {
+        capacity = Math.max(capacity, 16);
+        pq = new int[capacity];
+        qp = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(qp, -1);
+    }
+
+
+    /**
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+
+    /**
+     * @return the number of ids in the queue
+     */
+    public int size() {
+        return n;
+    }
+
+
+    /**
+     * @return the number of insert, decreaseKey and delMin operations since creation (or the last clear)
+     */
+    public long operations() {
+        return operations;
+    }
+
+
+    /**
+     * @param  i  an id
+     * @return true if {@code i} is currently in the queue
+     */
+    public boolean contains(int i) {
+        return i < qp.length && qp[i] >= 0;
+    }
+
+
+    /**
+     * @param  i  an id in the queue
+     * @return the priority of id {@code i}
+     */
+    public double keyOf(int i) {
+        return keys[i];
+    }
+
+
+    /**
+     * Inserts the id {@code i} with priority {@code key}.
+     * @param  i    the id
+     * @param  key  the priority
+     * @throws IllegalArgumentException if {@code i} is already in the queue
+     */
+    public void insert(int i, double key) {
+        ensureCapacity(i + 1);
+        if (qp[i] >= 0)
+            throw new IllegalArgumentException("id " + i + " is already in the priority queue");
+        operations++;
+        qp[i] = n;
+        pq[n] = i;
+        keys[i] = key;
+        swim(n++);
+    }
+
+
+    /**
+     * Lowers the priority of id {@code i} to {@code key}.
+     * @param  i    an id in the queue
+     * @param  key  the new priority, which must not be larger than the current one
+     */
+    public void decreaseKey(int i, double key) {
+        if (!contains(i))
+            throw new NoSuchElementException("id " + i + " is not in the priority queue");
+        operations++;
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+
+    /**
+     * Inserts {@code i}, or lowers its priority if it is already in the queue.
+     * @param  i    the id
+     * @param  key  the priority
+     */
+    public void insertOrDecrease(int i, double key) {
+        if (contains(i))
+            decreaseKey(i, key);
+        else
+            insert(i, key);
+    }
+
+
+    /**
+     * @return the id with the smallest priority
+     */
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[0];
+    }
+
+
+    /**
+     * @return the smallest priority in the queue
+     */
+    public double minKey() {
+        return keys[minIndex()];
+    }
+
+
+    /**
+     * Removes the id with the smallest priority and returns it.
+     * @return the removed id
+     */
+    public int delMin() {
+        int min = minIndex();
+        operations++;
+        n--;
+        pq[0] = pq[n];
+        qp[pq[0]] = 0;
+        qp[min] = -1;
+        if (n > 0) sink(0);
+        return min;
+    }
+
+
+    /**
+     * Removes all ids, keeping the allocated arrays so that the queue can be reused.
+     */
+    public void clear() {
+        for (int k = 0; k < n; k++)
+            qp[pq[k]] = -1;
+        n = 0;
+        operations = 0;
+    }
+
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= qp.length) return;
+        int newCapacity = Math.max(capacity, 2 * qp.length);
+        int oldCapacity = qp.length;
+        pq = Arrays.copyOf(pq, newCapacity);
+        qp = Arrays.copyOf(qp, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+        Arrays.fill(qp, oldCapacity, newCapacity, -1);
+    }
+
+
+    private void swim(int k) {
+        int id = pq[k];
+        double key = keys[id];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int pid = pq[parent];
+            if (keys[pid] <= key) break;
+            pq[k] = pid;
+            qp[pid] = k;
+            k = parent;
+        }
+        pq[k] = id;
+        qp[id] = k;
+    }
+
+
+    private void sink(int k) {
+        int id = pq[k];
+        double key = keys[id];
+        int half = n >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < n && keys[pq[child + 1]] < keys[pq[child]]) child++;
+            int cid = pq[child];
+            if (key <= keys[cid]) break;
+            pq[k] = cid;
+            qp[cid] = k;
+            k = child;
+        }
+        pq[k] = id;
+        qp[id] = k;
+    }
+
+
+    /**
+     * Unit tests the class
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        double[] priorities = {5.0, 3.5, 9.1, 0.4, 7.7, 3.5, 2.2};
+        IndexedMinPQ pq = new IndexedMinPQ(2);
+        for (int i = 0; i < priorities.length; i++)
+            pq.insert(i, priorities[i]);
+        pq.decreaseKey(2, 1.0);
+        while (!pq.isEmpty()) {
+            double key = pq.minKey();
+            int i = pq.delMin();
+            System.out.println(i + " [" + key + "]");
+        }
+    }
+
+}
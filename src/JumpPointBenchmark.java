@@ -0,0 +1,69 @@
+import java.util.Random;
+import java.util.Arrays;
+
+import java.io.File;
+
+
+/**
+ * Compares A* ({@link GridSearch}) with jump point search on every
+ * bundled grid map. For every map it runs the same random queries between
+ * passable cells with both searches, checks that the costs agree, and reports
+ * the average number of expanded nodes and the average time per query.
+ */
+public class JumpPointBenchmark {
+
+    private static final int QUERIES = 100;
+
+
+    private static void run(String name, GridGraph grid) {
+        Random random = new Random(1);
+        GridGraph.Coord[][] queries = new GridGraph.Coord[QUERIES][2];
+        for (GridGraph.Coord[] query : queries)
+            for (int i = 0; i < 2; i++) {
+                int x, y;
+                do {
+                    x = random.nextInt(grid.width());
+                    y = random.nextInt(grid.height());
+                } while (!grid.passable(x, y));
+                query[i] = new GridGraph.Coord(x, y);
+            }
+
+        PathFinder<GridGraph.Coord> finder = new PathFinder<>(grid);
+        double[] costs = new double[QUERIES];
+        for (String algorithm : new String[] {"astar", "jps"}) {
+            for (int i = 0; i < 10; i++)  // warm-up
+                finder.search(algorithm, queries[i][0], queries[i][1]);
+            long visited = 0;
+            long time = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                PathFinder<GridGraph.Coord>.Result<GridGraph.Coord> result = finder.search(algorithm, queries[i][0], queries[i][1]);
+                visited += result.visitedNodes;
+                if (algorithm.equals("astar"))
+                    costs[i] = result.cost;
+                else if (Math.abs(costs[i] - result.cost) > 1e-6)
+                    throw new AssertionError(name + " " + queries[i][0] + " -> " + queries[i][1]
+                                             + ": cost " + result.cost + ", expected " + costs[i]);
+            }
+            time = System.nanoTime() - time;
+            System.out.println(String.format("%-16s %-6s expanded %8.1f  %7.3f ms/query",
+                                             name, algorithm, (double) visited / QUERIES, time / 1e6 / QUERIES));
+        }
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs/GridGraph";
+            File[] files = new File(dir).listFiles((d, file) -> file.endsWith(".map") || file.endsWith(".txt"));
+            Arrays.sort(files);
+            for (File file : files)
+                run(file.getName(), new GridGraph(file.getPath()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java JumpPointBenchmark [grid-directory]");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Jump point search (Harabor and Grastien, 2011) over a {@link GridGraph}: A* with
+ * the octile distance as estimate, where the successors of a cell are not its eight
+ * neighbours but the jump points in the directions that matter.
+ *
+ * Moving on from a cell in the direction it was reached, the only neighbours that
+ * cannot be reached at least as cheaply by a path that avoids the cell are the
+ * natural neighbours (straight ahead, and for a diagonal also the two straight parts
+ * of it) and the forced neighbours next to an obstacle beside the cell. The search
+ * scans from a cell in each such direction without putting anything in the queue,
+ * until it reaches the goal, a cell with a forced neighbour, or (for a diagonal
+ * scan) a cell from which a straight scan finds such a cell. Only those jump points
+ * are added to the queue. As in {@code GridGraph}, a diagonal move only needs its
+ * target cell to be passable, so the pruning rules are the original ones.
+ *
+ * The result lists every cell of the path, like the other searches. The arrays are
+ * reused between queries in the same way as in {@link GridSearch}, so an instance is
+ * not thread-safe.
+ */
+public class JumpPointSearch {
+
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private final GridGraph grid;
+    private final int width;
+    private final double[] distTo;
+    private final int[] parent;
+    private final int[] mark;        // generation when the cell was reached, plus 1 once it is settled
+    private int generation = 0;     // always even
+    private final IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+
+
+    /**
+     * @param  grid  the grid to search
+     */
+    public JumpPointSearch(GridGraph grid) {
+        this.grid = grid;
+        this.width = grid.width();
+        distTo = new double[width * grid.height()];
+        parent = new int[width * grid.height()];
+        mark = new int[width * grid.height()];
+    }
+
+
+    /**
+     * @return the grid this search is for
+     */
+    public GridGraph grid() {
+        return grid;
+    }
+
+
+    /**
+     * The outcome of a search: the path is listed cell by cell from the goal back to the
+     * start, excluding the start, like in {@link PathFinder.Result}. The visited nodes
+     * are the expanded jump points.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final double cost;
+        public final List<GridGraph.Coord> path;
+        public final int visitedNodes;
+
+        Solution(boolean success, double cost, List<GridGraph.Coord> path, int visitedNodes) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+        }
+    }
+
+
+    /**
+     * Finds a shortest path from {@code start} to {@code goal}.
+     * @param  start  the start cell
+     * @param  goal   the goal cell
+     * @return the solution
+     */
+    public Solution search(GridGraph.Coord start, GridGraph.Coord goal) {
+        generation += 2;
+        if (generation < 0) {  // wrapped around after about a billion queries
+            Arrays.fill(mark, 0);
+            generation = 2;
+        }
+        toBeVisited.clear();
+        int s = start.y * width + start.x, t = goal.y * width + goal.x;
+        int visitedNodes = 0;
+
+        distTo[s] = 0.0;
+        parent[s] = -1;
+        mark[s] = generation;
+        toBeVisited.insert(s, octile(start.x, start.y, goal.x, goal.y));
+
+        while (!toBeVisited.isEmpty()) {
+            int v = toBeVisited.delMin();
+            mark[v] = generation + 1;
+            visitedNodes++;
+            if (v == t) {
+                List<GridGraph.Coord> path = unpack(parent, t);
+                return new Solution(true, cost(start, path), path, visitedNodes);
+            }
+
+            int x = v % width, y = v / width;
+            int p = parent[v];
+            for (int dx = -1; dx <= +1; dx++)
+                for (int dy = -1; dy <= +1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    if (p >= 0 && !relevant(x, y, Integer.signum(x - p % width), Integer.signum(y - p / width), dx, dy))
+                        continue;
+                    int jump = jump(x, y, dx, dy, goal.x, goal.y);  /* RELAX */
+                    if (jump < 0 || mark[jump] == generation + 1) continue;
+                    int jx = jump % width, jy = jump / width;
+                    double newDist = distTo[v] + octile(x, y, jx, jy);
+                    if (mark[jump] == generation && distTo[jump] <= newDist) continue;
+                    mark[jump] = generation;
+                    distTo[jump] = newDist;
+                    parent[jump] = v;
+                    toBeVisited.insertOrDecrease(jump, newDist + octile(jx, jy, goal.x, goal.y));
+                }
+        }
+        return new Solution(false, -1, null, visitedNodes);
+    }
+
+
+    /**
+     * @return true if direction {@code (dx,dy)} from {@code (x,y)}, which was reached moving in
+     *         direction {@code (px,py)}, leads to a natural or a forced neighbour
+     */
+    private boolean relevant(int x, int y, int px, int py, int dx, int dy) {
+        if (px != 0 && py != 0) {
+            if ((dx == px && dy == py) || (dx == px && dy == 0) || (dx == 0 && dy == py))
+                return true;
+            return (dx == -px && dy == py && !grid.isOpen(x - px, y))
+                || (dx == px && dy == -py && !grid.isOpen(x, y - py));
+        }
+        if (px != 0)
+            return dx == px && (dy == 0 || !grid.isOpen(x, y + dy));
+        return dy == py && (dx == 0 || !grid.isOpen(x + dx, y));
+    }
+
+
+    /**
+     * @return true if cell {@code (x,y)}, reached moving in direction {@code (dx,dy)}, has a forced neighbour
+     */
+    private boolean forced(int x, int y, int dx, int dy) {
+        if (dx != 0 && dy != 0)
+            return (!grid.isOpen(x - dx, y) && grid.isOpen(x - dx, y + dy))
+                || (!grid.isOpen(x, y - dy) && grid.isOpen(x + dx, y - dy));
+        if (dx != 0)
+            return (!grid.isOpen(x, y + 1) && grid.isOpen(x + dx, y + 1))
+                || (!grid.isOpen(x, y - 1) && grid.isOpen(x + dx, y - 1));
+        return (!grid.isOpen(x + 1, y) && grid.isOpen(x + 1, y + dy))
+            || (!grid.isOpen(x - 1, y) && grid.isOpen(x - 1, y + dy));
+    }
+
+
+    /**
+     * Scans from {@code (x,y)} in direction {@code (dx,dy)}.
+     * @return the cell index of the first jump point, or -1 if the scan runs into an obstacle
+     */
+    private int jump(int x, int y, int dx, int dy, int goalX, int goalY) {
+        while (true) {
+            x += dx;
+            y += dy;
+            if (!grid.isOpen(x, y)) return -1;
+            if ((x == goalX && y == goalY) || forced(x, y, dx, dy))
+                return y * width + x;
+            if (dx != 0 && dy != 0 && (jump(x, y, dx, 0, goalX, goalY) >= 0 || jump(x, y, 0, dy, goalX, goalY) >= 0))
+                return y * width + x;
+        }
+    }
+
+
+    /**
+     * @return the octile distance between two cells, the cost of the cheapest path without obstacles
+     */
+    private static double octile(int x1, int y1, int x2, int y2) {
+        int dx = Math.abs(x2 - x1), dy = Math.abs(y2 - y1);
+        return Math.min(dx, dy) * SQRT2 + Math.abs(dx - dy);
+    }
+
+
+    /**
+     * @return the cost of the path, adding up the steps from the start like the other searches do
+     */
+    private static double cost(GridGraph.Coord start, List<GridGraph.Coord> path) {
+        double cost = 0.0;
+        GridGraph.Coord previous = start;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            GridGraph.Coord next = path.get(i);
+            cost += next.x == previous.x || next.y == previous.y ? 1.0 : SQRT2;
+            previous = next;
+        }
+        return cost;
+    }
+
+
+    /**
+     * @return every cell on the path from the goal back to the start (excluding the start),
+     *         filling in the straight and diagonal lines between the jump points
+     */
+    private List<GridGraph.Coord> unpack(int[] parent, int t) {
+        List<GridGraph.Coord> path = new ArrayList<>();
+        for (int v = t; parent[v] >= 0; v = parent[v]) {
+            int x = v % width, y = v / width, p = parent[v];
+            int dx = Integer.signum(p % width - x), dy = Integer.signum(p / width - y);
+            for (; x != p % width || y != p / width; x += dx, y += dy)
+                path.add(new GridGraph.Coord(x, y));
+        }
+        return path;
+    }
+
+}
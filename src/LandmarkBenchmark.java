@@ -0,0 +1,89 @@
+import java.util.Random;
+import java.util.Arrays;
+
+import java.io.File;
+
+
+/**
+ * Compares Dijkstra's algorithm with A* using the ALT landmark estimate, on
+ * every {@code citygraph-*.txt} file, for both ways of choosing the landmarks.
+ * For every graph it runs the same random queries with each search, checks
+ * that the costs agree, and reports the average number of settled nodes and
+ * the average time per query.
+ */
+public class LandmarkBenchmark {
+
+    private static final int QUERIES = 500;
+
+
+    private static void run(String name, AdjacencyGraph graph, int k) {
+        CompactGraph compact = graph.freeze();
+        PathFinder<String> finder = new PathFinder<>(graph);
+        String[][] queries = new String[QUERIES][2];
+        Random random = new Random(1);
+        for (String[] query : queries) {
+            query[0] = compact.name(random.nextInt(compact.nrNodes()));
+            query[1] = compact.name(random.nextInt(compact.nrNodes()));
+        }
+
+        graph.setLandmarks(null);
+        double[] expected = new double[QUERIES];
+        long[] stats = measure(finder, "dijkstra", queries, expected, false);
+        System.out.println(String.format("%-12s %5d nodes  dijkstra           settled %7.1f  %6.3f ms/query",
+                                         name, compact.nrNodes(), (double) stats[0] / QUERIES, stats[1] / 1e6 / QUERIES));
+
+        for (String strategy : new String[] {"farthest", "avoid"}) {
+            long time = System.nanoTime();
+            Landmarks landmarks = Landmarks.build(compact, k, strategy);
+            time = System.nanoTime() - time;
+            graph.setLandmarks(landmarks);
+            stats = measure(finder, "astar", queries, expected, true);
+            System.out.println(String.format("%-12s %5d nodes  alt %-8s %2d    settled %7.1f  %6.3f ms/query  (built in %.2f s)",
+                                             name, compact.nrNodes(), strategy, k, (double) stats[0] / QUERIES,
+                                             stats[1] / 1e6 / QUERIES, time / 1e9));
+        }
+        graph.setLandmarks(null);
+    }
+
+
+    /**
+     * Runs all queries, and either records the costs or checks them against the recorded ones.
+     * @return the total number of settled nodes and the total time in nanoseconds
+     */
+    private static long[] measure(PathFinder<String> finder, String algorithm, String[][] queries, double[] costs, boolean check) {
+        for (int i = 0; i < 50; i++)  // warm-up
+            finder.search(algorithm, queries[i % queries.length][0], queries[i % queries.length][1]);
+        long visited = 0;
+        long time = System.nanoTime();
+        for (int i = 0; i < queries.length; i++) {
+            PathFinder<String>.Result<String> result = finder.search(algorithm, queries[i][0], queries[i][1]);
+            visited += result.visitedNodes;
+            if (!check)
+                costs[i] = result.cost;
+            else if (Math.abs(costs[i] - result.cost) > 1e-9)
+                throw new AssertionError(algorithm + " " + queries[i][0] + " -> " + queries[i][1]
+                                         + ": cost " + result.cost + ", expected " + costs[i]);
+        }
+        return new long[] {visited, System.nanoTime() - time};
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs/AdjacencyGraph";
+            int k = args.length > 1 ? Integer.valueOf(args[1]) : 8;
+            File[] files = new File(dir).listFiles((d, file) -> file.startsWith("citygraph-") && file.endsWith(".txt"));
+            Arrays.sort(files);
+            for (File file : files) {
+                String name = file.getName().substring("citygraph-".length(), file.getName().length() - ".txt".length());
+                run(name, new AdjacencyGraph(file.getPath()), k);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java LandmarkBenchmark [graph-directory] [nr-landmarks]");
+            System.exit(1);
+        }
+    }
+
+}
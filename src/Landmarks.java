@@ -0,0 +1,343 @@
+import java.util.Arrays;
+import java.util.Random;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Landmark distances for the ALT heuristic (A*, landmarks, triangle inequality)
+ * on a {@link CompactGraph}, which needs no node coordinates.
+ *
+ * For a few landmark nodes {@code L} we store the distances {@code d(L,v)} from and
+ * {@code d(v,L)} to every node. By the triangle inequality both
+ * {@code d(L,w) - d(L,v)} and {@code d(v,L) - d(w,L)} are lower bounds on
+ * {@code d(v,w)}, and the largest of them over all landmarks is an admissible and
+ * consistent estimate. It is good when some landmark lies behind the goal, seen
+ * from the start, so the landmarks should be spread out around the border of the graph.
+ *
+ * There are two ways of choosing them. The farthest strategy starts with the node
+ * farthest from a random node, and then repeatedly adds the node whose distance to
+ * the closest landmark so far is largest. The avoid strategy grows a shortest-path
+ * tree from a random root, weighs every node by how much the current landmarks
+ * underestimate its distance from the root, and follows the heaviest subtree without
+ * landmarks down to a leaf, which becomes the next landmark.
+ *
+ * The distance tables can be saved to a file and loaded again for the same graph.
+ */
+public class Landmarks {
+
+    private static final int MAGIC = 0x414c5432;  // "ALT2": the fingerprint covers the edges and weights
+
+    private final CompactGraph graph;
+    private final int[] landmarks;
+    private final double[][] from;   // from[i][v] = d(landmarks[i], v)
+    private final double[][] to;     // to[i][v]   = d(v, landmarks[i])
+
+
+    private Landmarks(CompactGraph graph, int[] landmarks, double[][] from, double[][] to) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+    }
+
+
+    /**
+     * Chooses the landmarks and computes their distance tables.
+     * @param  graph     the graph
+     * @param  k         the number of landmarks
+     * @param  strategy  "farthest" or "avoid"
+     * @return the landmarks
+     */
+    public static Landmarks build(CompactGraph graph, int k, String strategy) {
+        int n = graph.nrNodes();
+        k = Math.min(k, n);
+        CompactGraph reverse = graph.reverse();
+        Random random = new Random(n);
+        int[] chosen = new int[k];
+        double[][] from = new double[k][], to = new double[k][];
+        for (int i = 0; i < k; i++) {
+            int landmark;
+            switch (strategy) {
+            case "farthest": landmark = farthest(graph, from, i, random); break;
+            case "avoid":    landmark = avoid(graph, chosen, from, to, i, random); break;
+            default: throw new IllegalArgumentException("Unknown landmark strategy: " + strategy);
+            }
+            chosen[i] = landmark;
+            from[i] = distances(graph, landmark, null);
+            to[i] = distances(reverse, landmark, null);
+        }
+        return new Landmarks(graph, chosen, from, to);
+    }
+
+
+    /**
+     * The reachable node whose distance from the closest of the first {@code i} landmarks
+     * is largest. The first landmark is the node farthest from a random node.
+     */
+    private static int farthest(CompactGraph graph, double[][] from, int i, Random random) {
+        double[][] sources = i > 0 ? from : new double[][] {distances(graph, random.nextInt(graph.nrNodes()), null)};
+        int count = i > 0 ? i : 1;
+        int best = 0;
+        double bestDist = -1;
+        for (int v = 0; v < graph.nrNodes(); v++) {
+            double dist = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < count; j++)
+                dist = Math.min(dist, sources[j][v]);
+            if (dist != Double.POSITIVE_INFINITY && dist > bestDist) {
+                best = v;
+                bestDist = dist;
+            }
+        }
+        return best;
+    }
+
+
+    /**
+     * The next landmark by the avoid strategy, given the first {@code i} landmarks.
+     */
+    private static int avoid(CompactGraph graph, int[] chosen, double[][] from, double[][] to, int i, Random random) {
+        int n = graph.nrNodes();
+        int root = random.nextInt(n);
+        int[] parent = new int[n];
+        int[] order = new int[n + 1];  // the settled nodes in order, preceded by their count
+        double[] dist = distances(graph, root, parent, order);
+
+        boolean[] isLandmark = new boolean[n];
+        for (int j = 0; j < i; j++)
+            isLandmark[chosen[j]] = true;
+
+        // The weight of a subtree is the total error of the lower bounds from the root,
+        // or 0 if it contains a landmark; every node remembers its heaviest child.
+        double[] weight = new double[n];
+        boolean[] hasLandmark = new boolean[n];
+        int[] heaviestChild = new int[n];
+        Arrays.fill(heaviestChild, -1);
+        for (int k = order[0]; k >= 1; k--) {
+            int v = order[k];
+            weight[v] += dist[v] - lowerBound(from, to, i, root, v);
+            hasLandmark[v] |= isLandmark[v];
+            if (hasLandmark[v]) weight[v] = 0;
+            int p = parent[v];
+            if (p < 0) continue;
+            hasLandmark[p] |= hasLandmark[v];
+            weight[p] += weight[v];
+            if (heaviestChild[p] < 0 || weight[v] > weight[heaviestChild[p]])
+                heaviestChild[p] = v;
+        }
+        int v = root;
+        while (heaviestChild[v] >= 0)
+            v = heaviestChild[v];
+        return isLandmark[v] ? farthest(graph, from, i, random) : v;
+    }
+
+
+    private static double[] distances(CompactGraph graph, int source, int[] parent) {
+        return distances(graph, source, parent, null);
+    }
+
+
+    /**
+     * Dijkstra's algorithm from {@code source} to all nodes.
+     * @param  parent  if not null, filled with the shortest-path tree (-1 for the source and unreachable nodes)
+     * @param  order   if not null, filled with the number of settled nodes followed by the nodes in settling order
+     * @return the distances, infinite for unreachable nodes
+     */
+    private static double[] distances(CompactGraph graph, int source, int[] parent, int[] order) {
+        int n = graph.nrNodes();
+        double[] distTo = new double[n];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        if (parent != null) Arrays.fill(parent, -1);
+        IndexedMinPQ toBeVisited = new IndexedMinPQ(n);
+        distTo[source] = 0.0;
+        toBeVisited.insert(source, 0.0);
+        int settled = 0;
+        while (!toBeVisited.isEmpty()) {
+            int v = toBeVisited.delMin();
+            if (order != null) order[++settled] = v;
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int w = graph.target(e);
+                double newDist = distTo[v] + graph.weight(e);
+                if (distTo[w] <= newDist) continue;
+                distTo[w] = newDist;
+                if (parent != null) parent[w] = v;
+                toBeVisited.insertOrDecrease(w, newDist);
+            }
+        }
+        if (order != null) order[0] = settled;
+        return distTo;
+    }
+
+
+    /**
+     * The lower bound on {@code d(v,w)} from the first {@code k} landmarks; the pairs
+     * where a distance is infinite are skipped.
+     */
+    private static double lowerBound(double[][] from, double[][] to, int k, int v, int w) {
+        double bound = 0.0;
+        for (int i = 0; i < k; i++) {
+            double forward = from[i][w] - from[i][v];
+            double backward = to[i][v] - to[i][w];
+            if (forward > bound && forward != Double.POSITIVE_INFINITY) bound = forward;
+            if (backward > bound && backward != Double.POSITIVE_INFINITY) bound = backward;
+        }
+        return bound;
+    }
+
+
+    /**
+     * @param  v  a node id
+     * @param  w  a node id
+     * @return a lower bound on the distance from {@code v} to {@code w}
+     */
+    public double lowerBound(int v, int w) {
+        return lowerBound(from, to, landmarks.length, v, w);
+    }
+
+
+    /**
+     * @param  v  a node name
+     * @param  w  a node name
+     * @return a lower bound on the distance from {@code v} to {@code w}, or 0 if one of them is not in the graph
+     */
+    public double lowerBound(String v, String w) {
+        int vid = graph.id(v), wid = graph.id(w);
+        if (vid < 0 || wid < 0) return 0.0;
+        return lowerBound(vid, wid);
+    }
+
+
+    /**
+     * @return the graph the landmarks were chosen for
+     */
+    public CompactGraph graph() {
+        return graph;
+    }
+
+
+    /**
+     * @return the number of landmarks
+     */
+    public int size() {
+        return landmarks.length;
+    }
+
+
+    /**
+     * Writes the landmarks and their distance tables to a file.
+     * @param  file  the file name
+     */
+    public void save(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(graph.nrNodes());
+            out.writeInt(graph.nrEdges());
+            out.writeInt(graph.fingerprint());
+            out.writeInt(landmarks.length);
+            for (int i = 0; i < landmarks.length; i++) {
+                out.writeInt(landmarks[i]);
+                for (double d : from[i]) out.writeDouble(d);
+                for (double d : to[i]) out.writeDouble(d);
+            }
+        }
+    }
+
+
+    /**
+     * Reads a landmark file written by {@link #save}.
+     * @param  graph  the graph the landmarks were chosen for
+     * @param  file   the file name
+     * @return the landmarks
+     * @throws IOException if the file cannot be read or was written for another graph,
+     *         including the same graph with other edge weights, for which the stored
+     *         distances need not be lower bounds any more (see {@link CompactGraph#fingerprint})
+     */
+    public static Landmarks load(CompactGraph graph, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a landmark file: " + file);
+            int n = graph.nrNodes();
+            if (buffer.getInt() != n || buffer.getInt() != graph.nrEdges() || buffer.getInt() != graph.fingerprint())
+                throw new IOException("Landmark file " + file + " is for another graph");
+            int k = buffer.getInt();
+            int[] landmarks = new int[k];
+            double[][] from = new double[k][n], to = new double[k][n];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = buffer.getInt();
+                buffer.asDoubleBuffer().get(from[i]);
+                buffer.position(buffer.position() + 8 * n);
+                buffer.asDoubleBuffer().get(to[i]);
+                buffer.position(buffer.position() + 8 * n);
+            }
+            return new Landmarks(graph, landmarks, from, to);
+        }
+    }
+
+
+    /**
+     * Loads the landmarks from {@code file} if it holds {@code k} landmarks for the graph,
+     * and otherwise builds them with the avoid strategy and saves them there.
+     * @param  graph  the graph
+     * @param  k      the number of landmarks
+     * @param  file   the file name
+     * @return the landmarks
+     */
+    public static Landmarks loadOrBuild(CompactGraph graph, int k, String file) throws IOException {
+        if (Files.exists(Paths.get(file))) {
+            try {
+                Landmarks landmarks = load(graph, file);
+                if (landmarks.size() == Math.min(k, graph.nrNodes())) return landmarks;
+            } catch (IOException | BufferUnderflowException e) {
+                // stale or broken file: build it again
+            }
+        }
+        Landmarks landmarks = build(graph, k, "avoid");
+        landmarks.save(file);
+        return landmarks;
+    }
+
+
+    /**
+     * @return a string representation of the landmarks
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(landmarks.length + " landmarks:");
+        for (int landmark : landmarks)
+            s.append("\n  " + graph.name(landmark));
+        return s.toString();
+    }
+
+
+    /**
+     * Builds (or loads) landmarks for a graph and prints them
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            AdjacencyGraph graph = new AdjacencyGraph(args[0]);
+            int k = args.length > 1 ? Integer.valueOf(args[1]) : 8;
+            long time = System.nanoTime();
+            Landmarks landmarks = args.length > 2 ? loadOrBuild(graph.freeze(), k, args[2]) : build(graph.freeze(), k, "avoid");
+            System.out.println(landmarks);
+            System.out.println(String.format("Ready in %.2f seconds", (System.nanoTime() - time) / 1e9));
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java Landmarks graph-file [nr-landmarks] [landmark-file]");
+            System.exit(1);
+        }
+    }
+
+}
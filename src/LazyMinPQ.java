@@ -0,0 +1,147 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ * A priority queue of integer ids with {@code double} priorities for lazy deletion:
+ * an id can be in the queue several times, and a search that improves the distance
+ * of a node simply inserts it again and skips the outdated copies when they are
+ * removed. It is a binary heap of ids, with the priorities in an array indexed by id,
+ * so unlike a {@code java.util.PriorityQueue} of nodes it boxes nothing.
+ *
+ * An id has one priority, the one it was last inserted with, and all its copies are
+ * compared with it; the earlier copies are not moved when it changes. This is exactly
+ * how the {@code PriorityQueue} of nodes that {@code PathFinder} used before, ordered
+ * by a map from nodes to priorities, behaved, and with the same sift order the searches
+ * remove the nodes in the same order as before, ties and all. That matters for A* with
+ * an estimate that is not consistent, such as the one of {@link NPuzzle}, whose costs
+ * and visited nodes depend on it.
+ */
+public class LazyMinPQ {
+
+    private int n;              // number of ids in the heap
+    private int[] ids;          // heap position -> id
+    private double[] priority;  // id -> its last priority
+    private long operations;    // number of insert and delMin calls
+
+
+    /**
+     * Initializes an empty priority queue.
+     * @param capacity  the initial number of copies and of ids (it grows automatically)
+     */
+    public LazyMinPQ(int capacity) {
+        capacity = Math.max(capacity, 16);
+        ids = new int[capacity];
+        priority = new double[capacity];
+    }
+
+
+    /**
+     * @return true if the queue is empty
+     */
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+
+    /**
+     * @return the number of ids in the queue, counting every copy of an id
+     */
+    public int size() {
+        return n;
+    }
+
+
+    /**
+     * @return the number of insert and delMin operations since creation (or the last clear)
+     */
+    public long operations() {
+        return operations;
+    }
+
+
+    /**
+     * Inserts the id {@code i} with priority {@code key}, even if it is already in the
+     * queue. The copies of {@code i} that are already in the queue get the same priority.
+     * @param  i    the id (a non-negative integer)
+     * @param  key  the priority
+     */
+    public void insert(int i, double key) {
+        if (n == ids.length)
+            ids = Arrays.copyOf(ids, 2 * n);
+        if (i >= priority.length)
+            priority = Arrays.copyOf(priority, Math.max(2 * priority.length, i + 1));
+        operations++;
+        priority[i] = key;
+        int k = n++;
+        while (k > 0) {  // swim
+            int parent = (k - 1) >>> 1;
+            if (priority[ids[parent]] <= key) break;
+            ids[k] = ids[parent];
+            k = parent;
+        }
+        ids[k] = i;
+    }
+
+
+    /**
+     * @return the smallest priority in the queue
+     */
+    public double minKey() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        return priority[ids[0]];
+    }
+
+
+    /**
+     * Removes a copy of an id with the smallest priority and returns the id.
+     * @return the removed id
+     */
+    public int delMin() {
+        if (n == 0) throw new NoSuchElementException("Priority queue underflow");
+        operations++;
+        int min = ids[0];
+        n--;
+        int id = ids[n];
+        double key = priority[id];
+        int k = 0, half = n >>> 1;
+        while (k < half) {  // sink the last id from the root
+            int child = 2 * k + 1;
+            double childKey = priority[ids[child]];
+            if (child + 1 < n && priority[ids[child + 1]] < childKey) childKey = priority[ids[++child]];
+            if (key <= childKey) break;
+            ids[k] = ids[child];
+            k = child;
+        }
+        ids[k] = id;
+        return min;
+    }
+
+
+    /**
+     * Removes all ids, keeping the allocated arrays so that the queue can be reused.
+     */
+    public void clear() {
+        n = 0;
+        operations = 0;
+    }
+
+
+    /**
+     * Unit tests the class
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        double[] priorities = {5.0, 3.5, 9.1, 0.4, 7.7, 3.5, 2.2};
+        LazyMinPQ pq = new LazyMinPQ(2);
+        for (int i = 0; i < priorities.length; i++)
+            pq.insert(i, priorities[i]);
+        pq.insert(2, 1.0);
+        while (!pq.isEmpty()) {
+            double key = pq.minKey();
+            int i = pq.delMin();
+            System.out.println(i + " [" + key + "]");
+        }
+    }
+
+}
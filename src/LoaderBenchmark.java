@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+
+/**
+ * Measures the startup time of every graph file under {@code src/graphs}: reading the
+ * file line by line with {@code Files.lines} (as the constructors used to do) compared
+ * with {@link GraphLoader}, and building the whole graph with its constructor. The kind
+ * of graph is taken from the name of the directory the file is in.
+ */
+public class LoaderBenchmark {
+
+    private static final int ROUNDS = 5;
+
+
+    private interface Loader {
+        int load(String file) throws IOException;
+    }
+
+
+    /**
+     * @return the best time of {@code ROUNDS} runs in milliseconds, after a warm-up run
+     */
+    private static double time(Loader loader, String file, int[] count) throws IOException {
+        count[0] = loader.load(file);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long time = System.nanoTime();
+            loader.load(file);
+            best = Math.min(best, System.nanoTime() - time);
+        }
+        return best / 1e6;
+    }
+
+
+    private static int linesEdges(String file) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file))) {
+            return lines
+                .filter(line -> !line.startsWith("#"))
+                .map(line -> line.split("\t"))
+                .map(edge -> (edge.length == 2
+                              ? new DirectedEdge<>(edge[0].trim(), edge[1].trim())
+                              : new DirectedEdge<>(edge[0].trim(), edge[1].trim(), Double.valueOf(edge[2].trim()))
+                              ))
+                .collect(Collectors.toList())
+                .size();
+        }
+    }
+
+
+    private static int linesWords(String file) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file))) {
+            return lines
+                .filter(line -> !line.startsWith("#"))
+                .map(String::trim)
+                .filter(word -> word.matches("\\p{L}+"))
+                .map(String::toLowerCase)
+                .collect(Collectors.toList())
+                .size();
+        }
+    }
+
+
+    private static int linesRows(String file, String allowedChars) throws IOException {
+        try (Stream<String> lines = Files.lines(Paths.get(file))) {
+            return lines
+                .filter(line -> line.matches("^[" + allowedChars + "]+$"))
+                .collect(Collectors.toList())
+                .size();
+        }
+    }
+
+
+    private static void run(String kind, File file) throws IOException {
+        Loader lines, chunks, build;
+        switch (kind) {
+        case "AdjacencyGraph":
+            lines = LoaderBenchmark::linesEdges;
+            chunks = f -> GraphLoader.readEdges(f).size();
+            build = f -> new AdjacencyGraph(f).nrEdges();
+            break;
+        case "WordLadder":
+            lines = LoaderBenchmark::linesWords;
+            chunks = f -> GraphLoader.readWords(f).size();
+            build = f -> new WordLadder(f).nrNodes();
+            break;
+        case "GridGraph":
+            lines = f -> linesRows(f, GridGraph.allowedChars);
+            chunks = f -> GraphLoader.readRows(f, GridGraph.allowedChars).size();
+            build = f -> { GridGraph grid = new GridGraph(f); return grid.width() * grid.height(); };
+            break;
+        default:
+            return;
+        }
+        int[] lineCount = new int[1], chunkCount = new int[1], size = new int[1];
+        double linesTime = time(lines, file.getPath(), lineCount);
+        double chunksTime = time(chunks, file.getPath(), chunkCount);
+        double buildTime = time(build, file.getPath(), size);
+        if (lineCount[0] != chunkCount[0])
+            throw new AssertionError(file + ": " + chunkCount[0] + " lines read, expected " + lineCount[0]);
+        System.out.println(String.format("%-15s %-28s %9d lines  Files.lines %8.2f ms  GraphLoader %8.2f ms  graph %8.2f ms (%d)",
+                                         kind, file.getName(), lineCount[0], linesTime, chunksTime, buildTime, size[0]));
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            File root = new File(args.length > 0 ? args[0] : "src/graphs");
+            File[] dirs = root.listFiles(File::isDirectory);
+            Arrays.sort(dirs);
+            for (File dir : dirs) {
+                File[] files = dir.listFiles((d, file) -> file.endsWith(".txt") || file.endsWith(".map"));
+                Arrays.sort(files);
+                for (File file : files)
+                    run(dir.getName(), file);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java LoaderBenchmark [graph-directory]");
+            System.exit(1);
+        }
+    }
+
+}
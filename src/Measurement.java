@@ -0,0 +1,116 @@
+import java.lang.management.ManagementFactory;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+
+/**
+ * The time and the allocations of an operation, as measured by the standalone
+ * benchmarks ({@link PathFinderBenchmark}, {@link QueueBenchmark} and the others).
+ * The operation first runs for some warm-up iterations and then for the measured ones.
+ * An iteration repeats the operation until a given time has passed, or runs it once.
+ * The times are wall times, and the bytes are those allocated by the benchmark thread,
+ * as counted by the {@code ThreadMXBean} of HotSpot. The results of the operations are
+ * folded into a sink, so that none of them can be optimized away.
+ *
+ * These are quick numbers for the console; the JMH benchmarks in {@code src/benchmarks}
+ * measure the loads and queries more carefully.
+ */
+public class Measurement<T> {
+
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile int sink;  // the hash codes of the results of an iteration
+
+    public final T result;                  // the result of the last operation
+    public final long operations;           // the number of measured operations
+    public final long nanos;                // the total time of the measured operations
+    public final long bytes;                // the bytes allocated by the measured operations
+    public final double meanNanos;          // the mean time of an operation over the iterations
+    public final double deviation;          // its standard deviation over the iterations
+
+
+    private Measurement(T result, long operations, long nanos, long bytes, double meanNanos, double deviation) {
+        this.result = result;
+        this.operations = operations;
+        this.nanos = nanos;
+        this.bytes = bytes;
+        this.meanNanos = meanNanos;
+        this.deviation = deviation;
+    }
+
+
+    /**
+     * Runs an operation {@code warmup} times, and then measures {@code rounds} runs.
+     * @param  warmup     the number of warm-up runs
+     * @param  rounds     the number of measured runs
+     * @param  operation  the operation
+     * @return the measurement
+     */
+    public static <T> Measurement<T> of(int warmup, int rounds, Supplier<T> operation) {
+        return of(warmup, rounds, 0, n -> operation.get());
+    }
+
+
+    /**
+     * Runs the warm-up and measured iterations of an operation, which is given the
+     * number of the call. Each iteration repeats it for at least {@code iterationNanos}.
+     * @param  warmup          the number of warm-up iterations
+     * @param  iterations      the number of measured iterations
+     * @param  iterationNanos  the shortest time of an iteration, or 0 for a single call
+     * @param  operation       the operation
+     * @return the measurement
+     */
+    public static <T> Measurement<T> of(int warmup, int iterations, long iterationNanos, LongFunction<T> operation) {
+        double[] nanosPerOp = new double[iterations];
+        long ops = 0, bytes = 0, nanos = 0;
+        T result = null;
+        for (int i = 0; i < warmup + iterations; i++) {
+            long count = 0;
+            int hash = 0;
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime(), time;
+            do {
+                result = operation.apply(ops + count++);
+                hash ^= System.identityHashCode(result);
+            } while ((time = System.nanoTime() - start) < iterationNanos);
+            sink = hash;
+            if (i < warmup) continue;
+            bytes += threads.getCurrentThreadAllocatedBytes() - allocated;
+            nanosPerOp[i - warmup] = (double) time / count;
+            ops += count;
+            nanos += time;
+        }
+        double mean = 0, squares = 0;
+        for (double x : nanosPerOp) mean += x / iterations;
+        for (double x : nanosPerOp) squares += (x - mean) * (x - mean);
+        return new Measurement<>(result, ops, nanos, bytes, mean, iterations > 1 ? Math.sqrt(squares / (iterations - 1)) : 0);
+    }
+
+
+    /**
+     * @return the mean time of an operation
+     */
+    public long nanosPerOperation() {
+        return nanos / Math.max(1, operations);
+    }
+
+
+    /**
+     * @return the mean bytes allocated by an operation
+     */
+    public long bytesPerOperation() {
+        return bytes / Math.max(1, operations);
+    }
+
+
+    /**
+     * @return the bytes of the heap in use, after a few garbage collections
+     */
+    public static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -5,15 +5,18 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
 import java.util.Arrays;
+import java.util.Random;
 
 import java.util.stream.Collectors;
 
 import java.io.IOException;
 
 
-public class NPuzzle implements DirectedGraph<String> {
+public class NPuzzle implements DirectedGraph<String>, StateCodec<String> {
 
     protected int N;
+    private PatternDatabase patternDatabase;
+    private PackedNPuzzle packed;  // the record format, for sizes up to 4
     private static char separator = '/';
     private static char emptytile = '_';
     private static String tiles = "_ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
@@ -27,6 +30,18 @@ public class NPuzzle implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Makes {@code guessCost} use a pattern database heuristic, whenever the goal
+     * is the goal of the database. The estimate is not consistent, and
+     * {@code PathFinder.searchAstar} never reopens a visited node, so use
+     * {@link PackedNPuzzle} when the path must be optimal.
+     * @param  patternDatabase  the pattern database, or null to go back to the default
+     */
+    public void setPatternDatabase(PatternDatabase patternDatabase) {
+        this.patternDatabase = patternDatabase;
+    }
+
+
     /**
      * @param  v  the node
      * @return the edges incident on node {@code v} as a List
@@ -52,12 +67,82 @@ public class NPuzzle implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Calls {@code action} for every state reachable in one move from {@code v}.
+     * Each neighbour is built from one shared char array, so only the new state
+     * strings are allocated.
+     * @param  v       the node
+     * @param  action  the consumer of the edges
+     */
+    public void forEachOutgoing(String v, EdgeConsumer<String> action) {
+        char[] state = v.toCharArray();
+        int pos = v.indexOf(emptytile);
+        for (int d = 0; d < 4; d++) {
+            int newpos = d == 0 ? pos-1 : d == 1 ? pos+1 : d == 2 ? pos-(N+1) : pos+(N+1);
+            if (newpos > 0 && newpos < state.length && state[newpos] != separator) {
+                state[pos] = state[newpos];
+                state[newpos] = emptytile;
+                action.accept(new String(state), 1.0);
+                state[newpos] = state[pos];
+                state[pos] = emptytile;
+            }
+        }
+    }
+
+
+    /**
+     * @return true, since every move can be undone by moving the same tile back
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
+
+    /**
+     * @return true, since every move costs 1
+     */
+    public boolean hasUnitWeights() {
+        return true;
+    }
+
+
+    /**
+     * Packs a state into a record in the format of {@link PackedNPuzzle}, 4 bits per tile.
+     * @param  state  a state
+     * @return the packed state
+     * @throws IllegalArgumentException if the puzzle is larger than 4x4 or the state is not valid
+     */
+    public long encode(String state) {
+        return packedFormat().pack(state);
+    }
+
+
+    /**
+     * @param  record  a record returned by {@link #encode}
+     * @return the state
+     */
+    public String decode(long record) {
+        return packedFormat().unpack(record);
+    }
+
+
+    private PackedNPuzzle packedFormat() {
+        if (N > 4)
+            throw new IllegalArgumentException("Only puzzles up to 4x4 fit in a record, not " + N + "x" + N);
+        if (packed == null)
+            packed = new PackedNPuzzle(N);
+        return packed;
+    }
+
+
     /**
      * @param  v  one state
      * @param  w  the other state
      * @return the total Manhattan distance between the two states
      */
     public double guessCost(String v, String w) {
+        if (patternDatabase != null && patternDatabase.hasGoal(w))
+            return patternDatabase.estimate(v);
         int diff = 0;
         for (int i = 0; i < v.length(); i++) {
             int j = w.indexOf(v.charAt(i)); // the position of v[i] in w
@@ -68,6 +153,24 @@ public class NPuzzle implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Makes {@code moves} random moves from {@code goal}, so the state it ends in is
+     * one from which the goal can be reached.
+     * @param  goal    a state
+     * @param  moves   the number of moves
+     * @param  random  the random numbers
+     * @return the state after the moves
+     */
+    public String randomState(String goal, int moves, Random random) {
+        String state = goal;
+        for (int i = 0; i < moves; i++) {
+            List<DirectedEdge<String>> edges = outgoingEdges(state);
+            state = edges.get(random.nextInt(edges.size())).to();
+        }
+        return state;
+    }
+
+
     private String makeState(String mytiles) {
         StringBuilder s = new StringBuilder();
         for (int i = 0; i < N; i++)
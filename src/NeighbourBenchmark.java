@@ -0,0 +1,73 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.HashSet;
+
+
+/**
+ * Measures the garbage produced when expanding nodes, comparing
+ * {@code outgoingEdges} with {@code forEachOutgoing} for every kind of graph.
+ * The nodes to expand are collected with a breadth-first walk from a start node,
+ * and every node is expanded several times with each method.
+ */
+public class NeighbourBenchmark {
+
+    private static final int ROUNDS = 10;
+    private static final int NODES = 20000;
+
+    private static long sink;
+
+
+    private static <V> void run(String name, DirectedGraph<V> graph, V start) {
+        List<V> nodes = new ArrayList<>();
+        Set<V> seen = new HashSet<>();
+        nodes.add(start);
+        seen.add(start);
+        for (int i = 0; i < nodes.size() && nodes.size() < NODES; i++)
+            for (DirectedEdge<V> e : graph.outgoingEdges(nodes.get(i)))
+                if (seen.add(e.to())) nodes.add(e.to());
+
+        EdgeConsumer<V> counter = (to, weight) -> sink += (long) weight;
+        for (int method = 0; method < 2; method++) {
+            int m = method;
+            Measurement<List<V>> measurement = Measurement.of(2, ROUNDS, () -> {
+                    expand(graph, nodes, m, counter);
+                    return nodes;
+                });
+            long expansions = measurement.operations * nodes.size();
+            System.out.println(String.format("%-16s %-16s bytes/expansion %6d  %7.1f ns/expansion",
+                                             name, method == 0 ? "outgoingEdges" : "forEachOutgoing",
+                                             measurement.bytes / expansions, (double) measurement.nanos / expansions));
+        }
+    }
+
+
+    private static <V> void expand(DirectedGraph<V> graph, List<V> nodes, int method, EdgeConsumer<V> counter) {
+        for (V v : nodes) {
+            if (method == 0) {
+                for (DirectedEdge<V> e : graph.outgoingEdges(v))
+                    counter.accept(e.to(), e.weight());
+            } else {
+                graph.forEachOutgoing(v, counter);
+            }
+        }
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs";
+            run("citygraph-EU", new AdjacencyGraph(dir + "/AdjacencyGraph/citygraph-EU.txt"), "Volos, Greece");
+            run("AR0011SR.map", new GridGraph(dir + "/GridGraph/AR0011SR.map"), new GridGraph.Coord(23, 161));
+            run("NPuzzle 3", new NPuzzle(3), "/HFG/BED/C_A/");
+            run("words-romaner", new WordLadder(dir + "/WordLadder/words-romaner.txt"), "katter");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java NeighbourBenchmark [graph-directory]");
+            System.exit(1);
+        }
+    }
+
+}
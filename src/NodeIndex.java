@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+
+/**
+ * Gives the nodes that a search generates dense int ids 0, 1, 2, ... in the order they
+ * are first seen, so that distances, parents and flags can be kept in primitive arrays
+ * indexed by id instead of in hash maps from nodes to boxed values.
+ *
+ * It is a hash table with open addressing and linear probing: the table holds ids, the
+ * nodes and their hash codes are kept in arrays indexed by id, and a probe only calls
+ * {@code equals} when the hash codes agree. {@link #intern} looks a node up and adds it
+ * if it is new with a single probe sequence, so a search needs exactly one hash lookup
+ * per generated node. Growing the table reuses the stored hash codes.
+ */
+public class NodeIndex<V> {
+
+    private Object[] nodes;   // id -> node
+    private int[] hashes;     // id -> hash code of the node
+    private int[] table;      // slot -> id + 1, or 0 if the slot is empty
+    private int shift;        // 32 - log2(table.length)
+    private int size;
+
+
+    /**
+     * Creates an empty index.
+     */
+    public NodeIndex() {
+        this(1024);
+    }
+
+
+    /**
+     * Creates an empty index with room for {@code capacity} nodes before it grows.
+     * @param capacity  the expected number of nodes
+     */
+    public NodeIndex(int capacity) {
+        capacity = Math.max(capacity, 16);
+        nodes = new Object[capacity];
+        hashes = new int[capacity];
+        int slots = Integer.highestOneBit(capacity - 1) << 2;  // at most half full
+        table = new int[slots];
+        shift = 32 - Integer.numberOfTrailingZeros(slots);
+    }
+
+
+    /**
+     * @return the number of nodes with ids
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @param  id  an id
+     * @return the node with id {@code id}
+     */
+    @SuppressWarnings("unchecked")
+    public V node(int id) {
+        return (V) nodes[id];
+    }
+
+
+    /**
+     * @param  node  a node
+     * @return the id of {@code node}, or -1 if it has none
+     */
+    public int id(V node) {
+        int hash = node.hashCode();
+        for (int slot = slot(hash); ; slot = (slot + 1) & (table.length - 1)) {
+            int id = table[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && nodes[id].equals(node)) return id;
+        }
+    }
+
+
+    /**
+     * Returns the id of {@code node}, giving it the next id if it has none. The node is
+     * new exactly if the returned id is the old {@link #size}.
+     * @param  node  a node
+     * @return the id of {@code node}
+     */
+    public int intern(V node) {
+        int hash = node.hashCode();
+        int slot = slot(hash);
+        for (; ; slot = (slot + 1) & (table.length - 1)) {
+            int id = table[slot] - 1;
+            if (id < 0) break;
+            if (hashes[id] == hash && nodes[id].equals(node)) return id;
+        }
+        int id = size++;
+        if (id == nodes.length) {
+            nodes = Arrays.copyOf(nodes, 2 * id);
+            hashes = Arrays.copyOf(hashes, 2 * id);
+        }
+        nodes[id] = node;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (2 * size > table.length)
+            rehash();
+        return id;
+    }
+
+
+    /** Fibonacci hashing: the high bits of the hash code times the golden ratio. */
+    private int slot(int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        shift--;
+        for (int id = 0; id < size; id++) {
+            int slot = slot(hashes[id]);
+            while (table[slot] != 0)
+                slot = (slot + 1) & (table.length - 1);
+            table[slot] = id + 1;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+import java.lang.ref.Reference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+
+/**
+ * Compares {@code PathFinder.searchDijkstra}/{@code searchAstar}, which intern the nodes
+ * in a {@link NodeIndex} and keep their state in primitive arrays, with the hash map
+ * version they replaced (kept here as {@link #mapSearch}: a visited set, maps from nodes
+ * to boxed distances, estimates and parents, and a {@code PriorityQueue} of nodes).
+ *
+ * For every query it checks that both find the same cost, and reports the settled
+ * nodes, the average wall time and the allocated bytes per settled node of each. On
+ * {@code RANDOM} random states of the 3x3 puzzle, whose estimate is not consistent, it
+ * also checks that both find the same costs and settle the same number of nodes. For
+ * every graph it then reports the memory that the two versions keep per node, measured
+ * on the heap with all nodes reachable from the first start (at most {@code LIMIT}),
+ * not counting the node objects themselves, which both versions share.
+ */
+public class NodeIndexBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+    private static final int LIMIT = 200_000;
+    private static final int RANDOM = 50;
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, as {@code PathFinder}
+     * did it before {@link NodeIndex}.
+     * @return the cost, and the number of settled nodes in {@code settled[0]}
+     */
+    private static <V> double mapSearch(DirectedGraph<V> graph, V start, V goal, boolean useHeuristic, int[] settled) {
+        Set<V> visited = new HashSet<>();
+        HashMap<V,Double> distTo = new HashMap<>();
+        HashMap<V,Double> estDistTo = new HashMap<>();
+        HashMap<V,V> edgeTo = new HashMap<>();
+        PriorityQueue<V> toBeVisited = new PriorityQueue<>(Comparator.comparing(estDistTo::get));
+        distTo.put(start, 0.0);
+        estDistTo.put(start, useHeuristic ? graph.guessCost(start, goal) : 0.0);
+        toBeVisited.add(start);
+        while (!toBeVisited.isEmpty()) {
+            V v = toBeVisited.remove();
+            if (!visited.add(v)) continue;
+            if (v.equals(goal)) {
+                settled[0] = visited.size();
+                return distTo.get(goal);
+            }
+            graph.forEachOutgoing(v, (w, weight) -> {
+                double newDist = distTo.get(v) + weight;
+                Double old = distTo.get(w);
+                if (old != null && old <= newDist) return;
+                distTo.put(w, newDist);
+                edgeTo.put(w, v);
+                estDistTo.put(w, useHeuristic ? newDist + graph.guessCost(w, goal) : newDist);
+                toBeVisited.add(w);
+            });
+        }
+        settled[0] = visited.size();
+        return -1;
+    }
+
+
+    private interface Search {
+        double search(int[] settled);
+    }
+
+
+    /** Runs a search and prints one line; returns its cost. */
+    private static double run(String name, String label, Object start, Search search) {
+        int[] settled = new int[1];
+        Measurement<Double> measurement = Measurement.of(WARMUP, ROUNDS, () -> search.search(settled));
+        double cost = measurement.result;
+
+        System.out.println(String.format("%-16s %-16s %-8s cost %9.2f  settled %7d  %9.3f ms  bytes/settled %5d",
+                                         name, start, label, cost, settled[0], measurement.nanosPerOperation() / 1e6,
+                                         measurement.bytesPerOperation() / Math.max(1, settled[0])));
+        return cost;
+    }
+
+
+    private static <V> void compare(String name, DirectedGraph<V> graph, V start, V goal) {
+        PathFinder<V> finder = new PathFinder<>(graph);
+        for (boolean useHeuristic : new boolean[] {false, true}) {
+            String algorithm = useHeuristic ? "astar" : "dijkstra";
+            double before = run(name, "maps", start, settled -> mapSearch(graph, start, goal, useHeuristic, settled));
+            double after = run(name, algorithm, start, settled -> {
+                PathFinder<V>.Result<V> result = useHeuristic ? finder.searchAstar(start, goal) : finder.searchDijkstra(start, goal);
+                settled[0] = result.visitedNodes;
+                return result.cost;
+            });
+            if (before != after)
+                throw new AssertionError(name + " " + start + " -> " + goal + ": " + algorithm + " costs " + after + ", not " + before);
+        }
+    }
+
+
+    /**
+     * Checks that {@code PathFinder} finds the same costs and settles as many nodes as
+     * {@link #mapSearch} from {@code RANDOM} random states of a puzzle.
+     */
+    private static void compareRandom(String name, NPuzzle puzzle, String goal) {
+        PathFinder<String> finder = new PathFinder<>(puzzle);
+        Random random = new Random(1);
+        int[] settled = new int[1];
+        for (int i = 0; i < RANDOM; i++) {
+            String start = puzzle.randomState(goal, 1000, random);
+            for (boolean useHeuristic : new boolean[] {false, true}) {
+                double before = mapSearch(puzzle, start, goal, useHeuristic, settled);
+                PathFinder<String>.Result<String> result = useHeuristic ? finder.searchAstar(start, goal) : finder.searchDijkstra(start, goal);
+                if (result.cost != before || result.visitedNodes != settled[0])
+                    throw new AssertionError(String.format("%s %s -> %s: %s costs %s and settles %d, not %s and %d", name, start, goal,
+                                                           useHeuristic ? "astar" : "dijkstra", result.cost,
+                                                           result.visitedNodes, before, settled[0]));
+            }
+        }
+        System.out.println(String.format("%-16s %d random states: the same costs and settled nodes as with maps", name, RANDOM));
+    }
+
+
+    /**
+     * Prints the bytes per node that the maps of {@link #mapSearch} and the index and
+     * arrays of {@code PathFinder} retain, filled with the nodes reachable from {@code start}.
+     */
+    private static <V> void footprint(String name, DirectedGraph<V> graph, V start) {
+        List<V> nodes = new ArrayList<>();
+        Set<V> seen = new HashSet<>();
+        nodes.add(start);
+        seen.add(start);
+        for (int i = 0; i < nodes.size() && nodes.size() < LIMIT; i++)
+            graph.forEachOutgoing(nodes.get(i), (w, weight) -> { if (nodes.size() < LIMIT && seen.add(w)) nodes.add(w); });
+
+        double maps = bytesPerNode(nodes, NodeIndexBenchmark::fillMaps);
+        double arrays = bytesPerNode(nodes, NodeIndexBenchmark::fillArrays);
+        System.out.println(String.format("%-16s %7d nodes: maps %6.1f bytes/node, NodeIndex and arrays %6.1f bytes/node",
+                                         name, nodes.size(), maps, arrays));
+        System.out.println();
+    }
+
+
+    /** Fills copies of the structures for together at least {@code LIMIT} nodes, so that small graphs are measurable. */
+    private static <V> double bytesPerNode(List<V> nodes, Function<List<V>, Object> fill) {
+        Object[] copies = new Object[(LIMIT + nodes.size() - 1) / nodes.size()];
+        long before = Measurement.usedMemory();
+        for (int i = 0; i < copies.length; i++)
+            copies[i] = fill.apply(nodes);
+        long after = Measurement.usedMemory();
+        Reference.reachabilityFence(copies);
+        return (double) (after - before) / copies.length / nodes.size();
+    }
+
+
+    /** The structures of {@link #mapSearch} with an entry for every node. */
+    private static <V> Object fillMaps(List<V> nodes) {
+        Set<V> visited = new HashSet<>();
+        HashMap<V,Double> distTo = new HashMap<>();
+        HashMap<V,Double> estDistTo = new HashMap<>();
+        HashMap<V,V> edgeTo = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            V v = nodes.get(i);
+            visited.add(v);
+            distTo.put(v, (double) i);
+            estDistTo.put(v, i + 0.5);
+            edgeTo.put(v, nodes.get(i / 2));
+        }
+        return new Object[] {visited, distTo, estDistTo, edgeTo};
+    }
+
+
+    /** The index and arrays of {@code PathFinder.searchAstar} with every node, grown the same way. */
+    private static <V> Object fillArrays(List<V> nodes) {
+        NodeIndex<V> index = new NodeIndex<>();
+        double[] distTo = new double[1024], estimate = new double[1024];
+        int[] parent = new int[1024];
+        boolean[] settled = new boolean[1024];
+        for (int i = 0; i < nodes.size(); i++) {
+            int w = index.intern(nodes.get(i));
+            if (w == distTo.length) {
+                distTo = Arrays.copyOf(distTo, 2 * w);
+                estimate = Arrays.copyOf(estimate, 2 * w);
+                parent = Arrays.copyOf(parent, 2 * w);
+                settled = Arrays.copyOf(settled, 2 * w);
+            }
+            distTo[w] = i;
+            estimate[w] = i + 0.5;
+            parent[w] = i / 2;
+            settled[w] = true;
+        }
+        return new Object[] {index, distTo, estimate, parent, settled};
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs";
+            NPuzzle puzzle = new NPuzzle(3);
+            compare("NPuzzle 3", puzzle, "/CBA/DEF/_HG/", "/ABC/DEF/GH_/");
+            compare("NPuzzle 3", puzzle, "/HFG/BED/C_A/", "/ABC/DEF/GH_/");
+            compare("NPuzzle 3", puzzle, "/_HF/CBD/EGA/", "/ABC/DEF/GH_/");
+            compareRandom("NPuzzle 3", puzzle, "/ABC/DEF/GH_/");
+            footprint("NPuzzle 3", puzzle, "/CBA/DEF/_HG/");
+
+            WordLadder words = new WordLadder(dir + "/WordLadder/words-romaner.txt");
+            compare("words-romaner", words, "katter", "hundar");
+            compare("words-romaner", words, "mamma", "pappa");
+            footprint("words-romaner", words, "katter");
+
+            GridGraph grid = new GridGraph(dir + "/GridGraph/AR0012SR.map");
+            compare("AR0012SR", grid, new GridGraph.Coord(11, 73), new GridGraph.Coord(85, 127));
+            footprint("AR0012SR", grid, new GridGraph.Coord(11, 73));
+
+            AdjacencyGraph europe = new AdjacencyGraph(dir + "/AdjacencyGraph/citygraph-EU.txt");
+            compare("citygraph-EU", europe, "Volos, Greece", "Oulu, Finland");
+            footprint("citygraph-EU", europe, "Volos, Greece");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java NodeIndexBenchmark [graph-directory]");
+            System.exit(1);
+        }
+    }
+
+}
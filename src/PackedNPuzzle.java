@@ -0,0 +1,550 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * The same graph as {@link NPuzzle}, but with states packed into a {@code long}:
+ * position {@code p} (row-major, 0..N*N-1) holds the tile number in bits
+ * {@code 4p..4p+3}, where tile 0 is the empty tile and tile {@code i} is the
+ * i:th letter. This works for sizes {@code 2 <= N <= 4}.
+ *
+ * As a {@code DirectedGraph<String>} the nodes are the usual {@code /ABC/DEF/GH_/}
+ * strings, so it can be used wherever an NPuzzle is used. {@link PathFinder} uses
+ * {@link #search} instead of its own searches, which works on packed states only:
+ * moves are O(1) bit operations, the Manhattan distance is updated incrementally,
+ * and each generated state takes about a dozen bytes in a primitive hash table
+ * (the state, its distance and one byte holding the blank position and the move
+ * that reached it).
+ */
+public class PackedNPuzzle implements DirectedGraph<String>, StateCodec<String> {
+
+    private final int N;
+    private final int[][] moves;     // moves[p] = the blank positions reachable from blank position p
+    private final int[][] moveDirs;  // moveDirs[p][i] = the direction of moves[p][i]
+    private final int[] delta;       // delta[dir] = the change in blank position for direction dir
+    private PatternDatabase patternDatabase;
+    private volatile GoalTable goalTable;  // the Manhattan table of the last goal of guessCost
+
+    private static char separator = '/';
+    private static String tiles = "_ABCDEFGHIJKLMNO";
+
+
+    public PackedNPuzzle(int N) {
+        if (N < 2 || N > 4) {
+            throw new IllegalArgumentException("We only support sizes of 2 <= N <= 4.");
+        }
+        this.N = N;
+        delta = new int[] {-1, +1, -N, +N};  // left, right, up, down -- the same order as NPuzzle
+        moves = new int[N*N][];
+        moveDirs = new int[N*N][];
+        for (int p = 0; p < N*N; p++) {
+            int row = p / N, col = p % N;
+            int[] m = new int[4], d = new int[4];
+            int k = 0;
+            if (col > 0)   { m[k] = p-1; d[k++] = 0; }
+            if (col < N-1) { m[k] = p+1; d[k++] = 1; }
+            if (row > 0)   { m[k] = p-N; d[k++] = 2; }
+            if (row < N-1) { m[k] = p+N; d[k++] = 3; }
+            moves[p] = Arrays.copyOf(m, k);
+            moveDirs[p] = Arrays.copyOf(d, k);
+        }
+    }
+
+
+    /**
+     * Makes A* and {@code guessCost} use a pattern database heuristic instead of the
+     * Manhattan distance, whenever the goal is the goal of the database.
+     * @param  patternDatabase  the pattern database, or null for the Manhattan distance
+     */
+    public void setPatternDatabase(PatternDatabase patternDatabase) {
+        this.patternDatabase = patternDatabase;
+    }
+
+
+    /**
+     * @return the size of the puzzle
+     */
+    public int size() {
+        return N;
+    }
+
+
+    /**
+     * Converts a state from the string format used by {@link NPuzzle}.
+     * @param  state  a state such as {@code /ABC/DEF/GH_/}
+     * @return the packed state
+     * @throws IllegalArgumentException if the string is not a state of this puzzle
+     */
+    public long pack(String state) {
+        if (state.length() != N*(N+1) + 1)
+            throw new IllegalArgumentException("Not a " + N + "x" + N + " state: " + state);
+        long packed = 0;
+        int seen = 0;
+        for (int p = 0; p < N*N; p++) {
+            int tile = tiles.indexOf(state.charAt(1 + p + p / N));
+            if (tile < 0 || tile >= N*N || (seen & (1 << tile)) != 0)
+                throw new IllegalArgumentException("Not a " + N + "x" + N + " state: " + state);
+            seen |= 1 << tile;
+            packed |= (long) tile << (4*p);
+        }
+        return packed;
+    }
+
+
+    /**
+     * Converts a packed state back to the string format used by {@link NPuzzle}.
+     * @param  state  the packed state
+     * @return the state as a string such as {@code /ABC/DEF/GH_/}
+     */
+    public String unpack(long state) {
+        char[] s = new char[N*(N+1) + 1];
+        s[0] = separator;
+        for (int p = 0; p < N*N; p++) {
+            s[1 + p + p / N] = tiles.charAt(tile(state, p));
+            if (p % N == N-1) s[2 + p + p / N] = separator;
+        }
+        return new String(s);
+    }
+
+
+    /**
+     * @param  state  a state as a string
+     * @return the packed state, as a record for {@link ExternalSearch}
+     */
+    public long encode(String state) {
+        return pack(state);
+    }
+
+
+    /**
+     * @param  record  a packed state
+     * @return the state as a string
+     */
+    public String decode(long record) {
+        return unpack(record);
+    }
+
+
+    /**
+     * @param  state  a packed state
+     * @param  pos    a position
+     * @return the tile at position {@code pos}
+     */
+    public static int tile(long state, int pos) {
+        return (int) (state >>> (4*pos)) & 0xF;
+    }
+
+
+    /**
+     * @param  state  a packed state
+     * @return the position of the empty tile
+     */
+    public int blank(long state) {
+        for (int p = 0; p < N*N; p++)
+            if (tile(state, p) == 0) return p;
+        throw new IllegalArgumentException("State has no empty tile");
+    }
+
+
+    /**
+     * Moves the tile at {@code newBlank} into the empty position {@code blank}.
+     * @param  state     a packed state
+     * @param  blank     the position of the empty tile
+     * @param  newBlank  a position next to {@code blank}
+     * @return the new packed state
+     */
+    public static long move(long state, int blank, int newBlank) {
+        long tile = (state >>> (4*newBlank)) & 0xF;
+        return state - (tile << (4*newBlank)) + (tile << (4*blank));
+    }
+
+
+    /**
+     * @param  goal  a packed goal state
+     * @return a table {@code md[tile][pos]} of the Manhattan distance from {@code pos}
+     *         to the position of {@code tile} in {@code goal} (zero for the empty tile)
+     */
+    private int[][] manhattanTable(long goal) {
+        int[][] md = new int[N*N][N*N];
+        for (int q = 0; q < N*N; q++) {
+            int tile = tile(goal, q);
+            if (tile == 0) continue;
+            for (int p = 0; p < N*N; p++)
+                md[tile][p] = Math.abs(p / N - q / N) + Math.abs(p % N - q % N);
+        }
+        return md;
+    }
+
+
+    private static int manhattan(long state, int[][] md, int size) {
+        int h = 0;
+        for (int p = 0; p < size; p++)
+            h += md[tile(state, p)][p];
+        return h;
+    }
+
+
+    /**
+     * @param  v  the node
+     * @return the edges incident on node {@code v} as a List
+     */
+    public List<DirectedEdge<String>> outgoingEdges(String v) {
+        List<DirectedEdge<String>> outgoing = new ArrayList<>(4);
+        forEachOutgoing(v, (w, weight) -> outgoing.add(new DirectedEdge<>(v, w)));
+        return outgoing;
+    }
+
+
+    public void forEachOutgoing(String v, EdgeConsumer<String> action) {
+        long state = pack(v);
+        int blank = blank(state);
+        for (int newBlank : moves[blank])
+            action.accept(unpack(move(state, blank, newBlank)), 1.0);
+    }
+
+
+    /**
+     * @return true, since every move can be undone by moving the same tile back
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
+
+    /**
+     * @return true, since every move costs 1
+     */
+    public boolean hasUnitWeights() {
+        return true;
+    }
+
+
+    /**
+     * @param  v  one state
+     * @param  w  the other state
+     * @return the pattern database estimate if there is one for {@code w}, otherwise
+     *         the total Manhattan distance of the tiles (not counting the empty tile)
+     */
+    public double guessCost(String v, String w) {
+        GoalTable table = goalTable;
+        if (table == null || !table.goal.equals(w)) {
+            long goal = pack(w);
+            goalTable = table = new GoalTable(w, goal, manhattanTable(goal));
+        }
+        if (patternDatabase != null && patternDatabase.hasGoal(table.packed))
+            return patternDatabase.estimate(pack(v));
+        return manhattan(pack(v), table.md, N*N);
+    }
+
+
+    /**
+     * A goal with its packed state and Manhattan table, so that {@code guessCost} only
+     * builds the table when the goal changes. It is replaced as a whole, so threads
+     * sharing the puzzle never see a table of another goal.
+     */
+    private static class GoalTable {
+        final String goal;
+        final long packed;
+        final int[][] md;
+
+        GoalTable(String goal, long packed, int[][] md) {
+            this.goal = goal;
+            this.packed = packed;
+            this.md = md;
+        }
+    }
+
+
+    /**
+     * The outcome of {@link #search}.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final int cost;
+        public final List<String> path;  // from the goal back to (but not including) the start
+        public final int visitedNodes;
+        public final int generatedNodes;
+        public final long tableBytes;    // the size of the state table and queue at the end of the search
+        public final long pathStartNanos;  // System.nanoTime() when the path was started, or 0
+
+        Solution(boolean success, int cost, List<String> path, int visitedNodes, int generatedNodes, long tableBytes,
+                 long pathStartNanos) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+            this.generatedNodes = generatedNodes;
+            this.tableBytes = tableBytes;
+            this.pathStartNanos = pathStartNanos;
+        }
+    }
+
+
+    /**
+     * Finds a shortest path with Dijkstra's algorithm, or with A* if {@code useHeuristic}
+     * is set, working on packed states only. A* uses the pattern database if there is one
+     * for the goal, and the Manhattan distance otherwise.
+     * @param  start         the start state as a string
+     * @param  goal          the goal state as a string
+     * @param  useHeuristic  true for A*
+     * @return the solution
+     */
+    public Solution search(String start, String goal, boolean useHeuristic) {
+        return search(start, goal, useHeuristic, null);
+    }
+
+
+    /**
+     * {@link #search(String, String, boolean)}, reporting the events of the search to a
+     * listener. The listener is a parameter, not a field, since a puzzle is shared by the
+     * path finders of all threads.
+     * @param  start         the start state as a string
+     * @param  goal          the goal state as a string
+     * @param  useHeuristic  true for A*
+     * @param  listener      the listener, or null for none
+     * @return the solution
+     */
+    public Solution search(String start, String goal, boolean useHeuristic, SearchListener listener) {
+        long s = pack(start);
+        long t = pack(goal);
+        int[][] md = manhattanTable(t);
+        PatternDatabase pdb = useHeuristic && patternDatabase != null && patternDatabase.hasGoal(t) ? patternDatabase : null;
+        StateTable table = new StateTable();
+        StateQueue queue = new StateQueue();
+
+        int h0 = pdb != null ? pdb.estimate(s) : useHeuristic ? manhattan(s, md, N*N) : 0;
+        int slot = table.insert(s);
+        table.g[slot] = 0;
+        table.info[slot] = (byte) (GENERATED | blank(s));
+        queue.push(s, key(h0, 0));
+        if (listener != null) {
+            listener.pushed(1);
+            if (useHeuristic) listener.heuristicCalled();
+        }
+        int visitedNodes = 0;
+
+        while (!queue.isEmpty()) {
+            int key = queue.minKey();
+            long state = queue.pop();
+            slot = table.find(state);
+            int g = table.g[slot];
+            byte info = table.info[slot];
+            boolean stale = (info & CLOSED) != 0 || 255 - (key & 0xFF) != g;
+            if (listener != null) listener.popped(stale);
+            if (stale)
+                continue;  // already settled, or a stale entry whose distance has since improved
+            table.info[slot] = (byte) (info | CLOSED);
+            visitedNodes++;
+
+            if (state == t) {
+                long pathStartNanos = System.nanoTime();
+                if (listener != null) listener.pathStarted();
+                return new Solution(true, g, path(table, state, s), visitedNodes, table.size, table.bytes() + queue.bytes(),
+                                    pathStartNanos);
+            }
+
+            int blank = info & BLANK;
+            int h = (key >>> 8) - g;
+            for (int i = 0; i < moves[blank].length; i++) {
+                int newBlank = moves[blank][i];
+                long next = move(state, blank, newBlank);
+                int tile = tile(state, newBlank);
+                int nextH = pdb != null ? pdb.estimate(next)
+                          : useHeuristic ? h - md[tile][newBlank] + md[tile][blank] : 0;
+                if (listener != null && useHeuristic) listener.heuristicCalled();
+                int nextSlot = table.insert(next);
+                byte nextInfo = table.info[nextSlot];
+                if (nextInfo != 0 && table.g[nextSlot] <= g + 1) {
+                    if (listener != null) listener.relaxed(false);
+                    continue;  // a settled state is reopened if it is reached more cheaply (possible with a pattern database)
+                }
+                table.g[nextSlot] = (byte) (g + 1);
+                table.info[nextSlot] = (byte) (GENERATED | (moveDirs[blank][i] << 4) | newBlank);
+                queue.push(next, key(g + 1 + nextH, g + 1));
+                if (listener != null) {
+                    listener.relaxed(true);
+                    listener.pushed(queue.n);
+                }
+            }
+        }
+        return new Solution(false, -1, null, visitedNodes, table.size, table.bytes() + queue.bytes(), 0);
+    }
+
+
+    // Layout of the info byte of a state: bits 0-3 blank position, bits 4-5 the direction
+    // the blank moved to reach the state, bit 6 closed, bit 7 set once the state has been generated.
+    private static final int BLANK = 0x0F;
+    private static final int CLOSED = 0x40;
+    private static final int GENERATED = 0x80;
+
+
+    // Priority: f first, then larger g first (which finds the goal earlier among equal f values).
+    private static int key(int f, int g) {
+        return (f << 8) | (255 - g);
+    }
+
+
+    private List<String> path(StateTable table, long state, long start) {
+        List<String> path = new ArrayList<>();
+        while (state != start) {
+            path.add(unpack(state));
+            byte info = table.info[table.find(state)];
+            int blank = info & BLANK;
+            int parentBlank = blank - delta[(info >>> 4) & 3];
+            state = move(state, blank, parentBlank);
+        }
+        return path;
+    }
+
+
+    /**
+     * An open-addressing hash table from packed states to their distance and info byte.
+     * The state 0 is never a valid state for N >= 2, so it marks empty slots.
+     */
+    private static class StateTable {
+        long[] keys = new long[1 << 10];
+        byte[] g = new byte[1 << 10];
+        byte[] info = new byte[1 << 10];
+        int size;
+
+        int find(long state) {
+            int mask = keys.length - 1;
+            int i = hash(state) & mask;
+            while (keys[i] != state) {
+                if (keys[i] == 0) return -1;
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /** Returns the slot of {@code state}, inserting it (with info 0) if it is new. */
+        int insert(long state) {
+            if (4 * size >= 3 * keys.length) grow();
+            int mask = keys.length - 1;
+            int i = hash(state) & mask;
+            while (keys[i] != state) {
+                if (keys[i] == 0) {
+                    keys[i] = state;
+                    size++;
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        void grow() {
+            long[] oldKeys = keys;
+            byte[] oldG = g, oldInfo = info;
+            keys = new long[2 * oldKeys.length];
+            g = new byte[keys.length];
+            info = new byte[keys.length];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                g[i] = oldG[j];
+                info[i] = oldInfo[j];
+            }
+        }
+
+        long bytes() {
+            return 10L * keys.length;
+        }
+
+        static int hash(long state) {
+            long h = state * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+
+    /**
+     * A binary min-heap of packed states with int priorities, using lazy deletion.
+     */
+    private static class StateQueue {
+        long[] states = new long[1 << 10];
+        int[] keys = new int[1 << 10];
+        int n;
+
+        boolean isEmpty() {
+            return n == 0;
+        }
+
+        int minKey() {
+            return keys[0];
+        }
+
+        void push(long state, int key) {
+            if (n == states.length) {
+                states = Arrays.copyOf(states, 2 * n);
+                keys = Arrays.copyOf(keys, 2 * n);
+            }
+            int k = n++;
+            while (k > 0) {
+                int parent = (k - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                states[k] = states[parent];
+                keys[k] = keys[parent];
+                k = parent;
+            }
+            states[k] = state;
+            keys[k] = key;
+        }
+
+        long pop() {
+            long min = states[0];
+            n--;
+            long state = states[n];
+            int key = keys[n];
+            int k = 0;
+            while (2*k + 1 < n) {
+                int child = 2*k + 1;
+                if (child + 1 < n && keys[child + 1] < keys[child]) child++;
+                if (key <= keys[child]) break;
+                states[k] = states[child];
+                keys[k] = keys[child];
+                k = child;
+            }
+            states[k] = state;
+            keys[k] = key;
+            return min;
+        }
+
+        long bytes() {
+            return 12L * states.length;
+        }
+    }
+
+
+    /**
+     * @return a string representation of the puzzle graph
+     */
+    public String toString() {
+        return "Packed NPuzzle graph of size " + N + " x " + N + ", one long per state";
+    }
+
+
+    /**
+     * Unit tests the class
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            PackedNPuzzle puzzle = new PackedNPuzzle(Integer.valueOf(args[0]));
+            long state = puzzle.pack(args[1]);
+            System.out.println(puzzle + "\n" + args[1] + " = 0x" + Long.toHexString(state) + " = " + puzzle.unpack(state));
+            System.out.println(puzzle.outgoingEdges(args[1]));
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java PackedNPuzzle size state");
+            System.exit(1);
+        }
+    }
+
+}
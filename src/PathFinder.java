@@ -3,12 +3,27 @@ import java.beans.beancontext.BeanContextChild;
 import java.util.*;
 
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 
 public class PathFinder<V> {
 
     private DirectedGraph<V> graph;
-    private long startTimeMillis;
+    private long startNanos;       // System.nanoTime() when the current search started
+    private long pathStartNanos;   // when it started to build the path, or 0
+    private boolean indexedQueue;
+    private long queueOperations;
+    private List<Iteration> iterations = new ArrayList<>();
+    private GridSearch gridSearch;  // reused by the grid searches of this path finder
+    private JumpPointSearch jumpPointSearch;
+    private CompactSearch compactSearch;
+    private DeltaStepping deltaStepping;
+    private SearchListener listener;
 
     public PathFinder(DirectedGraph<V> graph) {
         this.graph = graph;
@@ -21,7 +36,9 @@ public class PathFinder<V> {
         public final double cost;
         public final List<V> path;
         public final int visitedNodes;
-        public final double elapsedTime;
+        public final double elapsedTime;   // in seconds, searchNanos + pathNanos
+        public final long searchNanos;     // until the goal was reached
+        public final long pathNanos;       // building the path, 0 if the search did not time it separately
 
         public Result(boolean success, V start, V goal, double cost, List<V> path, int visitedNodes) {
             this.success = success;
@@ -30,7 +47,11 @@ public class PathFinder<V> {
             this.cost = cost;
             this.path = path;
             this.visitedNodes = visitedNodes;
-            this.elapsedTime = (System.currentTimeMillis() - startTimeMillis) / 1000.0;
+            long endNanos = System.nanoTime();
+            long pathStart = pathStartNanos == 0 ? endNanos : pathStartNanos;
+            this.searchNanos = pathStart - startNanos;
+            this.pathNanos = endNanos - pathStart;
+            this.elapsedTime = (endNanos - startNanos) / 1e9;
         }
 
         public String toString() {
@@ -48,17 +69,393 @@ public class PathFinder<V> {
     }
 
 
+    /**
+     * Selects the priority queue used by {@code searchDijkstra} and {@code searchAstar}.
+     * The default is a {@link LazyMinPQ} with lazy deletion (duplicates are pushed and
+     * skipped when popped); the indexed queue is a binary heap over the same dense node
+     * ids with a position per id and a real decrease-key.
+     *
+     * Both queues give Dijkstra's algorithm, and A* with a consistent estimate, the same
+     * costs; ties between nodes can be broken differently, so the paths and the number of
+     * visited nodes can differ. With an estimate that is not consistent, like the one of
+     * {@link NPuzzle}, the indexed queue settles the nodes in another order, so A* visits
+     * other nodes and can find a path of another cost. {@link QueueBenchmark} checks the
+     * costs and paths of both.
+     *
+     * The option only applies to the searches over nodes. A frozen {@link AdjacencyGraph}
+     * (every graph loaded from a {@link GraphSnapshot}), a {@link GridGraph}, a
+     * {@link WordLadder} with a {@link WordIndex} and a {@link PackedNPuzzle} have their
+     * own searches for dijkstra and astar, which ignore it.
+     * @param indexedQueue  true to use {@link IndexedMinPQ}
+     */
+    public void setIndexedQueue(boolean indexedQueue) {
+        this.indexedQueue = indexedQueue;
+    }
+
+
+    /**
+     * @return the number of priority queue operations (pushes/inserts, decrease-keys and pops)
+     *         performed by the last search
+     */
+    public long queueOperations() {
+        return queueOperations;
+    }
+
+
+    /**
+     * One iteration of {@code searchIdaStar}: the f-cost threshold, the number of nodes
+     * expanded with that threshold, and the time it took.
+     */
+    public static class Iteration {
+        public final double threshold;
+        public final long expandedNodes;
+        public final double elapsedTime;
+
+        public Iteration(double threshold, long expandedNodes, double elapsedTime) {
+            this.threshold = threshold;
+            this.expandedNodes = expandedNodes;
+            this.elapsedTime = elapsedTime;
+        }
+
+        public String toString() {
+            return String.format("threshold %s: %d expanded nodes, %.3f seconds", threshold, expandedNodes, elapsedTime);
+        }
+    }
+
+
+    /**
+     * @return the iterations of the last {@code searchIdaStar}
+     */
+    public List<Iteration> iterations() {
+        return iterations;
+    }
+
+
+    /**
+     * Sets the listener that receives the events of the searches of this path finder,
+     * for example a {@link SearchStats}.
+     * @param listener  the listener, or null for none (the default)
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+
+    /**
+     * @return the listener of this path finder, or null
+     */
+    public SearchListener listener() {
+        return listener;
+    }
+
+
     public Result<V> search(String algorithm, V start, V goal) {
-        startTimeMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        pathStartNanos = 0;
+        queueOperations = 0;
+        if (listener == null)
+            return run(algorithm, start, goal);
+        listener.searchStarted(algorithm, start, goal);
+        Result<V> result = run(algorithm, start, goal);
+        listener.searchFinished(result.success, result.cost, result.visitedNodes);
+        return result;
+    }
+
+
+    private Result<V> run(String algorithm, V start, V goal) {
+        if (graph instanceof AdjacencyGraph && ((AdjacencyGraph) graph).compiled() != null) {
+            CompactGraph compact = ((AdjacencyGraph) graph).compiled();
+            switch (algorithm) {
+            case "dijkstra": return searchCompact(compact, start, goal, false);
+            case "astar":    return searchCompact(compact, start, goal, true);
+            }
+        }
+        if (graph instanceof GridGraph) {
+            switch (algorithm) {
+            case "dijkstra": return searchGrid((GridGraph) graph, start, goal, false);
+            case "astar":    return searchGrid((GridGraph) graph, start, goal, true);
+            }
+        }
+        if (graph instanceof WordLadder && ((WordLadder) graph).index() != null) {
+            WordIndex index = ((WordLadder) graph).index();
+            int s = index.id((String) start);
+            if (s >= 0) {
+                switch (algorithm) {
+                case "dijkstra": return searchWords(index, s, start, goal, false);
+                case "astar":    return searchWords(index, s, start, goal, true);
+                }
+            }
+        }
+        if (graph instanceof PackedNPuzzle) {
+            switch (algorithm) {
+            case "dijkstra": return searchPacked((PackedNPuzzle) graph, start, goal, false);
+            case "astar":    return searchPacked((PackedNPuzzle) graph, start, goal, true);
+            }
+        }
         switch (algorithm) {
         case "random":   return searchRandom(start, goal);
-        case "dijkstra": return searchDijkstra(start, goal);
-        case "astar":    return searchAstar(start, goal);
+        case "dijkstra": return indexedQueue ? searchIndexed(start, goal, false) : searchDijkstra(start, goal);
+        case "astar":    return indexedQueue ? searchIndexed(start, goal, true) : searchAstar(start, goal);
+        case "idastar":  return searchIdaStar(start, goal);
+        case "dial":     return searchBuckets(start, goal, false);
+        case "dialastar": return searchBuckets(start, goal, true);
+        case "bidijkstra": return searchBidirectional(start, goal, false);
+        case "biastar":    return searchBidirectional(start, goal, true);
+        case "jps":
+            if (!(graph instanceof GridGraph))
+                throw new IllegalArgumentException("Jump point search needs a GridGraph");
+            return searchJumpPoints((GridGraph) graph, start, goal);
+        case "ch":
+            if (!(graph instanceof AdjacencyGraph))
+                throw new IllegalArgumentException("Contraction hierarchies need an AdjacencyGraph");
+            return searchHierarchy(((AdjacencyGraph) graph).contract(), start, goal);
+        case "external":
+            if (!(graph instanceof StateCodec))
+                throw new IllegalArgumentException("External search needs a graph that is a StateCodec of its nodes");
+            return searchExternal(start, goal);
+        case "delta":
+            if (!(graph instanceof AdjacencyGraph))
+                throw new IllegalArgumentException("Delta-stepping needs an AdjacencyGraph");
+            ShortestPathTree<V> tree = parallelShortestPathTree(start, ForkJoinPool.commonPool());
+            if (!tree.reaches(goal))
+                return new Result<>(false, start, null, -1, null, tree.size());
+            pathStarted();
+            return new Result<>(true, start, goal, tree.distanceTo(goal), tree.pathTo(goal), tree.size());
         }
         throw new IllegalArgumentException("Unknown search algorithm: " + algorithm);
     }
 
 
+    /**
+     * Computes the distances from {@code source} to every node it can reach, with one
+     * run of Dijkstra's algorithm.
+     * @param  source  the source node
+     * @return the distance to every reachable node
+     */
+    @SuppressWarnings("unchecked")
+    public Map<V, Double> distancesFrom(V source) {
+        CompactGraph compact = compiledGraph();
+        if (compact == null)
+            return settle(source, null, null, Integer.MAX_VALUE);
+        Map<V, Double> distances = new HashMap<>();
+        int s = compact.id((String) source);
+        if (s < 0) {
+            distances.put(source, 0.0);
+            return distances;
+        }
+        CompactSearch search = compactSearch(compact);
+        search.settle(s, null);
+        for (int v = 0; v < compact.nrNodes(); v++)
+            if (search.distance(v) < Double.POSITIVE_INFINITY)
+                distances.put((V) compact.name(v), search.distance(v));
+        return distances;
+    }
+
+
+    /**
+     * Computes the distances from {@code source} to each of {@code targets} with one run
+     * of Dijkstra's algorithm, which stops as soon as all targets are settled.
+     * @param  source   the source node
+     * @param  targets  the target nodes
+     * @return the distance to each target, in the same order, or infinity if it cannot be reached
+     */
+    public double[] distancesFrom(V source, List<V> targets) {
+        CompactGraph compact = compiledGraph();
+        if (compact != null)
+            return distancesFrom(compact, source, ids(compact, targets));
+        Map<V, Double> distances = settle(source, new HashSet<>(targets), null, Integer.MAX_VALUE);
+        double[] result = new double[targets.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = distances.getOrDefault(targets.get(i), Double.POSITIVE_INFINITY);
+        return result;
+    }
+
+
+    /**
+     * Computes the distance from each of {@code sources} to each of {@code targets}, with
+     * one search per source as in {@link #distancesFrom(Object, List)}. The sources are
+     * searched in parallel, each thread with its own path finder over the same graph.
+     * @param  sources  the source nodes
+     * @param  targets  the target nodes
+     * @return the matrix of distances, {@code matrix[i][j]} from source {@code i} to target {@code j}
+     */
+    public double[][] distanceMatrix(List<V> sources, List<V> targets) {
+        CompactGraph compact = compiledGraph();
+        int[] targetIds = compact == null ? null : ids(compact, targets);
+        ThreadLocal<PathFinder<V>> finders = ThreadLocal.withInitial(() -> new PathFinder<>(graph));
+        double[][] matrix = new double[sources.size()][];
+        IntStream.range(0, sources.size()).parallel().forEach(i -> {
+            PathFinder<V> finder = finders.get();
+            matrix[i] = compact == null ? finder.distancesFrom(sources.get(i), targets)
+                                        : finder.distancesFrom(compact, sources.get(i), targetIds);
+        });
+        return matrix;
+    }
+
+
+    /**
+     * Computes the shortest paths from {@code source} to every node it can reach, with
+     * one run of Dijkstra's algorithm.
+     * @param  source    the source node
+     * @param  maxNodes  the largest tree to build
+     * @return the shortest-path tree, or null if more than {@code maxNodes} nodes can be reached
+     */
+    public ShortestPathTree<V> shortestPathTree(V source, int maxNodes) {
+        CompactGraph compact = compiledGraph();
+        int s = compact == null ? -1 : compact.id((String) source);
+        if (s >= 0) {
+            CompactSearch search = compactSearch(compact);
+            int size = search.settle(s, null);
+            if (size > maxNodes) return null;
+            double[] distances = new double[compact.nrNodes()];
+            int[] parents = new int[compact.nrNodes()];
+            for (int v = 0; v < distances.length; v++) {
+                distances[v] = search.distance(v);
+                parents[v] = distances[v] < Double.POSITIVE_INFINITY ? search.parent(v) : -1;
+            }
+            return new ShortestPathTree<>(source, compact, distances, parents, size);
+        }
+        Map<V, V> parent = new HashMap<>();
+        Map<V, Double> distTo = settle(source, null, parent, maxNodes);
+        if (distTo == null) return null;
+        return new ShortestPathTree<>(source, distTo, parent);
+    }
+
+
+    /**
+     * Computes the shortest paths from {@code source} to every node it can reach with
+     * {@link DeltaStepping}, which relaxes the edges in parallel on {@code pool}. The graph
+     * must be an {@link AdjacencyGraph}, which is frozen if it is not already. The tree
+     * holds the distance and parent arrays over the node ids of the compiled graph, and
+     * {@link #search(ShortestPathTree, Object)} turns it into a result for any goal.
+     * @param  source  the source node
+     * @param  pool    the pool to relax the edges on
+     * @return the shortest-path tree
+     */
+    @SuppressWarnings("unchecked")
+    public ShortestPathTree<V> parallelShortestPathTree(V source, ForkJoinPool pool) {
+        if (!(graph instanceof AdjacencyGraph))
+            throw new IllegalArgumentException("Delta-stepping needs an AdjacencyGraph");
+        CompactGraph compact = ((AdjacencyGraph) graph).freeze();
+        int s = compact.id((String) source);
+        if (s < 0) {  // the source has no edges at all
+            Map<V, Double> distTo = new HashMap<>();
+            distTo.put(source, 0.0);
+            return new ShortestPathTree<>(source, distTo, new HashMap<>());
+        }
+        if (deltaStepping == null || deltaStepping.graph() != compact || deltaStepping.pool() != pool)
+            deltaStepping = new DeltaStepping(compact, pool);
+        int size = deltaStepping.run(s);
+        return new ShortestPathTree<>(source, compact, deltaStepping.distances(), deltaStepping.parents(), size);
+    }
+
+
+    /**
+     * Answers a query from a shortest-path tree, without searching.
+     * @param  tree  a shortest-path tree whose source is the start of the query
+     * @param  goal  the goal
+     * @return the result, with no visited nodes
+     */
+    public Result<V> search(ShortestPathTree<V> tree, V goal) {
+        startNanos = System.nanoTime();
+        pathStartNanos = 0;
+        queueOperations = 0;
+        if (!tree.reaches(goal))
+            return new Result<>(false, tree.source(), null, -1, null, 0);
+        pathStarted();
+        return new Result<>(true, tree.source(), goal, tree.distanceTo(goal), tree.pathTo(goal), 0);
+    }
+
+
+    /**
+     * Marks that the current search reached its goal and starts to build the path,
+     * and reports it to the listener.
+     */
+    private void pathStarted() {
+        pathStartNanos = System.nanoTime();
+        if (listener != null) listener.pathStarted();
+    }
+
+
+    /**
+     * {@code graph.guessCost}, reported to the listener.
+     */
+    private double guessCost(V v, V goal) {
+        if (listener != null) listener.heuristicCalled();
+        return graph.guessCost(v, goal);
+    }
+
+
+    private CompactGraph compiledGraph() {
+        return graph instanceof AdjacencyGraph ? ((AdjacencyGraph) graph).compiled() : null;
+    }
+
+
+    private CompactSearch compactSearch(CompactGraph compact) {
+        if (compactSearch == null || compactSearch.graph() != compact)
+            compactSearch = new CompactSearch(compact);
+        return compactSearch;
+    }
+
+
+    private static <V> int[] ids(CompactGraph compact, List<V> nodes) {
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = compact.id((String) nodes.get(i));
+        return ids;
+    }
+
+
+    private double[] distancesFrom(CompactGraph compact, V source, int[] targets) {
+        double[] result = new double[targets.length];
+        int s = compact.id((String) source);
+        if (s < 0) {  // the source has no edges at all, like in searchCompact
+            Arrays.fill(result, Double.POSITIVE_INFINITY);
+            return result;
+        }
+        CompactSearch search = compactSearch(compact);
+        search.settle(s, targets);
+        for (int i = 0; i < result.length; i++)
+            result[i] = search.distance(targets[i]);
+        return result;
+    }
+
+
+    /**
+     * Dijkstra's algorithm from {@code source} over any graph, until every node in
+     * {@code targets} is settled, or every reachable node if {@code targets} is null.
+     * The node before every settled node is put in {@code parents}, unless it is null.
+     * @return the distances of the settled nodes, or null if more than {@code maxNodes}
+     *         nodes would be settled
+     */
+    private Map<V, Double> settle(V source, Set<V> targets, Map<V, V> parents, int maxNodes) {
+        Map<V, Double> settled = new HashMap<>();
+        Map<V, Double> distTo = new HashMap<>();
+        PriorityQueue<Map.Entry<V, Double>> toBeVisited = new PriorityQueue<>(Map.Entry.comparingByValue());
+        int remaining = targets == null ? Integer.MAX_VALUE : targets.size();
+        distTo.put(source, 0.0);
+        toBeVisited.add(new AbstractMap.SimpleEntry<>(source, 0.0));
+        while (!toBeVisited.isEmpty() && remaining > 0) {
+            Map.Entry<V, Double> entry = toBeVisited.remove();
+            V v = entry.getKey();
+            double dist = entry.getValue();
+            if (settled.containsKey(v)) continue;  // an outdated entry
+            if (settled.size() == maxNodes) return null;
+            settled.put(v, dist);
+            if (targets != null && targets.contains(v))
+                remaining--;
+            graph.forEachOutgoing(v, (w, weight) -> {  /* RELAX */
+                double newDist = dist + weight;
+                if (settled.containsKey(w) || distTo.getOrDefault(w, Double.POSITIVE_INFINITY) <= newDist) return;
+                distTo.put(w, newDist);
+                if (parents != null) parents.put(w, v);
+                toBeVisited.add(new AbstractMap.SimpleEntry<>(w, newDist));
+            });
+        }
+        return settled;
+    }
+
+
     public Result<V> searchRandom(V start, V goal) {
         int visitedNodes = 0;
         LinkedList<V> path = new LinkedList<>();
@@ -89,161 +486,694 @@ public class PathFinder<V> {
 
 
 
+    /**
+     * Dijkstra's algorithm with a lazy-deletion queue, see {@link #searchLazy}.
+     */
     public Result<V> searchDijkstra(V start, V goal) {
+        return searchLazy(start, goal, false);
+    }
+
+
+    /**
+     * A* with a lazy-deletion queue, see {@link #searchLazy}. The estimate of a node is
+     * computed once, the first time it is generated.
+     */
+    public Result<V> searchAstar(V start, V goal) {
+        return searchLazy(start, goal, true);
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, using a {@link LazyMinPQ}:
+     * a node whose distance improves is inserted again, and the outdated copies are skipped
+     * when they are removed. Every node is interned in a {@link NodeIndex} the first time
+     * it is generated, which is the only hash lookup for it, and its distance, parent,
+     * estimate and settled flag are kept in primitive arrays indexed by its id.
+     *
+     * With an estimate that is not consistent, a settled node can still get a shorter
+     * distance. It is updated and inserted again, but never expanded again, and the
+     * queue orders the copies of a node as the {@code PriorityQueue} of nodes did, so the
+     * costs, paths and visited nodes are the same as those of the search with hash maps
+     * that this replaced (see {@link NodeIndexBenchmark}).
+     */
+    private Result<V> searchLazy(V start, V goal, boolean useHeuristic) {
+        LazySearch search = new LazySearch(goal, useHeuristic);
+        search.id(start);
+        search.toBeVisited.insert(0, search.estimate[0]);
+        if (listener != null) listener.pushed(1);
         int visitedNodes = 0;
-        List<DirectedEdge<V>> neighbours;
-        Set visited = new HashSet<V>();
-
-        HashMap<V,Double> distTo = new HashMap<>(); //Key: V   Value: double      --> distTo("A") = 0.0 , distTo("B") = 3.0
-        HashMap<V,DirectedEdge<V>> edgeTo = new HashMap<>(); // Key: V    Value: edge
-        PriorityQueue<V> toBeVisited = new PriorityQueue<>(new Comparator<V>() {
-            @Override
-            public int compare(V node1, V node2) {
-                Double dist1 = distTo.get(node1);
-                Double dist2 = distTo.get(node2);
-                return dist1.compareTo(dist2);
+
+        while (!search.toBeVisited.isEmpty()) {
+            int v = search.toBeVisited.delMin();
+            if (listener != null) listener.popped(search.settled[v]);
+            if (search.settled[v]) continue;  // an outdated copy
+            search.settled[v] = true;
+            visitedNodes++;
+            V currentNode = search.nodes.node(v);
+
+            if (currentNode.equals(goal)) {
+                pathStarted();
+                ArrayList<V> path = new ArrayList<>();
+                for (int node = v; node != 0; node = search.parent[node])
+                    path.add(search.nodes.node(node));
+                queueOperations = search.toBeVisited.operations();
+                return new Result<V>(true, start, goal, search.distTo[v], path, visitedNodes);
             }
-        });
 
-        /*initializing*/
-        toBeVisited.add(start);
-        neighbours = graph.outgoingEdges(start);
-        V currentNode = start;
-        distTo.put(start,0.0);
+            search.current = v;
+            graph.forEachOutgoing(currentNode, search);  /* RELAX */
+        }
+        queueOperations = search.toBeVisited.operations();
+        return new Result<>(false, start, null, -1, null, visitedNodes);
+    }
 
 
+    /**
+     * The state of {@code searchLazy}, and the edge consumer that relaxes the outgoing
+     * edges of the {@code current} node, like {@link IndexedSearch}.
+     */
+    private class LazySearch implements EdgeConsumer<V> {
+        final NodeIndex<V> nodes = new NodeIndex<>();
+        final LazyMinPQ toBeVisited = new LazyMinPQ(1024);
+        double[] distTo = new double[1024];
+        double[] estimate = new double[1024];
+        int[] parent = new int[1024];
+        boolean[] settled = new boolean[1024];
+        final V goal;
+        final boolean useHeuristic;
+        int current = -1;
 
-        while(!toBeVisited.isEmpty()){
-            currentNode = toBeVisited.remove(); //removes the element with highest priority, the comparator decides.
+        LazySearch(V goal, boolean useHeuristic) {
+            this.goal = goal;
+            this.useHeuristic = useHeuristic;
+        }
 
-            if(!visited.contains(currentNode)) { //only visit non-visited nodes.
-                visited.add(currentNode);
+        /** Returns the id of {@code node}, assigning a fresh one (with infinite distance) if it is new. */
+        int id(V node) {
+            int size = nodes.size();
+            int w = nodes.intern(node);
+            if (w < size) return w;
+            if (w == distTo.length) {
+                distTo = Arrays.copyOf(distTo, 2 * w);
+                estimate = Arrays.copyOf(estimate, 2 * w);
+                parent = Arrays.copyOf(parent, 2 * w);
+                settled = Arrays.copyOf(settled, 2 * w);
+            }
+            distTo[w] = w == 0 ? 0.0 : Double.POSITIVE_INFINITY;
+            estimate[w] = useHeuristic ? guessCost(node, goal) : 0.0;
+            parent[w] = current;
+            return w;
+        }
+
+        public void accept(V to, double weight) {
+            int w = id(to);
+            double newDist = distTo[current] + weight;
+            boolean improved = newDist < distTo[w];  // also for a settled node, which is not expanded again
+            if (listener != null) listener.relaxed(improved);
+            if (!improved) return;
+            distTo[w] = newDist;
+            parent[w] = current;
+            toBeVisited.insert(w, newDist + estimate[w]);
+            if (listener != null) listener.pushed(toBeVisited.size());
+        }
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, using an {@link IndexedMinPQ}.
+     * Every node gets a dense id the first time it is generated; distances and parents are
+     * kept in primitive arrays indexed by that id, and a node whose distance improves has
+     * its priority decreased instead of being pushed a second time.
+     */
+    private Result<V> searchIndexed(V start, V goal, boolean useHeuristic) {
+        IndexedSearch search = new IndexedSearch(goal, useHeuristic);
+        search.id(start);
+        search.toBeVisited.insert(0, useHeuristic ? guessCost(start, goal) : 0.0);
+        if (listener != null) listener.pushed(1);
+        int visitedNodes = 0;
+
+        while (!search.toBeVisited.isEmpty()) {
+            int v = search.toBeVisited.delMin();
+            search.settled[v] = true;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            V currentNode = search.nodes.node(v);
+
+            if (currentNode.equals(goal)) {
+                pathStarted();
+                ArrayList<V> path = new ArrayList<>();
+                for (int node = v; node != 0; node = search.parent[node])
+                    path.add(search.nodes.node(node));
+                queueOperations = search.toBeVisited.operations();
+                return new Result<V>(true, start, goal, search.distTo[v], path, visitedNodes);
+            }
+
+            search.current = v;
+            graph.forEachOutgoing(currentNode, search);  /* RELAX */
+        }
+        queueOperations = search.toBeVisited.operations();
+        return new Result<>(false, start, null, -1, null, visitedNodes);
+    }
 
-                if(currentNode.equals(goal)) {//did we find the goal?
-                    ArrayList<V> path= new ArrayList<>();
-                    V node=currentNode;
-                    while(!node.equals(start)){ //search through path
-                        path.add(node);
-                        node = edgeTo.get(node).from();
-                    }
-                    System.out.println("success");
-                    return new Result<V>(true, start, goal, distTo.get(goal),path, visited.size());
-                }
 
+    /**
+     * The state of {@code searchIndexed}. It is also the edge consumer that relaxes the
+     * outgoing edges of the {@code current} node, so expanding a node allocates nothing
+     * except for newly generated nodes.
+     */
+    private class IndexedSearch implements EdgeConsumer<V> {
+        final NodeIndex<V> nodes = new NodeIndex<>();
+        final IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+        double[] distTo = new double[1024];
+        int[] parent = new int[1024];
+        boolean[] settled = new boolean[1024];
+        final V goal;
+        final boolean useHeuristic;
+        int current = -1;
 
-                neighbours = graph.outgoingEdges(currentNode);
-                for (DirectedEdge<V> edge : neighbours) {  /* RELAX */
-                    V v = edge.from(); //currentNode
-                    V w = edge.to();
-
-                    DirectedEdge<V> incomingEdge = edgeTo.get(currentNode);
-                    //System.out.println(incomingEdge);
-                    //System.out.println(edge);
-
-                  if(incomingEdge==null || !incomingEdge.equals(edge.reverse()))  {
-                      //we always want to visit unvisited nodes. if null, then visit.
-                      //only check outgoing edges. reverse incoming edges to see which one we came from.
-
-                      if (distTo.containsKey(w)) { //if there is a path registered to w already.
-                          if (distTo.get(w) > distTo.get(v) + edge.weight()) { // if the path way is cheaper
-                              Double newDist = distTo.get(v) + edge.weight();
-                              distTo.put(w, newDist); // update the new path
-                              edgeTo.put(w,edge);
-                              toBeVisited.add(w); //add to PQ
-                          }
-
-                      } else { // if we haven't visited w yet
-                          distTo.put(w, distTo.get(v) + edge.weight());
-                          edgeTo.put(w,edge);
-                          toBeVisited.add(w); //add to PQ
-                      }
-                  }
+        IndexedSearch(V goal, boolean useHeuristic) {
+            this.goal = goal;
+            this.useHeuristic = useHeuristic;
+        }
+
+        /** Returns the id of {@code node}, assigning a fresh one (with infinite distance) if it is new. */
+        int id(V node) {
+            int size = nodes.size();
+            int w = nodes.intern(node);
+            if (w < size) return w;
+            if (w == distTo.length) {
+                distTo = Arrays.copyOf(distTo, 2 * w);
+                parent = Arrays.copyOf(parent, 2 * w);
+                settled = Arrays.copyOf(settled, 2 * w);
+            }
+            distTo[w] = w == 0 ? 0.0 : Double.POSITIVE_INFINITY;
+            parent[w] = current;
+            return w;
+        }
+
+        public void accept(V to, double weight) {
+            int w = id(to);
+            double newDist = distTo[current] + weight;
+            if (listener != null) listener.relaxed(!settled[w] && newDist < distTo[w]);
+            if (settled[w] || distTo[w] <= newDist) return;
+            distTo[w] = newDist;
+            parent[w] = current;
+            toBeVisited.insertOrDecrease(w, useHeuristic ? newDist + guessCost(to, goal) : newDist);
+            if (listener != null) listener.pushed(toBeVisited.size());
+        }
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, for graphs whose edge
+     * weights are integers, with a {@link BucketQueue} (Dial's algorithm) instead of a
+     * comparison-based queue. Distances are kept as {@code int}s. A* buckets the nodes on
+     * {@code g + ceil(guessCost)}: since every path costs an integer, rounding up an
+     * estimate that is a lower bound keeps it one, and keeps it consistent if it was.
+     * Rounding does not make an estimate admissible, though. {@link NPuzzle}'s is not (it
+     * counts the blank, and its horizontal part is {@code |i - j| % (N + 1)}), so there
+     * {@code dialastar}, like {@code astar}, can return a longer path than Dijkstra's
+     * algorithm, and since the two settle nodes in another order, not always the same one.
+     *
+     * If the graph {@link DirectedGraph#hasUnitWeights has unit weights}, Dijkstra's
+     * algorithm is a breadth-first search without any queue: nodes get their ids in the
+     * order they are reached, which is the order of their distances, so they are settled
+     * in the order of their ids.
+     *
+     * @throws IllegalArgumentException if an edge weight is not a non-negative integer
+     *         (or not 1, if the graph claims unit weights)
+     */
+    private Result<V> searchBuckets(V start, V goal, boolean useHeuristic) {
+        BucketSearch search = new BucketSearch(goal, useHeuristic, !useHeuristic && graph.hasUnitWeights());
+        search.id(start);
+        if (!search.breadthFirst)
+            search.toBeVisited.insert(0, search.estimate[0]);
+        if (listener != null) listener.pushed(1);
+        int visitedNodes = 0;
+
+        while (true) {
+            int v;
+            if (search.breadthFirst) {
+                if (visitedNodes == search.nodes.size()) break;
+                v = visitedNodes;
+            } else {
+                if (search.toBeVisited.isEmpty()) break;
+                v = search.toBeVisited.delMin();
+                if (search.settled[v]) {  // an outdated copy
+                    if (listener != null) listener.popped(true);
+                    continue;
                 }
             }
+            search.settled[v] = true;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            V currentNode = search.nodes.node(v);
+
+            if (currentNode.equals(goal)) {
+                pathStarted();
+                ArrayList<V> path = new ArrayList<>();
+                for (int node = v; node != 0; node = search.parent[node])
+                    path.add(search.nodes.node(node));
+                queueOperations = search.toBeVisited.operations();
+                return new Result<V>(true, start, goal, search.distTo[v], path, visitedNodes);
+            }
+
+            search.current = v;
+            graph.forEachOutgoing(currentNode, search);  /* RELAX */
         }
-        return new Result<>(false, start, null, -1, null, visited.size());
+        queueOperations = search.toBeVisited.operations();
+        return new Result<>(false, start, null, -1, null, visitedNodes);
     }
-    
 
-    public Result<V> searchAstar(V start, V goal) {
+
+    /**
+     * The state of {@code searchBuckets}, and the edge consumer that relaxes the outgoing
+     * edges of the {@code current} node, like {@link IndexedSearch}. The rounded estimate
+     * of a node is computed once, when it gets its id.
+     */
+    private class BucketSearch implements EdgeConsumer<V> {
+        final NodeIndex<V> nodes = new NodeIndex<>();
+        final BucketQueue toBeVisited = new BucketQueue();
+        int[] distTo = new int[1024];
+        int[] parent = new int[1024];
+        int[] estimate = new int[1024];
+        boolean[] settled = new boolean[1024];
+        final V goal;
+        final boolean useHeuristic, breadthFirst;
+        int current = -1;
+
+        BucketSearch(V goal, boolean useHeuristic, boolean breadthFirst) {
+            this.goal = goal;
+            this.useHeuristic = useHeuristic;
+            this.breadthFirst = breadthFirst;
+        }
+
+        /** Returns the id of {@code node}, assigning a fresh one (with infinite distance) if it is new. */
+        int id(V node) {
+            int size = nodes.size();
+            int w = nodes.intern(node);
+            if (w < size) return w;
+            if (w == distTo.length) {
+                distTo = Arrays.copyOf(distTo, 2 * w);
+                parent = Arrays.copyOf(parent, 2 * w);
+                estimate = Arrays.copyOf(estimate, 2 * w);
+                settled = Arrays.copyOf(settled, 2 * w);
+            }
+            distTo[w] = w == 0 ? 0 : Integer.MAX_VALUE;
+            parent[w] = current;
+            estimate[w] = useHeuristic ? (int) Math.ceil(guessCost(node, goal) - 1e-9) : 0;
+            return w;
+        }
+
+        public void accept(V to, double weight) {
+            if (weight < 0 || weight != (int) weight || breadthFirst && weight != 1.0)
+                throw new IllegalArgumentException((breadthFirst ? "Breadth-first search needs unit" : "Dial's algorithm needs integer")
+                                                   + " edge weights, not " + weight);
+            int w = id(to);
+            int newDist = distTo[current] + (int) weight;
+            boolean improved = newDist < distTo[w];  // also for a settled node, which is not expanded again
+            if (listener != null) listener.relaxed(improved);
+            if (!improved) return;
+            distTo[w] = newDist;
+            parent[w] = current;
+            if (!breadthFirst)
+                toBeVisited.insert(w, newDist + estimate[w]);
+            if (listener != null) listener.pushed(breadthFirst ? nodes.size() - current - 1 : toBeVisited.size());
+        }
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, over a frozen
+     * {@link AdjacencyGraph}, see {@link CompactSearch}. The landmark estimate of the
+     * graph, if it has one, is computed on ids; without landmarks the estimate is 0.
+     * The arrays of the search are kept by this path finder and reused by the next query.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchCompact(CompactGraph compact, V start, V goal, boolean useHeuristic) {
+        int s = compact.id((String) start);
+        int t = compact.id((String) goal);
+        if (s < 0)
+            return new Result<>(false, start, null, -1, null, 0);
+        Landmarks landmarks = useHeuristic ? ((AdjacencyGraph) graph).landmarks() : null;
+        CompactSearch search = compactSearch(compact);
+        search.setListener(listener);
+        CompactSearch.Solution solution = search.search(s, t, landmarks);
+        queueOperations = compactSearch.queueOperations();
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        pathStartNanos = search.pathStartNanos();
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, over the word ids of the
+     * {@link WordIndex} of a {@link WordLadder}, where {@code s} is the id of the start word.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchWords(WordIndex index, int s, V start, V goal, boolean useHeuristic) {
+        WordIndex.Solution solution = index.search(s, (String) goal, useHeuristic, listener);
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        pathStartNanos = solution.pathStartNanos;
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, over the packed
+     * states of a {@link PackedNPuzzle}.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchPacked(PackedNPuzzle puzzle, V start, V goal, boolean useHeuristic) {
+        PackedNPuzzle.Solution solution = puzzle.search((String) start, (String) goal, useHeuristic, listener);
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        pathStartNanos = solution.pathStartNanos;
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * Dijkstra's algorithm, or A* if {@code useHeuristic} is set, over the cell indices of
+     * a {@link GridGraph}. The arrays of the {@link GridSearch} are kept by this path
+     * finder and reused by the next grid search.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchGrid(GridGraph grid, V start, V goal, boolean useHeuristic) {
+        if (gridSearch == null || gridSearch.grid() != grid)
+            gridSearch = new GridSearch(grid);
+        gridSearch.setListener(listener);
+        GridSearch.Solution solution = gridSearch.search((GridGraph.Coord) start, (GridGraph.Coord) goal, useHeuristic);
+        queueOperations = gridSearch.queueOperations();
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        pathStartNanos = gridSearch.pathStartNanos();
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * A* with jump point pruning over a {@link GridGraph}, see {@link JumpPointSearch}.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchJumpPoints(GridGraph grid, V start, V goal) {
+        if (jumpPointSearch == null || jumpPointSearch.grid() != grid)
+            jumpPointSearch = new JumpPointSearch(grid);
+        JumpPointSearch.Solution solution = jumpPointSearch.search((GridGraph.Coord) start, (GridGraph.Coord) goal);
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * A query in the {@link ContractionHierarchy} of an {@link AdjacencyGraph}, which
+     * is built the first time it is needed.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchHierarchy(ContractionHierarchy hierarchy, V start, V goal) {
+        ContractionHierarchy.Solution solution = hierarchy.search((String) start, (String) goal);
+        if (!solution.success)
+            return new Result<>(false, start, null, -1, null, solution.visitedNodes);
+        return new Result<V>(true, start, goal, solution.cost, (List<V>) solution.path, solution.visitedNodes);
+    }
+
+
+    /**
+     * Breadth-first search with the layers in files of a temporary directory, see
+     * {@link ExternalSearch}. Only the current batch of successors is kept in memory.
+     * The graph must be a {@link StateCodec} of its nodes.
+     */
+    @SuppressWarnings("unchecked")
+    private Result<V> searchExternal(V start, V goal) {
+        StateCodec<V> codec = (StateCodec<V>) graph;
+        try {
+            Path directory = Files.createTempDirectory("layers");
+            try {
+                ExternalSearch.Solution<V> solution = new ExternalSearch<>(graph, codec, directory, 1 << 20).search(start, goal);
+                int visitedNodes = (int) Math.min(solution.visitedNodes, Integer.MAX_VALUE);
+                if (!solution.success)
+                    return new Result<>(false, start, null, -1, null, visitedNodes);
+                return new Result<>(true, start, goal, solution.cost, solution.path, visitedNodes);
+            } finally {
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Bidirectional Dijkstra, or bidirectional A* if {@code useHeuristic} is set. One search
+     * goes forwards from the start and one backwards from the goal along incoming edges,
+     * and the side whose queue has the smaller minimum is expanded next. Whenever an edge
+     * reaches a node that the other side has seen, the length of the path through it is a
+     * candidate for the shortest path; the search stops as soon as the two queue minimums
+     * together are at least the best candidate.
+     *
+     * The A* variant uses the average potential {@code p(v) = (guessCost(v,goal) - guessCost(start,v)) / 2}
+     * for the forward side and {@code -p(v)} for the backward side, which keeps the reduced
+     * edge weights the same in both directions, so the stopping rule above stays correct
+     * as long as {@code guessCost} is consistent.
+     *
+     * The graph must support incoming edges, see {@link DirectedGraph#forEachIncoming}.
+     */
+    public Result<V> searchBidirectional(V start, V goal, boolean useHeuristic) {
+        BidirectionalSearch search = new BidirectionalSearch(start, goal, useHeuristic);
+        Side forward = search.forward, backward = search.backward;
+        int s = search.id(start), t = search.id(goal);
+        forward.distTo[s] = 0.0;
+        forward.toBeVisited.insert(s, search.potential(s));
+        backward.distTo[t] = 0.0;
+        backward.toBeVisited.insert(t, -search.potential(t));
+        if (listener != null) {
+            listener.pushed(1);
+            listener.pushed(2);
+        }
+        if (s == t) {
+            search.best = 0.0;
+            search.meet = s;
+        }
         int visitedNodes = 0;
-        List<DirectedEdge<V>> neighbours;
-        Set visited = new HashSet<V>();
 
-        HashMap<V,Double> distTo = new HashMap<>();
-        HashMap<V,Double> estDistTo=new HashMap<>();
-        HashMap<V,DirectedEdge<V>> edgeTo = new HashMap<>();
+        while (!forward.toBeVisited.isEmpty() && !backward.toBeVisited.isEmpty()) {
+            double forwardMin = forward.toBeVisited.minKey(), backwardMin = backward.toBeVisited.minKey();
+            if (forwardMin + backwardMin >= search.best) break;
+            Side side = forwardMin <= backwardMin ? forward : backward;
+            int v = side.toBeVisited.delMin();
+            side.settled[v] = true;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            side.current = v;
+            if (side == forward)
+                graph.forEachOutgoing(search.nodes.node(v), side);  /* RELAX */
+            else
+                graph.forEachIncoming(search.nodes.node(v), side);  /* RELAX */
+        }
+        queueOperations = forward.toBeVisited.operations() + backward.toBeVisited.operations();
+        if (search.meet < 0)
+            return new Result<>(false, start, null, -1, null, visitedNodes);
 
-        PriorityQueue<V> toBeVisited = new PriorityQueue<>(new Comparator<V>() { // will prioritize the node with shortest estimated distance
-            @Override
-            public int compare(V node1, V node2) {
-                Double dist1 = estDistTo.get(node1);
-                Double dist2 = estDistTo.get(node2);
-                return dist1.compareTo(dist2);
+        pathStarted();
+        ArrayList<V> path = new ArrayList<>();
+        for (int node = search.meet; node != -1; node = backward.parent[node])
+            path.add(search.nodes.node(node));
+        Collections.reverse(path);
+        for (int node = forward.parent[search.meet]; node != -1; node = forward.parent[node])
+            path.add(search.nodes.node(node));
+        path.remove(path.size() - 1);  // the start node
+        return new Result<V>(true, start, goal, search.best, path, visitedNodes);
+    }
+
+
+    /**
+     * The state shared by the two sides of {@code searchBidirectional}: dense node ids,
+     * the cached potentials and the best path found so far, which goes through {@code meet}.
+     */
+    private class BidirectionalSearch {
+        final NodeIndex<V> nodes = new NodeIndex<>();
+        double[] potential = new double[1024];
+        final Side forward = new Side(), backward = new Side();
+        final V start, goal;
+        final boolean useHeuristic;
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+
+        BidirectionalSearch(V start, V goal, boolean useHeuristic) {
+            this.start = start;
+            this.goal = goal;
+            this.useHeuristic = useHeuristic;
+            forward.search = backward.search = this;
+            forward.other = backward;
+            backward.other = forward;
+        }
+
+        /** Returns the id of {@code node}, assigning a fresh one (unseen by both sides) if it is new. */
+        int id(V node) {
+            int size = nodes.size();
+            int w = nodes.intern(node);
+            if (w < size) return w;
+            if (w == potential.length)
+                potential = Arrays.copyOf(potential, 2 * w);
+            potential[w] = useHeuristic ? (guessCost(node, goal) - guessCost(start, node)) / 2 : 0.0;
+            forward.add(w);
+            backward.add(w);
+            return w;
+        }
+
+        /** The forward potential of node {@code v}; the backward potential is its negation. */
+        double potential(int v) {
+            return potential[v];
+        }
+    }
+
+
+    /**
+     * One side of {@code searchBidirectional}. It is the edge consumer for the nodes it
+     * expands, getting outgoing edges on the forward side and incoming edges on the backward.
+     */
+    private class Side implements EdgeConsumer<V> {
+        final IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+        double[] distTo = new double[1024];
+        int[] parent = new int[1024];
+        boolean[] settled = new boolean[1024];
+        BidirectionalSearch search;
+        Side other;
+        int current = -1;
+
+        void add(int w) {
+            if (w == distTo.length) {
+                distTo = Arrays.copyOf(distTo, 2 * w);
+                parent = Arrays.copyOf(parent, 2 * w);
+                settled = Arrays.copyOf(settled, 2 * w);
             }
-        });
+            distTo[w] = Double.POSITIVE_INFINITY;
+            parent[w] = -1;
+        }
 
-        /*initializing*/
-        toBeVisited.add(start);
-        neighbours = graph.outgoingEdges(start);
-        V currentNode = start;
-        distTo.put(start,0.0);
-        estDistTo.put(start,graph.guessCost(start, goal));
-
-        //Search-loop
-        while(!toBeVisited.isEmpty()){
-            currentNode = toBeVisited.remove(); //removes the element with highest priority, the comparator decides.
-
-            if(!visited.contains(currentNode)) { //only visit non-visited nodes.
-                visited.add(currentNode);
-
-                if(currentNode.equals(goal)) { //if we found the goal
-                    ArrayList<V> path= new ArrayList<>();
-                    V node=currentNode;
-                    while(!node.equals(start)){
-                        path.add(node);
-                        node = edgeTo.get(node).from();
-                    }
-                    System.out.println("success");
-                    return new Result<V>(true, start, goal, distTo.get(goal),path, visited.size());
+        public void accept(V to, double weight) {
+            int w = search.id(to);
+            double newDist = distTo[current] + weight;
+            boolean improved = newDist < distTo[w];  // also for a settled node, which is not expanded again
+            if (improved) {
+                distTo[w] = newDist;
+                parent[w] = current;
+                double potential = this == search.forward ? search.potential(w) : -search.potential(w);
+                toBeVisited.insertOrDecrease(w, newDist + potential);
+            }
+            if (listener != null) {
+                listener.relaxed(improved);
+                if (improved) listener.pushed(search.forward.toBeVisited.size() + search.backward.toBeVisited.size());
+            }
+            double through = newDist + other.distTo[w];
+            if (through < search.best) {
+                search.best = through;
+                search.meet = w;
+            }
+        }
+    }
 
-                }
 
+    /**
+     * Iterative-deepening A*: repeated depth-first searches that cut off every path whose
+     * estimated total cost {@code g + guessCost} is over a threshold, where the threshold
+     * starts at the estimate for the start node and is raised to the smallest cut-off value
+     * after every iteration. Only the current path and one neighbour buffer per depth are
+     * kept, so the memory is linear in the path length. Moves straight back to the previous
+     * node on the path are pruned.
+     *
+     * The visited nodes of the result is the total number of expansions over all iterations,
+     * which are available from {@link #iterations}. If the goal cannot be reached the search
+     * only stops if the reachable part of the graph has no cycles.
+     */
+    public Result<V> searchIdaStar(V start, V goal) {
+        iterations = new ArrayList<>();
+        IdaSearch search = new IdaSearch(goal);
+        search.path.add(start);
+        double threshold = guessCost(start, goal);
+        long visitedNodes = 0;
 
-                neighbours = graph.outgoingEdges(currentNode);
-                for (DirectedEdge<V> edge : neighbours) {  /* RELAX */
-                    V v = edge.from(); //currentNode
-                    V w = edge.to(); //one neighbour
+        while (true) {
+            long iterationStart = System.nanoTime();
+            search.expanded = 0;
+            search.nextThreshold = Double.POSITIVE_INFINITY;
+            double cost = search.dfs(start, 0.0, 0, threshold);
+            visitedNodes += search.expanded;
+            iterations.add(new Iteration(threshold, search.expanded, (System.nanoTime() - iterationStart) / 1e9));
+
+            if (cost >= 0) {
+                pathStarted();
+                ArrayList<V> path = new ArrayList<>();
+                for (int i = search.path.size() - 1; i > 0; i--)
+                    path.add(search.path.get(i));
+                return new Result<V>(true, start, goal, cost, path, (int) visitedNodes);
+            }
+            if (search.nextThreshold == Double.POSITIVE_INFINITY)
+                return new Result<>(false, start, null, -1, null, (int) visitedNodes);
+            threshold = search.nextThreshold;
+        }
+    }
 
-                    double estCost=graph.guessCost(w,goal);
 
-                    DirectedEdge<V> incomingEdge = edgeTo.get(currentNode);
-                    //System.out.println(incomingEdge);
-                    //System.out.println(edge);
-                    if(incomingEdge==null || !incomingEdge.equals(edge.reverse()))  {
-                        if (distTo.containsKey(w)) {
-                            if (distTo.get(w) > distTo.get(v) + edge.weight()) {
-                                Double newDist = distTo.get(v) + edge.weight();
+    /**
+     * The state of {@code searchIdaStar}: the current path, and the neighbours of every
+     * node on it (collected with {@code forEachOutgoing} into buffers that are reused).
+     */
+    private class IdaSearch {
+        final V goal;
+        final ArrayList<V> path = new ArrayList<>();
+        final ArrayList<ArrayList<V>> neighbours = new ArrayList<>();
+        final ArrayList<double[]> weights = new ArrayList<>();
+        double nextThreshold;
+        long expanded;
 
-                                distTo.put(w, newDist);
-                                edgeTo.put(w,edge);
-                                estDistTo.put(w,distTo.get(w)+graph.guessCost(w,goal));
+        IdaSearch(V goal) {
+            this.goal = goal;
+        }
 
-                                toBeVisited.add(w);
-                            }
+        /**
+         * Searches below {@code node}, which is at position {@code depth} of the path.
+         * @return the cost of the path to the goal, or -1 if it was not found within the threshold
+         */
+        double dfs(V node, double g, int depth, double threshold) {
+            double f = g + guessCost(node, goal);
+            if (f > threshold) {
+                nextThreshold = Math.min(nextThreshold, f);
+                return -1;
+            }
+            if (node.equals(goal))
+                return g;
+            expanded++;
 
-                        } else { //if distTo(w)==null
-                            distTo.put(w, distTo.get(v) + edge.weight());
-                            edgeTo.put(w,edge);
-                            estDistTo.put(w,distTo.get(w)+graph.guessCost(w,goal));
+            if (neighbours.size() == depth) {
+                neighbours.add(new ArrayList<>());
+                weights.add(new double[8]);
+            }
+            ArrayList<V> next = neighbours.get(depth);
+            next.clear();
+            graph.forEachOutgoing(node, (w, weight) -> {
+                double[] ws = weights.get(depth);
+                if (next.size() == ws.length)
+                    weights.set(depth, ws = Arrays.copyOf(ws, 2 * ws.length));
+                ws[next.size()] = weight;
+                next.add(w);
+            });
 
-                            toBeVisited.add(w); //lägg till nästa node i PQ.
-                        }
-                    }
-                }
+            V parent = depth > 0 ? path.get(depth - 1) : null;
+            double[] ws = weights.get(depth);
+            for (int i = 0; i < next.size(); i++) {
+                V w = next.get(i);
+                if (w.equals(parent)) continue;  /* parent-move pruning */
+                path.add(w);
+                double cost = dfs(w, g + ws[i], depth + 1, threshold);
+                if (cost >= 0) return cost;
+                path.remove(path.size() - 1);
             }
+            return -1;
         }
-        return new Result<>(false, start, null, -1, null, visited.size());
     }
 
 }
@@ -0,0 +1,338 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+
+
+/**
+ * Benchmarks loading the bundled graphs and searching them, for every combination of
+ * graph and algorithm. The JMH benchmarks in {@code src/benchmarks} (built with the
+ * {@code pom.xml}) measure the same operations, which they get from {@link #loader}
+ * and {@link #queries}; this class runs them without JMH, as a quick smoke run:
+ * <ul>
+ * <li>The <em>load</em> benchmarks time building each graph from its text file, and
+ *     loading it from a {@link GraphSnapshot}.</li>
+ * <li>The <em>query</em> benchmarks load each graph as {@link RunBatch} does (frozen,
+ *     with landmarks for A* and a contraction hierarchy for ch) and then time its fixed
+ *     queries, in turn. Every answer is checked against the known cost of the query.
+ *     The random search only stops when it steps onto the goal from the start, so its
+ *     queries go from each start to its first neighbour instead, and are not checked.
+ *     Algorithms that do not apply to a graph are skipped.</li>
+ * </ul>
+ * Every benchmark is a {@link Measurement} of a few warm-up iterations and then the
+ * measured iterations, each repeating the operation for at least {@link #ITERATION_NANOS}.
+ * It reports the mean time per operation with the standard deviation over the iterations,
+ * and the bytes allocated per operation and per second by the benchmark thread, like the
+ * allocation rate of the GC profiler of JMH. Optionally the scores are also written to a
+ * CSV file, so that runs before and after a change can be compared.
+ */
+public class PathFinderBenchmark {
+
+    private static final String DIR = "src/graphs/";
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+
+    /**
+     * A graph with its queries: start, goal and the cost of the shortest path.
+     */
+    private static class Subject {
+        final String graphType, file;
+        final String[][] queries;
+
+        Subject(String graphType, String file, String[][] queries) {
+            this.graphType = graphType;
+            this.file = file;
+            this.queries = queries;
+        }
+
+        String name() {
+            return graphType.equals("NPuzzle") ? "NPuzzle " + file : new File(file).getName();
+        }
+    }
+
+
+    private static final Subject[] SUBJECTS = {
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-BE.txt", new String[][] {
+                {"Ans", "Ranst", "108"}, {"Ninove", "Diest", "86"}, {"Oupeye", "Durbuy", "60"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-DE.txt", new String[][] {
+                {"Giengen an der Brenz", "Königstein im Taunus", "287"}, {"Homberg", "Recklinghausen", "219"},
+                {"Emmendingen", "Taucha", "626"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-DK.txt", new String[][] {
+                {"Brejning", "Glostrup", "230"}, {"Roskilde", "Mårslet", "159"}, {"Assens", "Holeby", "146"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-EU.txt", new String[][] {
+                {"Volos, Greece", "Oulu, Finland", "3488"}, {"Walsall, United Kingdom", "Tarnów, Poland", "1918"},
+                {"Southampton, United Kingdom", "Brescia, Italy", "1342"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-FI.txt", new String[][] {
+                {"Joutseno", "Hämeenlinna", "244"}, {"Kimito", "Salla", "1005"}, {"Ruotsinpyhtää", "Lammi", "133"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-FR.txt", new String[][] {
+                {"Le Passage", "La Celle-Saint-Cloud", "627"}, {"Castres", "La Garde", "408"},
+                {"Porto-Vecchio", "Vienne", "799"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-NL.txt", new String[][] {
+                {"Arnhem", "Cothen", "55"}, {"Oirschot", "Haamstede", "142"}, {"Reeuwijk", "Heythuysen", "161"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-NO.txt", new String[][] {
+                {"Kongsvinger", "Melbu", "1401"}, {"Dokka", "Askim", "195"}, {"Åros", "Etne", "353"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-SE.txt", new String[][] {
+                {"Lund", "Kiruna", "1826"}, {"Malmberget", "Hällabrottet", "1277"}, {"Hedesunda", "Hällbybrunn", "148"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-USA.txt", new String[][] {
+                {"Seattle, WA", "Miami Beach, FL", "5291"}, {"Salem, OR", "Yonkers, NY", "4855"},
+                {"College Station, TX", "La Habra, CA", "2399"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/citygraph-VGregion.txt", new String[][] {
+                {"Göteborg", "Götene", "158"}, {"Landvetter", "Stenungsund", "67"}, {"Herrljunga", "Skövde", "74"}}),
+        new Subject("AdjacencyGraph", DIR + "AdjacencyGraph/wikipedia-graph.txt", new String[][] {
+                {"Sweden", "Zebra", "3"}, {"Van_Halen", "Bontebok", "5"}, {"Infrastructure", "Wikisource", "6"}}),
+        new Subject("WordLadder", DIR + "WordLadder/words-romaner.txt", new String[][] {
+                {"katter", "hundar", "14"}, {"mamma", "pappa", "6"}, {"örter", "öring", "30"}}),
+        new Subject("GridGraph", DIR + "GridGraph/AR0011SR.map", new String[][] {
+                {"23:161", "130:211", "366.40411229460744"}}),
+        new Subject("GridGraph", DIR + "GridGraph/AR0012SR.map", new String[][] {
+                {"11:73", "85:127", "147.68124086713186"}}),
+        new Subject("GridGraph", DIR + "GridGraph/maze-100x50.txt", new String[][] {
+                {"1:1", "199:99", "1216.4793641885828"}}),
+        new Subject("GridGraph", DIR + "GridGraph/maze-20x10.txt", new String[][] {
+                {"1:1", "79:19", "143.68124086713186"}}),
+        new Subject("GridGraph", DIR + "GridGraph/maze-10x5.txt", new String[][] {
+                {"1:1", "39:9", "58.87005768508879"}}),
+        new Subject("NPuzzle", "3", new String[][] {
+                {"/_AB/CDE/FGH/", "/ABC/DEF/GH_/", "22"}, {"/CBA/DEF/_HG/", "/ABC/DEF/GH_/", "24"}}),
+        new Subject("NPuzzle", "4", new String[][] {
+                {"/ABCD/EFKG/IO_H/MJNL/", "/ABCD/EFGH/IJKL/MNO_/", "8"},
+                {"/AC_D/FBGH/EIJK/MNOL/", "/ABCD/EFGH/IJKL/MNO_/", "8"},
+                {"/ABDH/EFC_/JOGK/IMNL/", "/ABCD/EFGH/IJKL/MNO_/", "12"}}),
+    };
+
+
+    private static final List<String> scores = new ArrayList<>();
+
+
+    /**
+     * @return the graph with name {@code graph}, as printed by the benchmarks
+     */
+    private static Subject subject(String graph) {
+        for (Subject subject : SUBJECTS)
+            if (subject.name().equals(graph)) return subject;
+        throw new IllegalArgumentException("Unknown graph: " + graph);
+    }
+
+
+    /**
+     * Runs the warm-up and measured iterations of an operation, which is given the
+     * number of the call, and prints and records its scores.
+     */
+    private static void measure(String benchmark, String graph, String algorithm, LongFunction<Object> operation) {
+        Measurement<Object> measurement = Measurement.of(WARMUP_ITERATIONS, ITERATIONS, ITERATION_NANOS, operation);
+        double mean = measurement.meanNanos, deviation = measurement.deviation;
+        long ops = measurement.operations;
+        double bytesPerOp = (double) measurement.bytes / ops, megabytesPerSecond = measurement.bytes / 1e6 / (measurement.nanos / 1e9);
+        System.out.println(String.format("%-6s %-24s %-10s %12.1f ± %9.1f us/op  %12.0f B/op  %8.1f MB/s  %7d ops",
+                                         benchmark, graph, algorithm, mean / 1e3, deviation / 1e3,
+                                         bytesPerOp, megabytesPerSecond, ops));
+        scores.add(String.format("%s,%s,%s,%.3f,%.3f,%.0f,%.1f,%d", benchmark, graph, algorithm, mean / 1e3,
+                                 deviation / 1e3, bytesPerOp, megabytesPerSecond, ops));
+    }
+
+
+    private static void benchmarkLoad(Subject subject, File snapshots) throws Exception {
+        if (subject.graphType.equals("NPuzzle")) return;
+        for (String source : new String[] {"text", "snapshot"}) {
+            Callable<Object> loader = loader(subject, source, snapshots);
+            measure("load", subject.name(), source, n -> load(loader));
+        }
+    }
+
+
+    /**
+     * Returns the operation that builds a graph from its text file, or loads it from
+     * its {@link GraphSnapshot}, which is written first to a temporary directory.
+     * @param  graph   the name of a bundled graph, except the NPuzzles
+     * @param  source  "text" or "snapshot"
+     * @return the operation, which returns the graph
+     */
+    public static Callable<Object> loader(String graph, String source) throws IOException {
+        File snapshots = Files.createTempDirectory("benchmark").toFile();
+        snapshots.deleteOnExit();
+        return loader(subject(graph), source, snapshots);
+    }
+
+
+    private static Callable<Object> loader(Subject subject, String source, File snapshots) throws IOException {
+        String file = subject.file;
+        String snapshot = new File(snapshots, subject.name() + ".snap").getPath();
+        new File(snapshot).deleteOnExit();
+        boolean text = source.equals("text");
+        if (!text && !source.equals("snapshot"))
+            throw new IllegalArgumentException("Unknown source: " + source);
+        switch (subject.graphType) {
+        case "AdjacencyGraph":
+            GraphSnapshot.adjacencyGraph(file, snapshot);
+            return text ? () -> new AdjacencyGraph(file) : () -> GraphSnapshot.adjacencyGraph(file, snapshot);
+        case "WordLadder":
+            GraphSnapshot.wordLadder(file, snapshot);
+            return text ? () -> new WordLadder(file) : () -> GraphSnapshot.wordLadder(file, snapshot);
+        case "GridGraph":
+            GraphSnapshot.gridGraph(file, snapshot);
+            return text ? () -> new GridGraph(file) : () -> GraphSnapshot.gridGraph(file, snapshot);
+        }
+        throw new IllegalArgumentException(subject.name() + " is not loaded from a file");
+    }
+
+
+    private static Object load(Callable<Object> loader) {
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+
+    private static void benchmarkQueries(Subject subject, List<String> algorithms, File snapshots) throws Exception {
+        Queries<?> queries = prepare(subject, algorithms, snapshots);
+        for (String algorithm : algorithms) {
+            IntFunction<Object> query;
+            try {
+                query = queries.of(algorithm);
+            } catch (IllegalArgumentException e) {
+                System.out.println(String.format("%-6s %-24s %-10s skipped: %s", "query", subject.name(), algorithm, e.getMessage()));
+                continue;
+            }
+            measure("query", subject.name(), algorithm, n -> query.apply((int) n));
+        }
+    }
+
+
+    /**
+     * Returns the operation that answers the fixed queries of a graph in turn, loaded
+     * and prepared as {@link RunBatch} does.
+     * @param  graph      the name of a bundled graph
+     * @param  algorithm  the search algorithm
+     * @return the operation, which is given the number of the call and returns the result
+     * @throws IllegalArgumentException if the algorithm does not apply to the graph
+     */
+    public static IntFunction<Object> queries(String graph, String algorithm) throws IOException {
+        File snapshots = Files.createTempDirectory("benchmark").toFile();
+        snapshots.deleteOnExit();
+        return prepare(subject(graph), Arrays.asList(algorithm), snapshots).of(algorithm);
+    }
+
+
+    /**
+     * Loads a graph from its snapshot, frozen, with landmarks if {@code algorithms}
+     * has an A* and with a contraction hierarchy if it has ch.
+     */
+    private static Queries<?> prepare(Subject subject, List<String> algorithms, File snapshots) throws IOException {
+        String file = subject.file;
+        String snapshot = new File(snapshots, subject.name() + ".snap").getPath();
+        new File(snapshot).deleteOnExit();
+        switch (subject.graphType) {
+        case "AdjacencyGraph":
+            AdjacencyGraph graph = GraphSnapshot.adjacencyGraph(file, snapshot);
+            CompactGraph compact = graph.freeze();
+            if (algorithms.contains("astar") || algorithms.contains("biastar"))
+                graph.setLandmarks(Landmarks.build(compact, 8, "avoid"));
+            if (algorithms.contains("ch"))
+                graph.contract();
+            return new Queries<>(subject, graph, v -> v);
+        case "WordLadder":
+            return new Queries<>(subject, GraphSnapshot.wordLadder(file, snapshot), v -> v);
+        case "GridGraph":
+            return new Queries<>(subject, GraphSnapshot.gridGraph(file, snapshot), v -> {
+                    String[] c = v.split(":");
+                    return new GridGraph.Coord(Integer.valueOf(c[0]), Integer.valueOf(c[1]));
+                });
+        case "NPuzzle":
+            return new Queries<>(subject, new NPuzzle(Integer.valueOf(file)), v -> v);
+        }
+        throw new IllegalArgumentException("Unknown graph type: " + subject.graphType);
+    }
+
+
+    /**
+     * The queries of a graph, with their nodes. The random search goes from each start
+     * to its first neighbour instead of to the goal.
+     */
+    private static class Queries<V> {
+        final Subject subject;
+        final DirectedGraph<V> graph;
+        final List<V> starts = new ArrayList<>(), goals = new ArrayList<>(), neighbours = new ArrayList<>();
+        final double[] costs;
+
+        Queries(Subject subject, DirectedGraph<V> graph, Function<String, V> node) {
+            this.subject = subject;
+            this.graph = graph;
+            costs = new double[subject.queries.length];
+            for (int q = 0; q < costs.length; q++) {
+                V start = node.apply(subject.queries[q][0]);
+                starts.add(start);
+                goals.add(node.apply(subject.queries[q][1]));
+                neighbours.add(graph.outgoingEdges(start).get(0).to());
+                costs[q] = Double.parseDouble(subject.queries[q][2]);
+            }
+        }
+
+        /**
+         * @return the operation that answers query {@code n} modulo the number of queries,
+         *         checking its cost, and returns the result
+         * @throws IllegalArgumentException if the algorithm does not apply to the graph
+         */
+        IntFunction<Object> of(String algorithm) {
+            boolean random = algorithm.equals("random");
+            List<V> targets = random ? neighbours : goals;
+            PathFinder<V> finder = new PathFinder<>(graph);
+            finder.search(algorithm, starts.get(0), targets.get(0));
+            return n -> {
+                int q = Math.floorMod(n, costs.length);
+                PathFinder<V>.Result<V> result = finder.search(algorithm, starts.get(q), targets.get(q));
+                if (!random && Math.abs(result.cost - costs[q]) > 1e-6)
+                    throw new AssertionError(String.format("%s %s %s -> %s: cost %s, expected %s", subject.name(),
+                                                           algorithm, starts.get(q), goals.get(q), result.cost, costs[q]));
+                return result;
+            };
+        }
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String mode = args.length > 0 ? args[0] : "all";
+            List<String> algorithms = Arrays.asList((args.length > 1 ? args[1] : "random,dijkstra,astar").split(","));
+            String filter = args.length > 2 ? args[2] : "";
+            String csvFile = args.length > 3 ? args[3] : null;
+            if (!Arrays.asList("load", "query", "all").contains(mode))
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+
+            File snapshots = Files.createTempDirectory("benchmark").toFile();
+            snapshots.deleteOnExit();
+            for (Subject subject : SUBJECTS) {
+                if (!subject.name().contains(filter)) continue;
+                if (!mode.equals("query"))
+                    benchmarkLoad(subject, snapshots);
+                if (!mode.equals("load"))
+                    benchmarkQueries(subject, algorithms, snapshots);
+            }
+
+            if (csvFile != null) {
+                try (PrintStream out = new PrintStream(csvFile, "UTF-8")) {
+                    out.println("benchmark,graph,algorithm,us_per_op,error_us,bytes_per_op,alloc_mb_per_s,ops");
+                    scores.forEach(out::println);
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java PathFinderBenchmark [load | query | all] [algorithms] [graph-filter] [csv-file]");
+            System.err.println("  where algorithms is a comma-separated list, by default random,dijkstra,astar");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,429 @@
+import java.util.Arrays;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * An additive disjoint pattern database heuristic for the N-puzzle.
+ *
+ * The tiles are split into disjoint patterns. For every pattern there is a table
+ * with, for every placement of the pattern tiles, the least number of moves of
+ * pattern tiles needed to bring them to their goal positions (moves of the other
+ * tiles are free). Since each move moves a tile of exactly one pattern, the sum of
+ * the table values is a lower bound on the real distance, and it is much closer
+ * than the Manhattan distance. Because the tables forget where the empty tile is,
+ * the estimate is admissible but not consistent, so A* has to reopen settled
+ * states (as {@link PackedNPuzzle#search} does) to stay optimal.
+ *
+ * The tables are computed by a breadth-first search backwards from the goal, over
+ * the placements of the pattern tiles together with the position of the empty
+ * tile. Each table entry is one byte, indexed by the rank of the k-permutation of
+ * the pattern tile positions. The tables can be saved to a file, and
+ * {@link #load} maps the file into memory instead of reading or rebuilding it.
+ */
+public class PatternDatabase {
+
+    private static final int MAGIC = 0x50444231;  // "PDB1"
+
+    private final PackedNPuzzle puzzle;
+    private final int cells;
+    private final long goal;
+    private final int[][] patterns;   // the tiles of each pattern
+    private final ByteBuffer[] tables;
+
+
+    private PatternDatabase(PackedNPuzzle puzzle, long goal, int[][] patterns, ByteBuffer[] tables) {
+        this.puzzle = puzzle;
+        this.cells = puzzle.size() * puzzle.size();
+        this.goal = goal;
+        this.patterns = patterns;
+        this.tables = tables;
+    }
+
+
+    /**
+     * @param  N  the size of the puzzle
+     * @return the standard partition for the size: 6-6-3 for 4x4, 4-4 for 3x3, one pattern for 2x2
+     */
+    public static int[][] defaultPatterns(int N) {
+        switch (N) {
+        case 2:  return new int[][] {{1, 2, 3}};
+        case 3:  return new int[][] {{1, 2, 4, 5}, {3, 6, 7, 8}};
+        case 4:  return new int[][] {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+        }
+        throw new IllegalArgumentException("No default patterns for size " + N);
+    }
+
+
+    /**
+     * Builds the pattern databases for the given goal state.
+     * @param  puzzle    the puzzle
+     * @param  goal      the goal state, such as {@code /ABCD/EFGH/IJKL/MNO_/}
+     * @param  patterns  disjoint sets of tile numbers (1 = 'A', 2 = 'B', ...)
+     * @return the pattern database
+     */
+    public static PatternDatabase build(PackedNPuzzle puzzle, String goal, int[][] patterns) {
+        long goalState = puzzle.pack(goal);
+        int cells = puzzle.size() * puzzle.size();
+        boolean[] used = new boolean[cells];
+        for (int[] pattern : patterns)
+            for (int tile : pattern) {
+                if (tile <= 0 || tile >= cells || used[tile])
+                    throw new IllegalArgumentException("Patterns must be disjoint sets of tiles 1.." + (cells-1));
+                used[tile] = true;
+            }
+        ByteBuffer[] tables = new ByteBuffer[patterns.length];
+        for (int i = 0; i < patterns.length; i++)
+            tables[i] = ByteBuffer.wrap(new PatternBuilder(puzzle, goalState, patterns[i]).build());
+        return new PatternDatabase(puzzle, goalState, patterns, tables);
+    }
+
+
+    /**
+     * Writes the pattern database to a file.
+     * @param  file  the file name
+     */
+    public void save(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(puzzle.size());
+            out.writeLong(goal);
+            out.writeInt(patterns.length);
+            for (int[] pattern : patterns) {
+                out.writeInt(pattern.length);
+                for (int tile : pattern) out.writeInt(tile);
+            }
+            for (ByteBuffer table : tables) {
+                byte[] bytes = new byte[table.limit()];
+                table.duplicate().get(bytes);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+
+    /**
+     * Opens a pattern database file written by {@link #save}, by mapping it into memory.
+     * @param  puzzle  the puzzle, which must have the same size as the database
+     * @param  file    the file name
+     * @return the pattern database
+     */
+    public static PatternDatabase load(PackedNPuzzle puzzle, String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a pattern database file: " + file);
+            if (buffer.getInt() != puzzle.size())
+                throw new IOException("Pattern database " + file + " is for another puzzle size");
+            long goal = buffer.getLong();
+            int cells = puzzle.size() * puzzle.size();
+            int[][] patterns = new int[checkCount(buffer.getInt(), cells, file)][];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = new int[checkCount(buffer.getInt(), cells, file)];
+                for (int j = 0; j < patterns[i].length; j++)
+                    patterns[i][j] = checkCount(buffer.getInt(), cells - 1, file);
+            }
+            ByteBuffer[] tables = new ByteBuffer[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                int size = buffer.getInt();
+                int placements = 1;
+                for (int j = 0; j < patterns[i].length; j++) placements *= cells - j;
+                if (size != placements || size > buffer.remaining())
+                    throw new IOException("Pattern database " + file + " is truncated or broken");
+                ByteBuffer table = buffer.slice();
+                table.limit(size);
+                tables[i] = table;
+                buffer.position(buffer.position() + size);
+            }
+            return new PatternDatabase(puzzle, goal, patterns, tables);
+        }
+    }
+
+
+    private static int checkCount(int count, int max, String file) throws IOException {
+        if (count < 0 || count > max)
+            throw new IOException("Pattern database " + file + " is broken");
+        return count;
+    }
+
+
+    /**
+     * Loads the pattern database from {@code file} if it exists and is for the goal, and
+     * otherwise (also if the file is broken) builds it with the default patterns and
+     * saves it there.
+     * @param  puzzle  the puzzle
+     * @param  goal    the goal state
+     * @param  file    the file name
+     * @return the pattern database
+     */
+    public static PatternDatabase loadOrBuild(PackedNPuzzle puzzle, String goal, String file) throws IOException {
+        Path path = Paths.get(file);
+        if (Files.exists(path)) {
+            try {
+                PatternDatabase pdb = load(puzzle, file);
+                if (pdb.goal == puzzle.pack(goal)) return pdb;
+            } catch (IOException | BufferUnderflowException e) {
+                // another puzzle size, or a broken file: build it again
+            }
+        }
+        PatternDatabase pdb = build(puzzle, goal, defaultPatterns(puzzle.size()));
+        pdb.save(file);
+        return pdb;
+    }
+
+
+    /**
+     * @param  state  a state as a string
+     * @return true if this database estimates distances to {@code state}
+     */
+    public boolean hasGoal(String state) {
+        return puzzle.pack(state) == goal;
+    }
+
+
+    /**
+     * @param  state  a packed state
+     * @return true if this database estimates distances to {@code state}
+     */
+    public boolean hasGoal(long state) {
+        return state == goal;
+    }
+
+
+    /**
+     * @param  state  a packed state
+     * @return a lower bound on the number of moves from {@code state} to the goal
+     */
+    public int estimate(long state) {
+        long position = 0;  // 4 bits per tile: the position of the tile
+        for (int p = 0; p < cells; p++)
+            position |= (long) p << (4 * PackedNPuzzle.tile(state, p));
+        int h = 0;
+        for (int i = 0; i < patterns.length; i++)
+            h += tables[i].get(rank(patterns[i], position, cells)) & 0xFF;
+        return h;
+    }
+
+
+    /**
+     * @param  state  a state as a string
+     * @return a lower bound on the number of moves from {@code state} to the goal
+     */
+    public int estimate(String state) {
+        return estimate(puzzle.pack(state));
+    }
+
+
+    /**
+     * The rank of the k-permutation of {@code 0..cells-1} given by the positions of the
+     * pattern tiles, in {@code 0 .. cells!/(cells-k)! - 1}. The position of tile {@code t}
+     * is in bits {@code 4t..4t+3} of {@code position}.
+     */
+    static int rank(int[] pattern, long position, int cells) {
+        int index = 0;
+        int used = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            int p = PackedNPuzzle.tile(position, pattern[i]);
+            index = index * (cells - i) + p - Integer.bitCount(used & ((1 << p) - 1));
+            used |= 1 << p;
+        }
+        return index;
+    }
+
+
+    /**
+     * The backward search that computes the table of one pattern. The search states are
+     * {@code rank * cells + blank}: the placement of the pattern tiles and the position
+     * of the empty tile. Moving the empty tile over a non-pattern tile costs nothing, so
+     * the search goes level by level: first everything reachable for free from the
+     * current level, then one pattern move to the next level.
+     */
+    private static class PatternBuilder {
+        final int N, cells;
+        final int[] pattern;
+        final int size;               // the number of placements, cells!/(cells-k)!
+        final byte[] dist;            // per search state, -1 if not reached
+        final int[] position = new int[16];
+        final int[] digits = new int[16];
+        int[] stack = new int[1 << 16];
+        final long goal;
+
+        PatternBuilder(PackedNPuzzle puzzle, long goal, int[] pattern) {
+            this.N = puzzle.size();
+            this.cells = N * N;
+            this.pattern = pattern;
+            this.goal = goal;
+            int s = 1;
+            for (int i = 0; i < pattern.length; i++) s *= cells - i;
+            this.size = s;
+            this.dist = new byte[size * cells];
+        }
+
+        byte[] build() {
+            Arrays.fill(dist, (byte) -1);
+            int[] goalPosition = new int[cells];
+            for (int p = 0; p < cells; p++)
+                goalPosition[PackedNPuzzle.tile(goal, p)] = p;
+            int goalBlank = goalPosition[0];
+            for (int i = 0; i < pattern.length; i++)
+                position[i] = goalPosition[pattern[i]];
+            dist[rankPositions() * cells + goalBlank] = 0;
+
+            boolean more = true;
+            for (int level = 0; more; level++) {
+                // all states at this level, and everything reachable from them by free moves
+                int top = 0;
+                for (int s = 0; s < dist.length; s++)
+                    if (dist[s] == level) top = push(top, s);
+                while (top > 0) {
+                    int s = stack[--top];
+                    int blank = s % cells;
+                    unrank(s / cells);
+                    for (int next : neighbours(blank)) {
+                        if (occupied(next) >= 0) continue;
+                        int t = s - blank + next;
+                        if (dist[t] == -1) {
+                            dist[t] = (byte) level;
+                            top = push(top, t);
+                        }
+                    }
+                }
+                // one move of a pattern tile into the empty position
+                more = false;
+                for (int s = 0; s < dist.length; s++) {
+                    if (dist[s] != level) continue;
+                    int blank = s % cells;
+                    unrank(s / cells);
+                    for (int next : neighbours(blank)) {
+                        int i = occupied(next);
+                        if (i < 0) continue;
+                        position[i] = blank;
+                        int t = rankPositions() * cells + next;
+                        position[i] = next;
+                        if (dist[t] == -1) {
+                            dist[t] = (byte) (level + 1);
+                            more = true;
+                        }
+                    }
+                }
+            }
+
+            byte[] table = new byte[size];
+            for (int r = 0; r < size; r++) {
+                int best = 255;
+                for (int blank = 0; blank < cells; blank++) {
+                    int d = dist[r * cells + blank];
+                    if (d >= 0 && d < best) best = d;
+                }
+                table[r] = (byte) best;
+            }
+            return table;
+        }
+
+        int push(int top, int s) {
+            if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+            stack[top] = s;
+            return top + 1;
+        }
+
+        private final int[][] neighbourCache = new int[16][];
+
+        int[] neighbours(int p) {
+            int[] ns = neighbourCache[p];
+            if (ns == null) {
+                int[] m = new int[4];
+                int k = 0;
+                if (p % N > 0)     m[k++] = p - 1;
+                if (p % N < N - 1) m[k++] = p + 1;
+                if (p >= N)        m[k++] = p - N;
+                if (p < cells - N) m[k++] = p + N;
+                ns = neighbourCache[p] = Arrays.copyOf(m, k);
+            }
+            return ns;
+        }
+
+        /** Returns the index in the pattern of the tile at cell {@code p}, or -1. */
+        int occupied(int p) {
+            for (int i = 0; i < pattern.length; i++)
+                if (position[i] == p) return i;
+            return -1;
+        }
+
+        /** Sets {@code position[0..k-1]} from a rank, the inverse of {@link #rankPositions}. */
+        void unrank(int index) {
+            int k = pattern.length;
+            for (int i = k - 1; i >= 0; i--) {
+                digits[i] = index % (cells - i);
+                index /= cells - i;
+            }
+            int used = 0;
+            for (int i = 0; i < k; i++) {
+                int p = -1;
+                for (int free = digits[i]; free >= 0; ) {
+                    p++;
+                    if ((used & (1 << p)) == 0) free--;
+                }
+                position[i] = p;
+                used |= 1 << p;
+            }
+        }
+
+        int rankPositions() {
+            int index = 0;
+            int used = 0;
+            for (int i = 0; i < pattern.length; i++) {
+                int p = position[i];
+                index = index * (cells - i) + p - Integer.bitCount(used & ((1 << p) - 1));
+                used |= 1 << p;
+            }
+            return index;
+        }
+    }
+
+
+    /**
+     * @return a string representation of the pattern database
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append("Pattern database for " + puzzle.size() + "x" + puzzle.size() + " with goal " + puzzle.unpack(goal) + "\n");
+        for (int i = 0; i < patterns.length; i++)
+            s.append("  pattern " + Arrays.toString(patterns[i]) + ": " + tables[i].limit() + " entries\n");
+        return s.toString();
+    }
+
+
+    /**
+     * Builds (or loads) a pattern database and prints it
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int N = Integer.valueOf(args[0]);
+            PackedNPuzzle puzzle = new PackedNPuzzle(N);
+            long time = System.nanoTime();
+            PatternDatabase pdb = loadOrBuild(puzzle, args[1], args[2]);
+            System.out.println(pdb);
+            System.out.println(String.format("Ready in %.1f seconds", (System.nanoTime() - time) / 1e9));
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java PatternDatabase size goal-state pdb-file");
+            System.exit(1);
+        }
+    }
+
+}
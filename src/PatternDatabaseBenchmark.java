@@ -0,0 +1,67 @@
+
+/**
+ * Compares A* with the Manhattan distance and A* with the 6-6-3 additive pattern
+ * database, on a fixed set of 4x4 instances, using {@link PackedNPuzzle}. The
+ * pattern database is loaded from the given file, or built and saved there the
+ * first time (which takes a minute or two).
+ */
+public class PatternDatabaseBenchmark {
+
+    private static final String GOAL = "/ABCD/EFGH/IJKL/MNO_/";
+
+    // Random walks from the goal, with optimal solution lengths from 36 to 58
+    private static final String[] INSTANCES = {
+        "/HIOC/NBFD/_EJL/AMGK/",
+        "/EACD/BHMO/FJKL/NIG_/",
+        "/EDAC/JFNL/MIKB/OHG_/",
+        "/KAFH/BDCN/MI_L/OEGJ/",
+        "/CK_D/FOHG/JEBN/IMAL/",
+        "/AKBH/NDL_/IOGJ/FCEM/",
+        "/BFEA/JIC_/LNMH/DKOG/",
+        "/HE_G/BFDC/NJLA/MIOK/",
+        "/OBCK/JLGA/HEFN/I_MD/",
+        "/LKJE/CMOH/BDFA/NIG_/",
+    };
+
+
+    private static PathFinder<String>.Result<String> run(PathFinder<String> finder, String start) {
+        long time = System.nanoTime();
+        PathFinder<String>.Result<String> result = finder.search("astar", start, GOAL);
+        time = System.nanoTime() - time;
+        System.out.print(String.format("  cost %4.1f  settled %8d  %9.2f ms", result.cost, result.visitedNodes, time / 1e6));
+        return result;
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String file = args.length > 0 ? args[0] : "npuzzle-4x4-663.pdb";
+            PackedNPuzzle puzzle = new PackedNPuzzle(4);
+            PathFinder<String> finder = new PathFinder<>(puzzle);
+
+            long time = System.nanoTime();
+            PatternDatabase pdb = PatternDatabase.loadOrBuild(puzzle, GOAL, file);
+            System.out.println(pdb);
+            System.out.println(String.format("Loaded in %.2f seconds\n", (System.nanoTime() - time) / 1e9));
+
+            long[] visited = new long[2];
+            for (String start : INSTANCES) {
+                System.out.print(start + "  manhattan");
+                puzzle.setPatternDatabase(null);
+                visited[0] += run(finder, start).visitedNodes;
+                System.out.print("  |  pdb");
+                puzzle.setPatternDatabase(pdb);
+                visited[1] += run(finder, start).visitedNodes;
+                System.out.println();
+            }
+            System.out.println(String.format("\nTotal settled: manhattan %d, pdb %d (%.1fx fewer)",
+                                             visited[0], visited[1], (double) visited[0] / visited[1]));
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java PatternDatabaseBenchmark [pdb-file]");
+            System.exit(1);
+        }
+    }
+
+}
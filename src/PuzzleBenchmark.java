@@ -0,0 +1,86 @@
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.HashMap;
+
+
+/**
+ * Compares {@link NPuzzle} with string states and {@link PackedNPuzzle} with
+ * packed states on a few 3x3 instances (including an unsolvable one, which
+ * settles the whole reachable half of the state space). For every run it
+ * reports the cost, the number of settled states, the average wall time and
+ * the allocated bytes per settled state.
+ */
+public class PuzzleBenchmark {
+
+    private static final int ROUNDS = 3;
+
+
+    private static void run(String name, DirectedGraph<String> graph, String algorithm, String start, String goal) {
+        PathFinder<String> finder = new PathFinder<>(graph);
+        Measurement<PathFinder<String>.Result<String>> measurement = Measurement.of(1, ROUNDS, () -> finder.search(algorithm, start, goal));
+        PathFinder<String>.Result<String> result = measurement.result;
+
+        System.out.println(String.format("%-14s %-8s %s -> %s  cost %5.1f  settled %7d  %8.2f ms  bytes/settled %5d",
+                                         name, algorithm, start, goal, result.cost, result.visitedNodes,
+                                         measurement.nanosPerOperation() / 1e6,
+                                         measurement.bytesPerOperation() / Math.max(1, result.visitedNodes)));
+    }
+
+
+    public static void main(String[] args) {
+        String goal = "/ABC/DEF/GH_/";
+        String[] starts = {"/CBA/DEF/_HG/", "/HFG/BED/C_A/", "/HGF/BED/C_A/"};
+        NPuzzle strings = new NPuzzle(3);
+        PackedNPuzzle packed = new PackedNPuzzle(3);
+        for (String algorithm : new String[] {"dijkstra", "astar"})
+            for (String start : starts) {
+                run("NPuzzle", strings, algorithm, start, goal);
+                run("PackedNPuzzle", packed, algorithm, start, goal);
+            }
+
+        PackedNPuzzle.Solution solution = packed.search(starts[2], goal, false);
+        System.out.println(String.format("Packed state table and queue after a full search: %d states, %.1f bytes/state",
+                                         solution.generatedNodes, (double) solution.tableBytes / solution.generatedNodes));
+        System.out.println(String.format("String states in the maps PathFinder.searchAstar used: %.1f bytes/state",
+                                         stringFootprint(strings, starts[2])));
+    }
+
+
+    /**
+     * Measures the heap retained by the structures that {@code PathFinder.searchAstar} kept
+     * per state before {@link NodeIndex} (the state string, the visited set and the distTo,
+     * estDistTo and edgeTo maps), filled with all states reachable from {@code start}.
+     */
+    private static double stringFootprint(NPuzzle puzzle, String start) {
+        List<String> states = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        states.add(start);
+        seen.add(start);
+        for (int i = 0; i < states.size(); i++)
+            puzzle.forEachOutgoing(states.get(i), (w, weight) -> { if (seen.add(w)) states.add(w); });
+        int n = states.size();
+
+        long before = Measurement.usedMemory();
+        String[] copies = new String[n];
+        for (int i = 0; i < n; i++)
+            copies[i] = new String(states.get(i).toCharArray());
+        Set<String> visited = new HashSet<>();
+        HashMap<String,Double> distTo = new HashMap<>();
+        HashMap<String,Double> estDistTo = new HashMap<>();
+        HashMap<String,String> edgeTo = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            visited.add(copies[i]);
+            distTo.put(copies[i], (double) i);
+            estDistTo.put(copies[i], (double) i + 1);
+            edgeTo.put(copies[i], copies[i > 0 ? i - 1 : 0]);
+        }
+        long after = Measurement.usedMemory();
+        if (visited.size() + distTo.size() + estDistTo.size() + edgeTo.size() + seen.size() != 5 * n)
+            throw new AssertionError();
+        return (double) (after - before) / n;
+    }
+
+}
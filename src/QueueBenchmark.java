@@ -0,0 +1,96 @@
+
+
+/**
+ * Compares the lazy-deletion {@link LazyMinPQ} and the {@link IndexedMinPQ}
+ * in {@link PathFinder}, on a few of the bundled graphs, and finally the
+ * frozen ({@link CompactGraph}) versions of the adjacency graphs. Grids are always
+ * searched on cell indices by {@link GridSearch}. For every query and
+ * queue it reports the cost found, the number of settled nodes, the number of
+ * priority queue operations, the allocated bytes per settled node, and the
+ * average wall time.
+ *
+ * It checks that every path found leads from the start to the goal with edges that add
+ * up to its cost, and that both queues find the same cost. A* on the {@link NPuzzle} is
+ * the exception: its estimate is not consistent, so the indexed queue, which settles
+ * the nodes in another order, can find a path of another cost (and visits other nodes).
+ */
+public class QueueBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 5;
+
+
+    private static <V> void run(String name, DirectedGraph<V> graph, String algorithm, V start, V goal) {
+        boolean frozen = graph instanceof AdjacencyGraph && ((AdjacencyGraph) graph).compiled() != null;
+        boolean dense = graph instanceof GridGraph;
+        double lazyCost = Double.NaN;
+        for (boolean indexed : frozen || dense ? new boolean[] {true} : new boolean[] {false, true}) {
+            PathFinder<V> finder = new PathFinder<>(graph);
+            finder.setIndexedQueue(indexed);
+            Measurement<PathFinder<V>.Result<V>> measurement = Measurement.of(WARMUP, ROUNDS, () -> finder.search(algorithm, start, goal));
+            PathFinder<V>.Result<V> result = measurement.result;
+
+            System.out.println(String.format("%-22s %-8s %-7s cost %10.2f  settled %7d  queue ops %8d  bytes/settled %6d  %8.2f ms",
+                                             name, algorithm, frozen ? "compact" : dense ? "dense" : indexed ? "indexed" : "lazy",
+                                             result.cost, result.visitedNodes, finder.queueOperations(),
+                                             measurement.bytesPerOperation() / Math.max(1, result.visitedNodes),
+                                             measurement.nanosPerOperation() / 1e6));
+            checkPath(name, graph, start, result);
+            if (!indexed)
+                lazyCost = result.cost;
+            else if (!Double.isNaN(lazyCost) && lazyCost != result.cost && !(graph instanceof NPuzzle && algorithm.equals("astar")))
+                throw new AssertionError(name + " " + algorithm + ": the indexed queue finds cost " + result.cost + ", the lazy one " + lazyCost);
+        }
+    }
+
+
+    /**
+     * Checks that the path of a result leads from {@code start} to its goal with edges
+     * that add up to its cost.
+     */
+    private static <V> void checkPath(String name, DirectedGraph<V> graph, V start, PathFinder<V>.Result<V> result) {
+        double cost = 0;
+        V v = start;
+        for (int i = result.path.size() - 1; i >= 0; i--) {  // the path is from the goal back, without the start
+            V w = result.path.get(i);
+            double weight = Double.POSITIVE_INFINITY;
+            for (DirectedEdge<V> edge : graph.outgoingEdges(v))
+                if (edge.to().equals(w)) weight = Math.min(weight, edge.weight());
+            cost += weight;
+            v = w;
+        }
+        if (!v.equals(result.goal) || Math.abs(cost - result.cost) > 1e-6)
+            throw new AssertionError(name + ": the path from " + start + " ends in " + v + " and costs " + cost + ", not " + result.cost);
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            String dir = args.length > 0 ? args[0] : "src/graphs";
+            AdjacencyGraph eu = new AdjacencyGraph(dir + "/AdjacencyGraph/citygraph-EU.txt");
+            AdjacencyGraph usa = new AdjacencyGraph(dir + "/AdjacencyGraph/citygraph-USA.txt");
+            AdjacencyGraph wiki = new AdjacencyGraph(dir + "/AdjacencyGraph/wikipedia-graph.txt");
+            NPuzzle puzzle = new NPuzzle(3);
+            GridGraph grid = new GridGraph(dir + "/GridGraph/AR0011SR.map");
+            for (String algorithm : new String[] {"dijkstra", "astar"}) {
+                run("citygraph-EU", eu, algorithm, "Volos, Greece", "Oulu, Finland");
+                run("citygraph-USA", usa, algorithm, "Seattle, WA", "Miami Beach, FL");
+                run("wikipedia-graph", wiki, algorithm, "Sweden", "Zebra");
+                run("NPuzzle 3", puzzle, algorithm, "/HFG/BED/C_A/", "/ABC/DEF/GH_/");
+                run("AR0011SR.map", grid, algorithm, new GridGraph.Coord(23, 161), new GridGraph.Coord(130, 211));
+            }
+            eu.freeze();
+            usa.freeze();
+            wiki.freeze();
+            run("citygraph-EU", eu, "dijkstra", "Volos, Greece", "Oulu, Finland");
+            run("citygraph-USA", usa, "dijkstra", "Seattle, WA", "Miami Beach, FL");
+            run("wikipedia-graph", wiki, "dijkstra", "Sweden", "Zebra");
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java QueueBenchmark [graph-directory]");
+            System.exit(1);
+        }
+    }
+
+}
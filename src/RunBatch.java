@@ -0,0 +1,202 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.HashSet;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import java.io.PrintStream;
+import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+
+/**
+ * Answers a file of queries on one graph with a pool of threads.
+ *
+ * Every line of the query file is {@code algorithm start goal}, separated by tabs, or
+ * by spaces if the line has no tabs (node names with spaces need tabs). Empty lines and
+ * lines starting with # are skipped.
+ *
+ * The graph is loaded once and shared by all threads. The parts of it that are built
+ * lazily (the compiled graph, landmarks, the contraction hierarchy and the incoming
+ * edges) are built before the threads start, so the searches only read the graph.
+ * Every thread has its own {@link PathFinder}, whose reused search arrays are the
+ * workspace of the queries on that thread.
+ *
+ * The results are written in the order of the queries, one tab-separated line per
+ * query: the query, whether a path was found, its cost, the visited nodes, the number
+ * of steps and the time of the search in milliseconds, or the error of a query that
+ * failed. After them comes a summary with the throughput and the latency percentiles of
+ * the answered queries, and the number of errors.
+ *
+ * If a statistics file is given, every path finder also gets a {@link SearchStats}, and
+ * the record of every query is written to that file in the order of the queries, as
+ * JSON if its name ends with {@code .json} and as CSV otherwise.
+ */
+public class RunBatch {
+
+    private static List<String[]> readQueries(String file) throws Exception {
+        List<String[]> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file))) {
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+            String[] query = line.indexOf('\t') >= 0 ? line.split("\t") : line.trim().split("\\s+");
+            if (query.length != 3)
+                throw new IllegalArgumentException("Malformatted query: " + line);
+            for (int i = 0; i < 3; i++)
+                query[i] = query[i].trim();
+            queries.add(query);
+        }
+        return queries;
+    }
+
+
+    private static <V> void run(DirectedGraph<V> graph, Function<String, V> node, List<String[]> queries,
+                                int threads, PrintStream out, String statsFile) throws Exception {
+        ThreadLocal<PathFinder<V>> finders = ThreadLocal.withInitial(() -> {
+                PathFinder<V> finder = new PathFinder<>(graph);
+                if (statsFile != null) finder.setListener(new SearchStats());
+                return finder;
+            });
+        long[] latency = new long[queries.size()];
+        boolean[] answered = new boolean[queries.size()];  // false for the queries that threw
+        SearchStats.Record[] records = new SearchStats.Record[queries.size()];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>(queries.size());
+        long time = System.nanoTime();
+        for (int i = 0; i < queries.size(); i++) {
+            int q = i;
+            String[] query = queries.get(q);
+            results.add(pool.submit(() -> {
+                PathFinder<V> finder = finders.get();
+                long start = System.nanoTime();
+                PathFinder<V>.Result<V> result;
+                try {
+                    result = finder.search(query[0], node.apply(query[1]), node.apply(query[2]));
+                    answered[q] = true;
+                } finally {
+                    latency[q] = System.nanoTime() - start;
+                }
+                if (statsFile != null) {
+                    SearchStats stats = (SearchStats) finder.listener();
+                    records[q] = stats.last();
+                    stats.clear();
+                }
+                return String.format("%s\t%s\t%s\t%d\t%d\t%.3f", String.join("\t", query), result.success, result.cost,
+                                     result.visitedNodes, result.path == null ? 0 : result.path.size(), latency[q] / 1e6);
+            }));
+        }
+        for (int q = 0; q < results.size(); q++) {
+            try {
+                out.println(results.get(q).get());
+            } catch (ExecutionException e) {
+                out.println(String.join("\t", queries.get(q)) + "\terror: " + e.getCause());
+            }
+        }
+        time = System.nanoTime() - time;
+        pool.shutdown();
+        out.flush();
+
+        long[] sorted = new long[queries.size()];
+        int nrAnswered = 0;
+        for (int q = 0; q < latency.length; q++)
+            if (answered[q]) sorted[nrAnswered++] = latency[q];
+        sorted = Arrays.copyOf(sorted, nrAnswered);
+        Arrays.sort(sorted);
+        System.out.println(String.format("%d queries on %d threads in %.3f seconds: %.1f queries/second, %d errors",
+                                         nrAnswered, threads, time / 1e9, nrAnswered / (time / 1e9),
+                                         queries.size() - nrAnswered));
+        System.out.println(String.format("Latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                                         percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+                                         percentile(sorted, 99) / 1e6, percentile(sorted, 100) / 1e6));
+
+        if (statsFile != null) {
+            List<SearchStats.Record> found = new ArrayList<>();
+            for (SearchStats.Record record : records)
+                if (record != null) found.add(record);  // not for the queries that failed
+            SearchStats.write(found, statsFile);
+        }
+    }
+
+
+    /**
+     * @return the {@code p}th percentile (nearest rank) of a sorted array
+     */
+    private static long percentile(long[] sorted, int p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+
+    public static void main(String[] args) {
+        try {
+            if (args.length < 3 || args.length > 6) throw new IllegalArgumentException();
+            String graphType = args[0], filePath = args[1];
+            List<String[]> queries = readQueries(args[2]);
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            PrintStream out = args.length > 4
+                ? new PrintStream(new BufferedOutputStream(new FileOutputStream(args[4])), false, "UTF-8")
+                : System.out;
+            String statsFile = args.length > 5 ? args[5] : null;
+            Set<String> algorithms = new HashSet<>();
+            for (String[] query : queries)
+                algorithms.add(query[0]);
+
+            switch (graphType) {
+
+            case "AdjacencyGraph":
+                AdjacencyGraph graph = GraphSnapshot.adjacencyGraph(filePath, filePath + ".snap");
+                CompactGraph compact = graph.freeze();
+                if (algorithms.contains("astar") || algorithms.contains("biastar"))
+                    graph.setLandmarks(Landmarks.loadOrBuild(compact, 8, filePath + ".alt"));
+                if (algorithms.contains("ch"))
+                    graph.contract(filePath + ".ch");
+                if ((algorithms.contains("bidijkstra") || algorithms.contains("biastar")) && compact.nrNodes() > 0)
+                    graph.incomingEdges(compact.name(0));  // builds the incoming edges of every node
+                run(graph, v -> v, queries, threads, out, statsFile);
+                break;
+
+            case "WordLadder":
+                run(GraphSnapshot.wordLadder(filePath, filePath + ".snap"), v -> v, queries, threads, out, statsFile);
+                break;
+
+            case "NPuzzle":
+                run(new NPuzzle(Integer.valueOf(filePath)), v -> v, queries, threads, out, statsFile);
+                break;
+
+            case "PackedNPuzzle":
+                run(new PackedNPuzzle(Integer.valueOf(filePath)), v -> v, queries, threads, out, statsFile);
+                break;
+
+            case "GridGraph":
+                run(GraphSnapshot.gridGraph(filePath, filePath + ".snap"), v -> {
+                        String[] c = v.split(":");
+                        return new GridGraph.Coord(Integer.valueOf(c[0]), Integer.valueOf(c[1]));
+                    }, queries, threads, out, statsFile);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown graph type: " + graphType);
+            }
+            if (out != System.out) out.close();
+
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java RunBatch graphtype graph query-file [threads] [output-file] [stats-file]");
+            System.err.println("  where graphtype = AdjacencyGraph | WordLadder | NPuzzle | PackedNPuzzle | GridGraph");
+            System.err.println("  and every line of the query file is: algorithm start goal");
+            System.exit(1);
+        }
+    }
+
+}
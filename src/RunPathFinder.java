@@ -13,6 +13,8 @@ public class RunPathFinder {
         if (result.success && graph.width() < 250 && graph.height() < 250)
             System.out.println(graph.showGrid(result.path));
         System.out.println(result);
+        if (algorithm.equals("idastar"))
+            finder.iterations().forEach(System.out::println);
     }
 
 
@@ -67,16 +69,21 @@ public class RunPathFinder {
 
 
 
-            PathFinder<String> finder;
+            PathFinder<String> finder = null;
             switch (graphType) {
 
             case "AdjacencyGraph":
-                finder = new PathFinder<>(new AdjacencyGraph(filePath));
+                AdjacencyGraph graph = GraphSnapshot.adjacencyGraph(filePath, filePath + ".snap");
+                if (algorithm.equals("ch"))
+                    graph.contract(filePath + ".ch");
+                if (algorithm.equals("astar") || algorithm.equals("biastar"))
+                    graph.setLandmarks(Landmarks.loadOrBuild(graph.freeze(), 8, filePath + ".alt"));
+                finder = new PathFinder<>(graph);
                 System.out.println(finder.search(algorithm, start, goal));
                 break;
 
             case "WordLadder":
-                finder = new PathFinder<>(new WordLadder(filePath));
+                finder = new PathFinder<>(GraphSnapshot.wordLadder(filePath, filePath + ".snap"));
                 System.out.println(finder.search(algorithm, start, goal));
                 break;
 
@@ -85,21 +92,28 @@ public class RunPathFinder {
                 System.out.println(finder.search(algorithm, start, goal));
                 break;
 
+            case "PackedNPuzzle":
+                finder = new PathFinder<>(new PackedNPuzzle(Integer.valueOf(filePath)));
+                System.out.println(finder.search(algorithm, start, goal));
+                break;
+
             case "GridGraph":
-                testGridGraph(new GridGraph(filePath), algorithm, start, goal);
+                testGridGraph(GraphSnapshot.gridGraph(filePath, filePath + ".snap"), algorithm, start, goal);
                 break;
 
             default:
                 throw new IllegalArgumentException("Unknown graph type: " + graphType);
             }
+            if (finder != null && algorithm.equals("idastar"))
+                finder.iterations().forEach(System.out::println);
 
         } catch (Exception e) {
             // If there is an error, print it and a little command-line help
             e.printStackTrace();
             System.err.println();
             System.err.println("Usage: java RunPathFinder algorithm graphtype graph start goal");
-            System.err.println("  where algorithm = random | dijkstra | astar");
-            System.err.println("        graphtype = AdjacencyGraph | WordLadder | NPuzzle | GridGraph");
+            System.err.println("  where algorithm = random | dijkstra | astar | dial | dialastar | idastar | bidijkstra | biastar | ch | jps | delta | external");
+            System.err.println("        graphtype = AdjacencyGraph | WordLadder | NPuzzle | PackedNPuzzle | GridGraph");
             System.exit(1);
         }
     }
@@ -0,0 +1,60 @@
+/**
+ * Receives the events of the searches of a {@link PathFinder}, see
+ * {@link PathFinder#setListener}. Every method does nothing by default, so a
+ * listener only overrides the events it needs; {@link SearchStats} counts all of them.
+ *
+ * The searches only call a listener if one is set, so without one they do no more
+ * than a null check per event. Dijkstra's algorithm and A* report every event, both
+ * the generic ones and those over a {@link CompactGraph}, a {@link GridGraph}, a
+ * {@link WordIndex} or a {@link PackedNPuzzle}, and so does bidirectional search. The other algorithms only report the start and the
+ * end of the search, and their time building the path counts as search time.
+ */
+public interface SearchListener {
+
+    /**
+     * A search starts.
+     * @param  algorithm  the algorithm, as in {@code PathFinder.search}
+     * @param  start      the start node
+     * @param  goal       the goal node
+     */
+    public default void searchStarted(String algorithm, Object start, Object goal) {}
+
+    /**
+     * A node was pushed onto the queue, or its priority was decreased.
+     * @param  queueSize  the size of the queue afterwards
+     */
+    public default void pushed(int queueSize) {}
+
+    /**
+     * A node was popped from the queue.
+     * @param  stale  true if the node was already settled, so the entry was an outdated
+     *                duplicate left by lazy deletion
+     */
+    public default void popped(boolean stale) {}
+
+    /**
+     * An edge from a settled node was relaxed.
+     * @param  improved  true if the edge gave its ending node a shorter distance
+     */
+    public default void relaxed(boolean improved) {}
+
+    /**
+     * The remaining cost to the goal was estimated, with {@code guessCost} or an
+     * estimate computing the same.
+     */
+    public default void heuristicCalled() {}
+
+    /**
+     * The goal was reached and the path is being built from the parents of the nodes.
+     */
+    public default void pathStarted() {}
+
+    /**
+     * A search ended.
+     * @param  success       whether a path was found
+     * @param  cost          the cost of the path, or -1
+     * @param  visitedNodes  the number of visited nodes
+     */
+    public default void searchFinished(boolean success, double cost, int visitedNodes) {}
+
+}
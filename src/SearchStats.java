@@ -0,0 +1,241 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+
+/**
+ * A {@link SearchListener} that counts the events of every search and keeps one
+ * {@link Record} per search, which can be exported as CSV or JSON.
+ *
+ * The time of a search is split at {@link SearchListener#pathStarted}: the search
+ * time runs from the start until the goal is reached, and the path time from there
+ * until the result is ready. Times are measured with {@code System.nanoTime}.
+ *
+ * Like {@code PathFinder}, an instance is not thread-safe; use one per path finder.
+ */
+public class SearchStats implements SearchListener {
+
+    /** The columns of the CSV export, which are also the names in the JSON export. */
+    public static final String[] COLUMNS = {
+        "algorithm", "start", "goal", "success", "cost", "visitedNodes", "searchNanos", "pathNanos",
+        "pushes", "pops", "stalePops", "relaxations", "improvingRelaxations", "peakQueueSize", "heuristicCalls"
+    };
+
+
+    /**
+     * The statistics of one search.
+     */
+    public static class Record {
+        public final String algorithm;
+        public final Object start, goal;
+        public final boolean success;
+        public final double cost;
+        public final int visitedNodes;
+        public final long searchNanos, pathNanos;
+        public final long pushes, pops, stalePops, relaxations, improvingRelaxations, heuristicCalls;
+        public final int peakQueueSize;
+
+        Record(SearchStats stats, boolean success, double cost, int visitedNodes, long searchNanos, long pathNanos) {
+            this.algorithm = stats.algorithm;
+            this.start = stats.start;
+            this.goal = stats.goal;
+            this.success = success;
+            this.cost = cost;
+            this.visitedNodes = visitedNodes;
+            this.searchNanos = searchNanos;
+            this.pathNanos = pathNanos;
+            this.pushes = stats.pushes;
+            this.pops = stats.pops;
+            this.stalePops = stats.stalePops;
+            this.relaxations = stats.relaxations;
+            this.improvingRelaxations = stats.improvingRelaxations;
+            this.peakQueueSize = stats.peakQueueSize;
+            this.heuristicCalls = stats.heuristicCalls;
+        }
+
+        /** The values in the order of {@link #COLUMNS}; strings are the node names. */
+        private Object[] values() {
+            return new Object[] {algorithm, String.valueOf(start), String.valueOf(goal), success, cost, visitedNodes,
+                                 searchNanos, pathNanos, pushes, pops, stalePops, relaxations, improvingRelaxations,
+                                 peakQueueSize, heuristicCalls};
+        }
+
+        public String toString() {
+            return String.format("%s %s -> %s: search %.3f ms, path %.3f ms, %d pushes, %d pops (%d stale), "
+                                 + "%d relaxations (%d improving), peak queue %d, %d heuristic calls",
+                                 algorithm, start, goal, searchNanos / 1e6, pathNanos / 1e6, pushes, pops, stalePops,
+                                 relaxations, improvingRelaxations, peakQueueSize, heuristicCalls);
+        }
+    }
+
+
+    private final List<Record> records = new ArrayList<>();
+
+    // the search in progress
+    private String algorithm;
+    private Object start, goal;
+    private long startNanos, pathStartNanos;
+    private long pushes, pops, stalePops, relaxations, improvingRelaxations, heuristicCalls;
+    private int peakQueueSize;
+
+
+    public void searchStarted(String algorithm, Object start, Object goal) {
+        this.algorithm = algorithm;
+        this.start = start;
+        this.goal = goal;
+        pushes = pops = stalePops = relaxations = improvingRelaxations = heuristicCalls = 0;
+        peakQueueSize = 0;
+        pathStartNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    public void pushed(int queueSize) {
+        pushes++;
+        if (queueSize > peakQueueSize) peakQueueSize = queueSize;
+    }
+
+    public void popped(boolean stale) {
+        pops++;
+        if (stale) stalePops++;
+    }
+
+    public void relaxed(boolean improved) {
+        relaxations++;
+        if (improved) improvingRelaxations++;
+    }
+
+    public void heuristicCalled() {
+        heuristicCalls++;
+    }
+
+    public void pathStarted() {
+        pathStartNanos = System.nanoTime();
+    }
+
+    public void searchFinished(boolean success, double cost, int visitedNodes) {
+        long endNanos = System.nanoTime();
+        long pathStart = pathStartNanos == 0 ? endNanos : pathStartNanos;
+        records.add(new Record(this, success, cost, visitedNodes, pathStart - startNanos, endNanos - pathStart));
+    }
+
+
+    /**
+     * @return the records of the searches so far, oldest first
+     */
+    public List<Record> records() {
+        return Collections.unmodifiableList(records);
+    }
+
+
+    /**
+     * @return the record of the last search, or null if there was none
+     */
+    public Record last() {
+        return records.isEmpty() ? null : records.get(records.size() - 1);
+    }
+
+
+    /**
+     * Forgets the records of the searches so far.
+     */
+    public void clear() {
+        records.clear();
+    }
+
+
+    /**
+     * @param  records  the records to export
+     * @return the records as CSV, with a header line with the {@link #COLUMNS}
+     */
+    public static String toCsv(List<Record> records) {
+        StringBuilder csv = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (Record record : records) {
+            Object[] values = record.values();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) csv.append(',');
+                if (values[i] instanceof String) {
+                    String s = (String) values[i];
+                    if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0)
+                        s = '"' + s.replace("\"", "\"\"") + '"';
+                    csv.append(s);
+                } else {
+                    csv.append(values[i]);
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+
+    /**
+     * @param  records  the records to export
+     * @return the records as a JSON array with one object per record
+     */
+    public static String toJson(List<Record> records) {
+        StringBuilder json = new StringBuilder("[");
+        for (int r = 0; r < records.size(); r++) {
+            Object[] values = records.get(r).values();
+            json.append(r > 0 ? ",\n  {" : "\n  {");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) json.append(", ");
+                json.append('"').append(COLUMNS[i]).append("\": ");
+                if (values[i] instanceof String)
+                    quote(json, (String) values[i]);
+                else
+                    json.append(values[i]);
+            }
+            json.append('}');
+        }
+        return json.append(records.isEmpty() ? "]\n" : "\n]\n").toString();
+    }
+
+
+    private static void quote(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+
+    /**
+     * Writes records to a file, as JSON if its name ends with {@code .json} and as CSV otherwise.
+     * @param  records  the records to export
+     * @param  file     the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Record> records, String file) throws IOException {
+        String text = file.endsWith(".json") ? toJson(records) : toCsv(records);
+        Files.write(Paths.get(file), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * @return the records of the searches so far as CSV
+     */
+    public String toCsv() {
+        return toCsv(records);
+    }
+
+
+    /**
+     * @return the records of the searches so far as JSON
+     */
+    public String toJson() {
+        return toJson(records);
+    }
+
+}
@@ -0,0 +1,126 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
+
+
+/**
+ * The shortest paths from one source node to every node it can reach, as computed by
+ * {@link PathFinder#shortestPathTree}: the distance of every reached node and the node
+ * before it on its shortest path.
+ *
+ * For a frozen {@link AdjacencyGraph} the tree is kept as arrays over the node ids of
+ * the {@link CompactGraph}, and otherwise as hash maps.
+ */
+public class ShortestPathTree<V> {
+
+    private final V source;
+    private final int size;
+
+    // the tree over node ids
+    private final CompactGraph compact;
+    private final double[] distances;   // infinity for the nodes that are not reached
+    private final int[] parents;        // -1 for the source
+
+    // the tree over nodes
+    private final Map<V, Double> distTo;
+    private final Map<V, V> parent;     // the source has no parent
+
+
+    /**
+     * @param  source  the source node
+     * @param  distTo  the distance of every node reached from the source
+     * @param  parent  the node before every reached node except the source
+     */
+    public ShortestPathTree(V source, Map<V, Double> distTo, Map<V, V> parent) {
+        this.source = source;
+        this.size = distTo.size();
+        this.distTo = distTo;
+        this.parent = parent;
+        this.compact = null;
+        this.distances = null;
+        this.parents = null;
+    }
+
+
+    /**
+     * @param  source     the source node
+     * @param  compact    the compiled graph
+     * @param  distances  the distance of every node id, infinity if it is not reached
+     * @param  parents    the id of the node before every reached node, -1 for the source
+     * @param  size       the number of reached nodes
+     */
+    public ShortestPathTree(V source, CompactGraph compact, double[] distances, int[] parents, int size) {
+        this.source = source;
+        this.size = size;
+        this.compact = compact;
+        this.distances = distances;
+        this.parents = parents;
+        this.distTo = null;
+        this.parent = null;
+    }
+
+
+    /**
+     * @return the source node
+     */
+    public V source() {
+        return source;
+    }
+
+
+    /**
+     * @return the number of nodes reached from the source, including the source
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @param  v  a node
+     * @return true if there is a path from the source to {@code v}
+     */
+    public boolean reaches(V v) {
+        return distanceTo(v) < Double.POSITIVE_INFINITY;
+    }
+
+
+    /**
+     * @param  v  a node
+     * @return the cost of the shortest path from the source to {@code v}, or infinity if there is none
+     */
+    public double distanceTo(V v) {
+        if (compact == null)
+            return distTo.getOrDefault(v, Double.POSITIVE_INFINITY);
+        int id = compact.id((String) v);
+        return id < 0 ? Double.POSITIVE_INFINITY : distances[id];
+    }
+
+
+    /**
+     * @param  v  a node reached from the source
+     * @return the shortest path from the goal {@code v} back to the source, excluding the
+     *         source, like in {@link PathFinder.Result}
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> pathTo(V v) {
+        List<V> path = new ArrayList<>();
+        if (compact == null) {
+            for (V node = v; !node.equals(source); node = parent.get(node))
+                path.add(node);
+        } else {
+            for (int node = compact.id((String) v); parents[node] >= 0; node = parents[node])
+                path.add((V) compact.name(node));
+        }
+        return path;
+    }
+
+
+    /**
+     * @return a string representation of the tree
+     */
+    public String toString() {
+        return "Shortest-path tree from " + source + " reaching " + size() + " nodes";
+    }
+
+}
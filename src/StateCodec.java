@@ -0,0 +1,22 @@
+/**
+ * Converts the nodes of a graph to fixed-size records of one {@code long} and back, so
+ * that they can be sorted, compared and written to disk without their objects, as by
+ * {@link ExternalSearch}. Two nodes must have the same record exactly if they are equal,
+ * and the record must be the same in every run of the program.
+ */
+public interface StateCodec<V> {
+
+    /**
+     * @param  state  a node of the graph
+     * @return the record of {@code state}
+     * @throws IllegalArgumentException if the node cannot be encoded
+     */
+    public long encode(V state);
+
+    /**
+     * @param  record  a record returned by {@link #encode}
+     * @return the node with that record
+     */
+    public V decode(long record);
+
+}
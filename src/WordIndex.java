@@ -0,0 +1,364 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.HashMap;
+
+import java.util.stream.IntStream;
+
+import java.io.IOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A neighbour index for a {@link WordLadder} dictionary.
+ *
+ * Every word gets an int id (the words are sorted, so the ids do not depend on the
+ * order of the file). Every word of length {@code L} belongs to {@code L} buckets,
+ * one for each wildcard pattern with one letter blanked out: "katter" is in the
+ * buckets "_atter", "k_tter", ..., "katte_". Two words are neighbours exactly when
+ * they share a bucket, and then they share exactly one, so the neighbours of a
+ * word are the other members of its buckets, found with a few array scans.
+ *
+ * The buckets are found by sorting all patterns, which can be done in parallel.
+ * Both the buckets of each word and the members of each bucket are stored in
+ * CSR layout, as in {@link CompactGraph}. The index can be saved to a file (on its
+ * own, or in a {@link GraphSnapshot}) and loaded again instead of being rebuilt.
+ */
+public class WordIndex {
+
+    private static final int MAGIC = 0x57495832;  // "WIX2"
+
+    private final String[] words;
+    private final Map<String, Integer> ids;
+    private final int[] wordOffsets;    // the buckets of word w are wordBuckets[wordOffsets[w] .. wordOffsets[w+1]-1]
+    private final int[] wordBuckets;
+    private final int[] bucketOffsets;  // the words of bucket b are members[bucketOffsets[b] .. bucketOffsets[b+1]-1]
+    private final int[] members;
+
+
+    private WordIndex(String[] words, int[] wordOffsets, int[] wordBuckets, int[] bucketOffsets, int[] members) {
+        this.words = words;
+        this.wordOffsets = wordOffsets;
+        this.wordBuckets = wordBuckets;
+        this.bucketOffsets = bucketOffsets;
+        this.members = members;
+        ids = new HashMap<>(2 * words.length);
+        for (int w = 0; w < words.length; w++)
+            ids.put(words[w], w);
+    }
+
+
+    /**
+     * Builds the index of a dictionary.
+     * @param  dictionary  the words
+     * @param  parallel    whether to compute and sort the patterns in parallel
+     * @return the index
+     */
+    public static WordIndex build(Collection<String> dictionary, boolean parallel) {
+        String[] words = dictionary.toArray(new String[0]);
+        if (parallel) Arrays.parallelSort(words);
+        else Arrays.sort(words);
+
+        int n = words.length;
+        int[] wordOffsets = new int[n + 1];
+        for (int w = 0; w < n; w++)
+            wordOffsets[w + 1] = wordOffsets[w] + words[w].length();
+        int positions = wordOffsets[n];
+
+        // The pattern of every (word, position), and the word it belongs to
+        String[] patterns = new String[positions];
+        int[] wordOf = new int[positions];
+        IntStream range = IntStream.range(0, n);
+        (parallel ? range.parallel() : range).forEach(w -> {
+            char[] letters = words[w].toCharArray();
+            for (int i = 0; i < letters.length; i++) {
+                char org = letters[i];
+                letters[i] = '_';
+                patterns[wordOffsets[w] + i] = new String(letters);
+                wordOf[wordOffsets[w] + i] = w;
+                letters[i] = org;
+            }
+        });
+
+        // Sorting the positions by pattern puts the members of every bucket next to each other
+        Integer[] order = new Integer[positions];
+        for (int p = 0; p < positions; p++) order[p] = p;
+        if (parallel) Arrays.parallelSort(order, (p, q) -> patterns[p].compareTo(patterns[q]));
+        else Arrays.sort(order, (p, q) -> patterns[p].compareTo(patterns[q]));
+
+        int[] wordBuckets = new int[positions];
+        int[] members = new int[positions];
+        int[] bucketStarts = new int[positions + 1];
+        int buckets = 0;
+        for (int i = 0; i < positions; i++) {
+            int p = order[i];
+            if (i == 0 || !patterns[p].equals(patterns[order[i - 1]]))
+                bucketStarts[buckets++] = i;
+            wordBuckets[p] = buckets - 1;
+            members[i] = wordOf[p];
+        }
+        bucketStarts[buckets] = positions;
+        return new WordIndex(words, wordOffsets, wordBuckets, Arrays.copyOf(bucketStarts, buckets + 1), members);
+    }
+
+
+    /**
+     * Writes the index to a file.
+     * @param  file  the file name
+     */
+    public void save(String file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(file)), 1 << 16))) {
+            out.writeInt(MAGIC);
+            write(out);
+        }
+    }
+
+
+    /**
+     * Reads an index file written by {@link #save}.
+     * @param  file  the file name
+     * @return the index
+     */
+    public static WordIndex load(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a word index file: " + file);
+            return read(in);
+        }
+    }
+
+
+    /**
+     * Writes the words and the index arrays, for {@link #save} and {@link GraphSnapshot}.
+     * @param  out  the output
+     */
+    void write(DataOutputStream out) throws IOException {
+        GraphSnapshot.writeStrings(out, words);
+        for (int[] array : new int[][] {wordOffsets, wordBuckets, bucketOffsets, members})
+            GraphSnapshot.writeInts(out, array);
+    }
+
+
+    /**
+     * Reads an index written by {@link #write}.
+     * @param  in  the input, positioned at the index
+     * @return the index
+     */
+    static WordIndex read(ByteBuffer in) {
+        String[] words = GraphSnapshot.readStrings(in);
+        return new WordIndex(words, GraphSnapshot.readInts(in), GraphSnapshot.readInts(in),
+                             GraphSnapshot.readInts(in), GraphSnapshot.readInts(in));
+    }
+
+
+    /**
+     * @return the number of words
+     */
+    public int nrWords() {
+        return words.length;
+    }
+
+
+    /**
+     * @return the number of buckets (distinct wildcard patterns)
+     */
+    public int nrBuckets() {
+        return bucketOffsets.length - 1;
+    }
+
+
+    /**
+     * @param  word  a word
+     * @return the id of {@code word}, or -1 if it is not in the dictionary
+     */
+    public int id(String word) {
+        Integer id = ids.get(word);
+        return id == null ? -1 : id;
+    }
+
+
+    /**
+     * @param  w  a word id
+     * @return the word with id {@code w}
+     */
+    public String word(int w) {
+        return words[w];
+    }
+
+
+    /**
+     * Calls {@code action} for every word that differs from word {@code w} in exactly one letter.
+     * @param  w       a word id
+     * @param  action  the consumer of the edges
+     */
+    public void forEachNeighbour(int w, EdgeConsumer<String> action) {
+        for (int i = wordOffsets[w]; i < wordOffsets[w + 1]; i++) {
+            int b = wordBuckets[i];
+            for (int j = bucketOffsets[b]; j < bucketOffsets[b + 1]; j++)
+                if (members[j] != w)
+                    action.accept(words[members[j]], 1.0);
+        }
+    }
+
+
+    /**
+     * The outcome of a search: the path is listed from the goal back to the start,
+     * excluding the start, like in {@link PathFinder.Result}.
+     */
+    public static class Solution {
+        public final boolean success;
+        public final double cost;
+        public final List<String> path;
+        public final int visitedNodes;
+        public final long pathStartNanos;  // System.nanoTime() when the path was started, or 0
+
+        Solution(boolean success, double cost, List<String> path, int visitedNodes, long pathStartNanos) {
+            this.success = success;
+            this.cost = cost;
+            this.path = path;
+            this.visitedNodes = visitedNodes;
+            this.pathStartNanos = pathStartNanos;
+        }
+    }
+
+
+    /**
+     * Finds a shortest word ladder with Dijkstra's algorithm, or A* with the number of
+     * differing letters as estimate if {@code useHeuristic} is set, on word ids only.
+     * @param  s             the id of the start word
+     * @param  goal          the goal word, which need not be in the dictionary
+     * @param  useHeuristic  whether to use A*
+     * @return the solution
+     */
+    public Solution search(int s, String goal, boolean useHeuristic) {
+        return search(s, goal, useHeuristic, null);
+    }
+
+
+    /**
+     * {@link #search(int, String, boolean)}, reporting the events of the search to a
+     * listener. The listener is a parameter, not a field, since an index is shared by
+     * the path finders of all threads.
+     * @param  s             the id of the start word
+     * @param  goal          the goal word, which need not be in the dictionary
+     * @param  useHeuristic  whether to use A*
+     * @param  listener      the listener, or null for none
+     * @return the solution
+     */
+    public Solution search(int s, String goal, boolean useHeuristic, SearchListener listener) {
+        int n = words.length;
+        int t = id(goal);
+        int[] distTo = new int[n];
+        int[] parent = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(distTo, Integer.MAX_VALUE);
+        IndexedMinPQ toBeVisited = new IndexedMinPQ(1024);
+        int visitedNodes = 0;
+
+        distTo[s] = 0;
+        parent[s] = -1;
+        toBeVisited.insert(s, useHeuristic ? differences(words[s], goal) : 0);
+        if (listener != null) {
+            listener.pushed(1);
+            if (useHeuristic) listener.heuristicCalled();
+        }
+
+        while (!toBeVisited.isEmpty()) {
+            int v = toBeVisited.delMin();
+            settled[v] = true;
+            visitedNodes++;
+            if (listener != null) listener.popped(false);
+            if (v == t) {
+                long pathStartNanos = System.nanoTime();
+                if (listener != null) listener.pathStarted();
+                List<String> path = new ArrayList<>();
+                for (int w = t; w != s; w = parent[w])
+                    path.add(words[w]);
+                return new Solution(true, distTo[t], path, visitedNodes, pathStartNanos);
+            }
+
+            for (int i = wordOffsets[v]; i < wordOffsets[v + 1]; i++) {  /* RELAX */
+                int b = wordBuckets[i];
+                for (int j = bucketOffsets[b]; j < bucketOffsets[b + 1]; j++) {
+                    int w = members[j];
+                    if (settled[w] || distTo[w] <= distTo[v] + 1) {
+                        if (listener != null) listener.relaxed(false);
+                        continue;
+                    }
+                    distTo[w] = distTo[v] + 1;
+                    parent[w] = v;
+                    toBeVisited.insertOrDecrease(w, useHeuristic ? distTo[w] + differences(words[w], goal) : distTo[w]);
+                    if (listener != null) {
+                        listener.relaxed(true);
+                        listener.pushed(toBeVisited.size());
+                        if (useHeuristic) listener.heuristicCalled();
+                    }
+                }
+            }
+        }
+        return new Solution(false, -1, null, visitedNodes, 0);
+    }
+
+
+    /**
+     * @return the number of positions where two words of the same length differ
+     */
+    private static int differences(String v, String w) {
+        if (v.length() != w.length())
+            throw new RuntimeException("different length of words");
+        int count = 0;
+        for (int i = 0; i < v.length(); i++)
+            if (v.charAt(i) != w.charAt(i)) count++;
+        return count;
+    }
+
+
+    /**
+     * @return a string representation of the index
+     */
+    public String toString() {
+        return "Word index with " + nrWords() + " words, " + nrBuckets() + " buckets";
+    }
+
+
+    /**
+     * Builds the index of a dictionary file, optionally saves it, and loads it back
+     * @param args  the command-line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            WordLadder ladder = new WordLadder(args[0]);
+            for (boolean parallel : new boolean[] {false, true}) {
+                long time = System.nanoTime();
+                WordIndex index = ladder.buildIndex(parallel);
+                System.out.println(index);
+                System.out.println(String.format("Built %s in %.3f seconds", parallel ? "in parallel" : "sequentially",
+                                                 (System.nanoTime() - time) / 1e9));
+            }
+            if (args.length > 1) {
+                ladder.index().save(args[1]);
+                long time = System.nanoTime();
+                WordIndex index = load(args[1]);
+                System.out.println(String.format("Loaded %s in %.3f seconds", index, (System.nanoTime() - time) / 1e9));
+            }
+        } catch (Exception e) {
+            // If there is an error, print it and a little command-line help
+            e.printStackTrace();
+            System.err.println();
+            System.err.println("Usage: java WordIndex dictionary-file [index-file]");
+            System.exit(1);
+        }
+    }
+
+}
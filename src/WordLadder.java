@@ -6,14 +6,13 @@ import java.util.stream.Collectors;
 
 import java.io.IOException;
 
-import java.nio.file.Files;
-import java.nio.file.Paths;
-
 
 public class WordLadder implements DirectedGraph<String> {
 
     private Set<String> dictionary;
     private Set<Character> charset;
+    private WordIndex index;  // the neighbour index, dropped by addWord
+    private long version;     // counts the words added by addWord
 
 
     public WordLadder() {
@@ -25,9 +24,30 @@ public class WordLadder implements DirectedGraph<String> {
     public WordLadder(String file) throws IOException {
         dictionary = new HashSet<>();
         charset = new HashSet<>();
-        Files.lines(Paths.get(file))
-                .filter(line -> !line.startsWith("#"))
-                .forEach(word -> addWord(word.trim()));
+        for (String word : GraphLoader.readWords(file)) {
+            dictionary.add(word);
+            for (int i = 0; i < word.length(); i++)
+                charset.add(word.charAt(i));
+        }
+        buildIndex(true);
+    }
+
+
+    /**
+     * Creates a word ladder from a saved index (see {@link GraphSnapshot}), without
+     * reading the dictionary file.
+     * @param index the index, whose words become the dictionary
+     */
+    public WordLadder(WordIndex index) {
+        dictionary = new HashSet<>(2 * index.nrWords());
+        charset = new HashSet<>();
+        for (int w = 0; w < index.nrWords(); w++) {
+            String word = index.word(w);
+            dictionary.add(word);
+            for (int i = 0; i < word.length(); i++)
+                charset.add(word.charAt(i));
+        }
+        this.index = index;
     }
 
 
@@ -41,7 +61,10 @@ public class WordLadder implements DirectedGraph<String> {
         // 
         if (word.matches("\\p{L}+")) {
             word = word.toLowerCase();
-            dictionary.add(word);
+            if (dictionary.add(word)) {
+                index = null;
+                version++;
+            }
             for (char c : word.toCharArray()) {
                 charset.add(c);
             }
@@ -49,6 +72,14 @@ public class WordLadder implements DirectedGraph<String> {
     }
 
 
+    /**
+     * @return the number of words added by {@code addWord} so far
+     */
+    public long version() {
+        return version;
+    }
+
+
     /**
      * @return the number of words in the dictionary
      */
@@ -57,12 +88,39 @@ public class WordLadder implements DirectedGraph<String> {
     }
 
 
+    /**
+     * Builds the wildcard neighbour index of the dictionary, which {@code outgoingEdges}
+     * and {@code forEachOutgoing} use from then on. It is built when the dictionary file
+     * is loaded, and has to be built again after adding words.
+     * @param parallel whether to build it in parallel
+     * @return the index
+     */
+    public WordIndex buildIndex(boolean parallel) {
+        index = WordIndex.build(dictionary, parallel);
+        return index;
+    }
+
+
+    /**
+     * @return the neighbour index, or null if words have been added since it was built
+     */
+    public WordIndex index() {
+        return index;
+    }
+
+
     /**
      * @param word a graph node
      * @return the edges incident on node {@code word} as a List
      */
     public List<DirectedEdge<String>> outgoingEdges(String word) {
         ArrayList<DirectedEdge<String>> outgoingEdges = new ArrayList<>();
+        WordIndex index = this.index;
+        int id = index == null ? -1 : index.id(word);
+        if (id >= 0) {
+            index.forEachNeighbour(id, (w, weight) -> outgoingEdges.add(new DirectedEdge<>(word, w)));
+            return outgoingEdges;
+        }
 
         for (int i = 0; i < word.length(); i++) {
             char org = word.charAt(i);
@@ -79,6 +137,48 @@ public class WordLadder implements DirectedGraph<String> {
         return outgoingEdges;
     }
 
+    /**
+     * Calls {@code action} for every word that differs from {@code word} in exactly one letter.
+     * Words in the dictionary get their neighbours from the index; for other words the
+     * candidates are built in one shared char array instead of a new StringBuilder per position.
+     * @param word   a graph node
+     * @param action the consumer of the edges
+     */
+    public void forEachOutgoing(String word, EdgeConsumer<String> action) {
+        WordIndex index = this.index;
+        int id = index == null ? -1 : index.id(word);
+        if (id >= 0) {
+            index.forEachNeighbour(id, action);
+            return;
+        }
+        char[] letters = word.toCharArray();
+        for (int i = 0; i < letters.length; i++) {
+            char org = letters[i];
+            for (char c : charset) {
+                if (c != org) {
+                    letters[i] = c;
+                    String candidate = new String(letters);
+                    if (dictionary.contains(candidate)) action.accept(candidate, 1.0);
+                }
+            }
+            letters[i] = org;
+        }
+    }
+
+    /**
+     * @return true, since changing one letter can be undone by changing it back
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * @return true, since changing one letter costs 1
+     */
+    public boolean hasUnitWeights() {
+        return true;
+    }
+
     /**
      *
      * @param v
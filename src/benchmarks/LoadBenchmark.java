@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * The time to build each bundled graph from its text file, and to load it from a
+ * {@code GraphSnapshot}. The graph is returned, so that JMH consumes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"citygraph-BE.txt", "citygraph-DE.txt", "citygraph-DK.txt", "citygraph-EU.txt", "citygraph-FI.txt",
+            "citygraph-FR.txt", "citygraph-NL.txt", "citygraph-NO.txt", "citygraph-SE.txt", "citygraph-USA.txt",
+            "citygraph-VGregion.txt", "wikipedia-graph.txt", "words-romaner.txt",
+            "AR0011SR.map", "AR0012SR.map", "maze-100x50.txt", "maze-20x10.txt", "maze-10x5.txt"})
+    public String graph;
+
+    @Param({"text", "snapshot"})
+    public String source;
+
+    private Callable<Object> loader;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        loader = Workloads.loader(graph, source);
+    }
+
+
+    @Benchmark
+    public Object load() throws Exception {
+        return loader.call();
+    }
+
+}
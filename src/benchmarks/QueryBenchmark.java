@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.function.IntFunction;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * The time of the fixed queries of each bundled graph, answered in turn, for each
+ * algorithm. The graph is loaded in the setup as {@code RunBatch} does, and every
+ * answer is checked against the known cost of its query, except for the random search,
+ * which goes from each start to a neighbour. The result is returned, so that JMH
+ * consumes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"random", "dijkstra", "astar"})
+    public String algorithm;
+
+    @Param({"citygraph-BE.txt", "citygraph-DE.txt", "citygraph-DK.txt", "citygraph-EU.txt", "citygraph-FI.txt",
+            "citygraph-FR.txt", "citygraph-NL.txt", "citygraph-NO.txt", "citygraph-SE.txt", "citygraph-USA.txt",
+            "citygraph-VGregion.txt", "wikipedia-graph.txt", "words-romaner.txt",
+            "AR0011SR.map", "AR0012SR.map", "maze-100x50.txt", "maze-20x10.txt", "maze-10x5.txt",
+            "NPuzzle 3", "NPuzzle 4"})
+    public String graph;
+
+    private IntFunction<Object> queries;
+    private int n;  // the number of the next query
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        queries = Workloads.queries(graph, algorithm);
+        n = 0;
+    }
+
+
+    @Benchmark
+    public Object query() {
+        return queries.apply(n++);
+    }
+
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.concurrent.Callable;
+import java.util.function.IntFunction;
+
+
+/**
+ * Gets the operations of the benchmarks from {@code PathFinderBenchmark}. The path
+ * finders are in the default package, which a named package cannot import, and JMH
+ * does not generate benchmarks in the default package, so the operations are looked
+ * up by name, once per trial.
+ */
+class Workloads {
+
+    /**
+     * @return {@code PathFinderBenchmark.loader(graph, source)}
+     */
+    @SuppressWarnings("unchecked")
+    static Callable<Object> loader(String graph, String source) throws Exception {
+        return (Callable<Object>) call("loader", graph, source);
+    }
+
+
+    /**
+     * @return {@code PathFinderBenchmark.queries(graph, algorithm)}
+     */
+    @SuppressWarnings("unchecked")
+    static IntFunction<Object> queries(String graph, String algorithm) throws Exception {
+        return (IntFunction<Object>) call("queries", graph, algorithm);
+    }
+
+
+    private static Object call(String method, String graph, String argument) throws Exception {
+        return Class.forName("PathFinderBenchmark")
+            .getMethod(method, String.class, String.class)
+            .invoke(null, graph, argument);
+    }
+
+}